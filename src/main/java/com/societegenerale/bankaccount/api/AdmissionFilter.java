@@ -0,0 +1,120 @@
+package com.societegenerale.bankaccount.api;
+
+import static com.societegenerale.bankaccount.api.AdmissionRequests.CLIENT_ID;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.RATE_LIMITED;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.SATURATED;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.accountId;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.clientId;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.isAccountsPath;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.isStream;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.retryAfterSeconds;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.saturatedRetryAfterSeconds;
+
+import com.societegenerale.bankaccount.application.AdmissionControl;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Runs the {@code /accounts} routes through {@link AdmissionControl}, answering {@code 429} with
+ * a {@code Retry-After} header to the requests it turns away. Requests wait for a slot on their
+ * own thread, up to the queue timeout; a slot taken by an asynchronous request is given back when
+ * its response completes.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "bankaccount.admission.enabled", havingValue = "true")
+public class AdmissionFilter extends OncePerRequestFilter {
+
+  private final AdmissionControl admissionControl;
+  private final boolean trustClientIdHeader;
+
+  public AdmissionFilter(AdmissionControl admissionControl,
+      @Value("${bankaccount.admission.trust-client-id-header:false}") boolean trustClientIdHeader) {
+    this.admissionControl = admissionControl;
+    this.trustClientIdHeader = trustClientIdHeader;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !isAccountsPath(request.getRequestURI());
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    final String path = request.getRequestURI();
+    final long wait = admissionControl.checkRate(
+        clientId(trustClientIdHeader ? request.getHeader(CLIENT_ID) : null,
+            request.getRemoteAddr()),
+        accountId(path));
+    if (wait > 0) {
+      reject(response, retryAfterSeconds(wait), RATE_LIMITED);
+      return;
+    }
+    if (isStream(path)) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    if (!admissionControl.enter(true)) {
+      reject(response,
+          saturatedRetryAfterSeconds(admissionControl.getLimits().getQueueTimeoutMillis()),
+          SATURATED);
+      return;
+    }
+    boolean async = false;
+    try {
+      filterChain.doFilter(request, response);
+      async = request.isAsyncStarted();
+      if (async) {
+        request.getAsyncContext().addListener(new Release());
+      }
+    } finally {
+      if (!async) {
+        admissionControl.release();
+      }
+    }
+  }
+
+  private static void reject(HttpServletResponse response, long retryAfterSeconds,
+      String message) throws IOException {
+    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+    response.getWriter().write(message);
+  }
+
+  // Completion follows timeouts and errors as well: it is the one place to give the slot back.
+  private final class Release implements AsyncListener {
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      admissionControl.release();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+  }
+}
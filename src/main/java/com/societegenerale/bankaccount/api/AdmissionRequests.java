@@ -0,0 +1,67 @@
+package com.societegenerale.bankaccount.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the servlet and reactive admission filters read from a request.
+ */
+final class AdmissionRequests {
+
+  static final String CLIENT_ID = "X-Client-Id";
+  static final String RATE_LIMITED = "Too many requests, retry later";
+  static final String SATURATED = "Too many requests in progress, retry later";
+
+  private static final String ACCOUNTS = "/accounts";
+  private static final int MAX_CLIENT_ID_LENGTH = 255;
+  private static final String UNKNOWN_CLIENT = "unknown";
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private AdmissionRequests() {
+  }
+
+  static boolean isAccountsPath(String path) {
+    return path.startsWith(ACCOUNTS)
+        && (path.length() == ACCOUNTS.length() || path.charAt(ACCOUNTS.length()) == '/');
+  }
+
+  /**
+   * The account of {@code /accounts/{accountId}/...}, or {@code null} for the routes on all
+   * accounts such as {@code /accounts/balances}.
+   */
+  static String accountId(String path) {
+    final int start = ACCOUNTS.length() + 1;
+    final int end = path.indexOf('/', start);
+    return end > start ? path.substring(start, end) : null;
+  }
+
+  /**
+   * Event and transaction streams stay open for as long as their client listens: they are rate
+   * limited but not counted among the requests in flight.
+   */
+  static boolean isStream(String path) {
+    return path.endsWith("/events") || path.endsWith("/stream");
+  }
+
+  /**
+   * The {@value #CLIENT_ID} header, or the remote address when it is missing or too long. Callers
+   * pass a {@code null} header unless it is set by a trusted proxy: any client could otherwise get
+   * a fresh bucket per request by sending a new value.
+   */
+  static String clientId(String header, String remoteAddress) {
+    if (header != null && !header.isEmpty() && header.length() <= MAX_CLIENT_ID_LENGTH) {
+      return header;
+    }
+    return remoteAddress != null ? remoteAddress : UNKNOWN_CLIENT;
+  }
+
+  /**
+   * {@code Retry-After} value for a wait in nanoseconds: whole seconds, rounded up.
+   */
+  static long retryAfterSeconds(long waitNanos) {
+    return Math.max(1, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+  }
+
+  static long saturatedRetryAfterSeconds(long queueTimeoutMillis) {
+    return retryAfterSeconds(TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis));
+  }
+}
@@ -1,33 +1,92 @@
 package com.societegenerale.bankaccount.api;
 
+import static com.societegenerale.bankaccount.api.RequestValidation.IDEMPOTENCY_KEY;
+import static com.societegenerale.bankaccount.api.RequestValidation.checkedBalanceIds;
+import static com.societegenerale.bankaccount.api.RequestValidation.checkedIdempotencyKey;
+import static com.societegenerale.bankaccount.api.RequestValidation.requiredTarget;
+import static com.societegenerale.bankaccount.api.RequestValidation.toAmounts;
+import static com.societegenerale.bankaccount.api.RequestValidation.toMoney;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.BatchOperation;
+import com.societegenerale.bankaccount.application.BatchResult;
+import com.societegenerale.bankaccount.application.EventHistoryExpiredException;
+import com.societegenerale.bankaccount.application.EventSubscription;
+import com.societegenerale.bankaccount.application.IdempotencyCache;
+import com.societegenerale.bankaccount.application.IdempotencyKeyReusedException;
+import com.societegenerale.bankaccount.application.OverflowPolicy;
+import com.societegenerale.bankaccount.application.StatementFormat;
 import com.societegenerale.bankaccount.application.StatementPrinter;
+import com.societegenerale.bankaccount.application.StatementRenderer;
+import com.societegenerale.bankaccount.application.TransactionEvent;
+import com.societegenerale.bankaccount.application.TransactionEventBus;
+import com.societegenerale.bankaccount.application.TransactionFilter;
+import com.societegenerale.bankaccount.application.TransactionPage;
 import com.societegenerale.bankaccount.domain.Account;
 import com.societegenerale.bankaccount.domain.BankAccountException;
+import com.societegenerale.bankaccount.domain.Money;
 import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
-import org.springframework.beans.factory.annotation.Autowired;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/accounts")
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class BankAccountController {
 
+  private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+  private static final String TEXT_CSV_VALUE = "text/csv";
+  private static final int DEFAULT_PAGE_SIZE = 100;
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final String LAST_EVENT_ID = "Last-Event-ID";
+  private static final Duration EVENT_HEARTBEAT = Duration.ofSeconds(15);
+
   private final BankAccountService bankAccountService;
+  private final ObjectMapper objectMapper;
+  private final StatementPrinter statementPrinter;
+  private final IdempotencyCache idempotencyCache;
+  private final TransactionEventBus eventBus;
 
-  @Autowired
-  public BankAccountController(BankAccountService bankAccountService) {
+  public BankAccountController(BankAccountService bankAccountService, ObjectMapper objectMapper,
+      StatementPrinter statementPrinter, IdempotencyCache idempotencyCache,
+      TransactionEventBus eventBus) {
     this.bankAccountService = bankAccountService;
+    this.objectMapper = objectMapper;
+    this.statementPrinter = statementPrinter;
+    this.idempotencyCache = idempotencyCache;
+    this.eventBus = eventBus;
   }
 
   @PostMapping
@@ -37,31 +96,81 @@ public class BankAccountController {
   }
 
   @PostMapping("/{accountId}/deposit")
-  public ResponseEntity<Void> deposit(@PathVariable String accountId,
-      @RequestBody BigDecimal amount) {
-    bankAccountService.deposit(accountId, amount);
-    return ResponseEntity.ok().build();
+  public CompletableFuture<ResponseEntity<Void>> deposit(@PathVariable String accountId,
+      @RequestBody BigDecimal amount,
+      @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+    final Money money = toMoney(amount);
+    final CompletableFuture<Void> done = idempotencyKey == null
+        ? bankAccountService.depositAsync(accountId, money)
+        : idempotencyCache.execute(checkedIdempotencyKey(idempotencyKey),
+            "deposit " + accountId + " " + money,
+            () -> bankAccountService.depositAsync(accountId, money));
+    return done.thenApply(result -> ResponseEntity.ok().build());
   }
 
   @PostMapping("/{accountId}/withdrawal")
-  public ResponseEntity<Void> withdraw(@PathVariable String accountId,
-      @RequestBody BigDecimal amount) {
-    bankAccountService.withdrawal(accountId, amount);
+  public CompletableFuture<ResponseEntity<Void>> withdraw(@PathVariable String accountId,
+      @RequestBody BigDecimal amount,
+      @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+    final Money money = toMoney(amount);
+    final CompletableFuture<Void> done = idempotencyKey == null
+        ? bankAccountService.withdrawalAsync(accountId, money)
+        : idempotencyCache.execute(checkedIdempotencyKey(idempotencyKey),
+            "withdrawal " + accountId + " " + money,
+            () -> bankAccountService.withdrawalAsync(accountId, money));
+    return done.thenApply(result -> ResponseEntity.ok().build());
+  }
+
+  @PostMapping("/{accountId}/transfer")
+  public ResponseEntity<Void> transfer(@PathVariable String accountId,
+      @RequestBody TransferRequest request) {
+    bankAccountService.transfer(accountId, requiredTarget(request), toMoney(request.getAmount()));
     return ResponseEntity.ok().build();
   }
 
+  /**
+   * The whole array is read and validated before any operation is applied, so a malformed or
+   * invalid item fails the request with nothing applied. It is therefore held in memory: clients
+   * split very large jobs into several batches.
+   */
+  @PostMapping("/transactions:batch")
+  public ResponseEntity<List<BatchResult>> applyBatch(
+      @RequestBody List<BatchOperationRequest> requests,
+      @RequestParam(defaultValue = "false") boolean atomic) {
+    List<BatchOperation> operations = requests.stream()
+        .map(request -> new BatchOperation(request.getAccountId(), request.getTransactionType(),
+            toMoney(request.getAmount())))
+        .toList();
+    List<BatchResult> results = bankAccountService.applyBatch(operations, atomic);
+    return ResponseEntity.ok(results);
+  }
+
   @GetMapping("/{accountId}/balance")
-  public ResponseEntity<BigDecimal> getBalance(@PathVariable String accountId) {
-    BigDecimal balance = bankAccountService.getBalance(accountId);
-    return ResponseEntity.ok(balance);
+  public ResponseEntity<BigDecimal> getBalance(@PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime asOf) {
+    Money balance = asOf == null ? bankAccountService.getBalance(accountId)
+        : bankAccountService.getBalanceAsOf(accountId, asOf);
+    return ResponseEntity.ok(balance.toBigDecimal());
+  }
+
+  /**
+   * Balances of up to 1000 accounts, for dashboards: {@code ?ids=a,b} or {@code ?ids=a&ids=b}.
+   * Unknown accounts are left out of the response.
+   */
+  @GetMapping("/balances")
+  public ResponseEntity<Map<String, BigDecimal>> getBalances(@RequestParam List<String> ids) {
+    return ResponseEntity.ok(toAmounts(bankAccountService.getBalances(checkedBalanceIds(ids))));
   }
 
   @GetMapping("/{accountId}/transactions")
-  public ResponseEntity<List<Transaction>> getAccountTransactions(@PathVariable String accountId) {
+  public ResponseEntity<List<Transaction>> getAccountTransactions(@PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to) {
     try {
-      List<Transaction> transactions = bankAccountService.getAccount(accountId).getTransactions();
-      StatementPrinter printer = new StatementPrinter();
-      printer.print(accountId, transactions, bankAccountService.getBalance(accountId));
+      List<Transaction> transactions = from == null && to == null
+          ? bankAccountService.getAccount(accountId).getTransactions()
+          : bankAccountService.getTransactionsBetween(accountId, from, to);
+      statementPrinter.print(accountId, transactions, bankAccountService.getBalance(accountId));
       return ResponseEntity.ok(transactions);
     } catch (BankAccountException exception) {
       List<Transaction> emptyList = Collections.emptyList();
@@ -69,10 +178,187 @@ public class BankAccountController {
     }
   }
 
+  @GetMapping("/{accountId}/transactions/page")
+  public ResponseEntity<TransactionPage> getAccountTransactionPage(@PathVariable String accountId,
+      @RequestParam(defaultValue = "0") int cursor,
+      @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+      @RequestParam(required = false) TransactionType type) {
+    TransactionPage page = bankAccountService.getTransactionPage(accountId,
+        new TransactionFilter(from, to, type), cursor, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    return ResponseEntity.ok(page);
+  }
+
+  @GetMapping(value = "/{accountId}/transactions/stream", produces = APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAccountTransactionsAsNdjson(
+      @PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+      @RequestParam(required = false) TransactionType type) {
+    return streamTransactions(accountId, new TransactionFilter(from, to, type), true);
+  }
+
+  @GetMapping(value = "/{accountId}/transactions/stream",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> streamAccountTransactionsAsJson(
+      @PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+      @RequestParam(required = false) TransactionType type) {
+    return streamTransactions(accountId, new TransactionFilter(from, to, type), false);
+  }
+
+  @GetMapping(value = "/{accountId}/statement", produces = MediaType.TEXT_PLAIN_VALUE)
+  public ResponseEntity<StreamingResponseBody> downloadStatementAsText(
+      @PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to) {
+    return downloadStatement(accountId, from, to, StatementFormat.TEXT);
+  }
+
+  @GetMapping(value = "/{accountId}/statement", produces = TEXT_CSV_VALUE)
+  public ResponseEntity<StreamingResponseBody> downloadStatementAsCsv(
+      @PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to) {
+    return downloadStatement(accountId, from, to, StatementFormat.CSV);
+  }
+
+  /**
+   * Transactions saved on the account from now on, or after the sequence given by {@code after}
+   * or by the {@code Last-Event-ID} header of a reconnecting client.
+   */
+  @GetMapping(value = "/{accountId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> streamAccountEvents(@PathVariable String accountId,
+      @RequestParam(required = false) Long after,
+      @RequestHeader(name = LAST_EVENT_ID, required = false) Long lastEventId,
+      @RequestParam(required = false) OverflowPolicy overflow) {
+    try {
+      bankAccountService.getAccount(accountId);
+    } catch (BankAccountException exception) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+    return streamEvents(accountId, after != null ? after : lastEventId, overflow);
+  }
+
+  /**
+   * Transactions saved on every account, resumable like the events of one account.
+   */
+  @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> streamAllEvents(
+      @RequestParam(required = false) Long after,
+      @RequestHeader(name = LAST_EVENT_ID, required = false) Long lastEventId,
+      @RequestParam(required = false) OverflowPolicy overflow) {
+    return streamEvents(null, after != null ? after : lastEventId, overflow);
+  }
+
+  @ExceptionHandler(IdempotencyKeyReusedException.class)
+  public ResponseEntity<String> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(ex.getMessage());
+  }
+
   @ExceptionHandler(BankAccountException.class)
   public ResponseEntity<List<Transaction>> handleBankAccountException(BankAccountException ex) {
     List<Transaction> emptyList = Collections.emptyList();
     return ResponseEntity.status(HttpStatus.NOT_FOUND).body(emptyList);
   }
 
+  private ResponseEntity<StreamingResponseBody> downloadStatement(String accountId,
+      LocalDateTime from, LocalDateTime to, StatementFormat format) {
+    final Account account;
+    try {
+      account = bankAccountService.getAccount(accountId);
+    } catch (BankAccountException exception) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+    final List<Transaction> transactions = from == null && to == null
+        ? account.getTransactions() : account.getTransactionsBetween(from, to);
+    StreamingResponseBody body = outputStream -> {
+      Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+      new StatementRenderer().render(accountId, transactions, account.getBalance(), format,
+          writer);
+      writer.flush();
+    };
+    final boolean csv = format == StatementFormat.CSV;
+    return ResponseEntity.ok()
+        .contentType(csv ? MediaType.parseMediaType(TEXT_CSV_VALUE) : MediaType.TEXT_PLAIN)
+        .header("Content-Disposition", ContentDisposition.attachment()
+            .filename("statement-" + accountId + (csv ? ".csv" : ".txt"))
+            .build().toString())
+        .body(body);
+  }
+
+  /**
+   * Each stream is fed by its own virtual thread, which waits for events and blocks on slow
+   * clients without holding a request thread.
+   */
+  private ResponseEntity<SseEmitter> streamEvents(String accountId, Long afterSequence,
+      OverflowPolicy overflow) {
+    final EventSubscription subscription;
+    try {
+      subscription = eventBus.subscribe(accountId, afterSequence, overflow, available -> {
+      });
+    } catch (EventHistoryExpiredException exception) {
+      return ResponseEntity.status(HttpStatus.GONE).build();
+    }
+    final SseEmitter emitter = new SseEmitter(0L);
+    emitter.onCompletion(subscription::close);
+    emitter.onTimeout(subscription::close);
+    emitter.onError(error -> subscription.close());
+    Thread.ofVirtual().name("events-" + (accountId == null ? "all" : accountId))
+        .start(() -> sendEvents(subscription, emitter));
+    return ResponseEntity.ok(emitter);
+  }
+
+  private static void sendEvents(EventSubscription subscription, SseEmitter emitter) {
+    try {
+      while (!subscription.isExhausted()) {
+        final TransactionEvent event = subscription.poll(EVENT_HEARTBEAT);
+        if (event != null) {
+          emitter.send(SseEmitter.event().id(Long.toString(event.getSequence()))
+              .data(event, MediaType.APPLICATION_JSON));
+        } else if (!subscription.isClosed()) {
+          emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+      }
+      emitter.complete();
+    } catch (IOException | IllegalStateException exception) {
+      subscription.close();
+    } catch (InterruptedException exception) {
+      subscription.close();
+      emitter.complete();
+    }
+  }
+
+  private ResponseEntity<StreamingResponseBody> streamTransactions(String accountId,
+      TransactionFilter filter, boolean ndjson) {
+    final Stream<Transaction> transactions;
+    try {
+      transactions = bankAccountService.streamTransactions(accountId, filter);
+    } catch (BankAccountException exception) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+    StreamingResponseBody body = outputStream -> {
+      try (transactions; JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+        if (ndjson) {
+          generator.setRootValueSeparator(null);
+          for (Transaction transaction : (Iterable<Transaction>) transactions::iterator) {
+            generator.writeObject(transaction);
+            generator.writeRaw('\n');
+          }
+        } else {
+          generator.writeStartArray();
+          for (Transaction transaction : (Iterable<Transaction>) transactions::iterator) {
+            generator.writeObject(transaction);
+          }
+          generator.writeEndArray();
+        }
+      }
+    };
+    return ResponseEntity.ok()
+        .contentType(ndjson ? MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)
+            : MediaType.APPLICATION_JSON)
+        .body(body);
+  }
 }
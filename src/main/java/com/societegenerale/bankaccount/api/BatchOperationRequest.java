@@ -0,0 +1,15 @@
+package com.societegenerale.bankaccount.api;
+
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.math.BigDecimal;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class BatchOperationRequest {
+
+  private final String accountId;
+  private final TransactionType transactionType;
+  private final BigDecimal amount;
+}
@@ -0,0 +1,83 @@
+package com.societegenerale.bankaccount.api;
+
+import static com.societegenerale.bankaccount.api.AdmissionRequests.CLIENT_ID;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.RATE_LIMITED;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.SATURATED;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.accountId;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.clientId;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.isAccountsPath;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.isStream;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.retryAfterSeconds;
+import static com.societegenerale.bankaccount.api.AdmissionRequests.saturatedRetryAfterSeconds;
+
+import com.societegenerale.bankaccount.application.AdmissionControl;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link AdmissionFilter} for the reactive stack. Event-loop threads must not block, so a request
+ * finding no free slot is turned away at once rather than queued.
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@ConditionalOnProperty(name = "bankaccount.admission.enabled", havingValue = "true")
+public class ReactiveAdmissionFilter implements WebFilter {
+
+  private final AdmissionControl admissionControl;
+  private final boolean trustClientIdHeader;
+
+  public ReactiveAdmissionFilter(AdmissionControl admissionControl,
+      @Value("${bankaccount.admission.trust-client-id-header:false}") boolean trustClientIdHeader) {
+    this.admissionControl = admissionControl;
+    this.trustClientIdHeader = trustClientIdHeader;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    final ServerHttpRequest request = exchange.getRequest();
+    final String path = request.getPath().value();
+    if (!isAccountsPath(path)) {
+      return chain.filter(exchange);
+    }
+    final InetSocketAddress remoteAddress = request.getRemoteAddress();
+    final long wait = admissionControl.checkRate(
+        clientId(trustClientIdHeader ? request.getHeaders().getFirst(CLIENT_ID) : null,
+            remoteAddress != null ? remoteAddress.getHostString() : null),
+        accountId(path));
+    if (wait > 0) {
+      return reject(exchange.getResponse(), retryAfterSeconds(wait), RATE_LIMITED);
+    }
+    if (isStream(path)) {
+      return chain.filter(exchange);
+    }
+    if (!admissionControl.enter(false)) {
+      return reject(exchange.getResponse(),
+          saturatedRetryAfterSeconds(admissionControl.getLimits().getQueueTimeoutMillis()),
+          SATURATED);
+    }
+    return chain.filter(exchange).doFinally(signal -> admissionControl.release());
+  }
+
+  private static Mono<Void> reject(ServerHttpResponse response, long retryAfterSeconds,
+      String message) {
+    response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+    response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    response.getHeaders().setContentType(MediaType.TEXT_PLAIN);
+    return response.writeWith(
+        Mono.just(response.bufferFactory().wrap(message.getBytes(StandardCharsets.UTF_8))));
+  }
+}
@@ -0,0 +1,255 @@
+package com.societegenerale.bankaccount.api;
+
+import static com.societegenerale.bankaccount.api.RequestValidation.IDEMPOTENCY_KEY;
+import static com.societegenerale.bankaccount.api.RequestValidation.checkedBalanceIds;
+import static com.societegenerale.bankaccount.api.RequestValidation.checkedIdempotencyKey;
+import static com.societegenerale.bankaccount.api.RequestValidation.requiredTarget;
+import static com.societegenerale.bankaccount.api.RequestValidation.toAmounts;
+import static com.societegenerale.bankaccount.api.RequestValidation.toMoney;
+
+import com.societegenerale.bankaccount.application.BatchOperation;
+import com.societegenerale.bankaccount.application.BatchResult;
+import com.societegenerale.bankaccount.application.EventHistoryExpiredException;
+import com.societegenerale.bankaccount.application.IdempotencyCache;
+import com.societegenerale.bankaccount.application.IdempotencyKeyReusedException;
+import com.societegenerale.bankaccount.application.OverflowPolicy;
+import com.societegenerale.bankaccount.application.ReactiveBankAccountService;
+import com.societegenerale.bankaccount.application.StatementFormat;
+import com.societegenerale.bankaccount.application.StatementPrinter;
+import com.societegenerale.bankaccount.application.TransactionEvent;
+import com.societegenerale.bankaccount.application.TransactionFilter;
+import com.societegenerale.bankaccount.application.TransactionPage;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.BankAccountException;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The {@code /accounts} routes of {@link BankAccountController} for the reactive stack, enabled
+ * with {@code spring.main.web-application-type=reactive}. Handlers never block, so a few event-loop
+ * threads serve any number of open connections.
+ */
+@RestController
+@RequestMapping("/accounts")
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveBankAccountController {
+
+  private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+  private static final String TEXT_CSV_VALUE = "text/csv";
+  private static final int DEFAULT_PAGE_SIZE = 100;
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+  private final ReactiveBankAccountService bankAccountService;
+  private final StatementPrinter statementPrinter;
+  private final IdempotencyCache idempotencyCache;
+
+  public ReactiveBankAccountController(ReactiveBankAccountService bankAccountService,
+      StatementPrinter statementPrinter, IdempotencyCache idempotencyCache) {
+    this.bankAccountService = bankAccountService;
+    this.statementPrinter = statementPrinter;
+    this.idempotencyCache = idempotencyCache;
+  }
+
+  @PostMapping
+  public Mono<ResponseEntity<Account>> createAccount() {
+    return bankAccountService.createAccount()
+        .map(account -> ResponseEntity.status(HttpStatus.CREATED).body(account));
+  }
+
+  @PostMapping("/{accountId}/deposit")
+  public Mono<ResponseEntity<Void>> deposit(@PathVariable String accountId,
+      @RequestBody BigDecimal amount,
+      @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+    final Money money = toMoney(amount);
+    return idempotent(idempotencyKey, "deposit " + accountId + " " + money,
+        () -> bankAccountService.deposit(accountId, money));
+  }
+
+  @PostMapping("/{accountId}/withdrawal")
+  public Mono<ResponseEntity<Void>> withdraw(@PathVariable String accountId,
+      @RequestBody BigDecimal amount,
+      @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+    final Money money = toMoney(amount);
+    return idempotent(idempotencyKey, "withdrawal " + accountId + " " + money,
+        () -> bankAccountService.withdrawal(accountId, money));
+  }
+
+  @PostMapping("/{accountId}/transfer")
+  public Mono<ResponseEntity<Void>> transfer(@PathVariable String accountId,
+      @RequestBody TransferRequest request) {
+    return bankAccountService
+        .transfer(accountId, requiredTarget(request), toMoney(request.getAmount()))
+        .thenReturn(ResponseEntity.ok().build());
+  }
+
+  @PostMapping("/transactions:batch")
+  public Mono<ResponseEntity<List<BatchResult>>> applyBatch(
+      @RequestBody List<BatchOperationRequest> requests,
+      @RequestParam(defaultValue = "false") boolean atomic) {
+    List<BatchOperation> operations = requests.stream()
+        .map(request -> new BatchOperation(request.getAccountId(), request.getTransactionType(),
+            toMoney(request.getAmount())))
+        .toList();
+    return bankAccountService.applyBatch(operations, atomic).map(ResponseEntity::ok);
+  }
+
+  @GetMapping("/{accountId}/balance")
+  public Mono<ResponseEntity<BigDecimal>> getBalance(@PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime asOf) {
+    Mono<Money> balance = asOf == null ? bankAccountService.getBalance(accountId)
+        : bankAccountService.getBalanceAsOf(accountId, asOf);
+    return balance.map(money -> ResponseEntity.ok(money.toBigDecimal()));
+  }
+
+  @GetMapping("/balances")
+  public Mono<ResponseEntity<Map<String, BigDecimal>>> getBalances(
+      @RequestParam List<String> ids) {
+    return bankAccountService.getBalances(checkedBalanceIds(ids))
+        .map(balances -> ResponseEntity.ok(toAmounts(balances)));
+  }
+
+  @GetMapping("/{accountId}/transactions")
+  public Mono<ResponseEntity<List<Transaction>>> getAccountTransactions(
+      @PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to) {
+    return bankAccountService.getAccount(accountId).map(account -> {
+      List<Transaction> transactions = from == null && to == null ? account.getTransactions()
+          : account.getTransactionsBetween(from, to);
+      statementPrinter.print(accountId, transactions, account.getBalance());
+      return ResponseEntity.ok(transactions);
+    });
+  }
+
+  @GetMapping("/{accountId}/transactions/page")
+  public Mono<ResponseEntity<TransactionPage>> getAccountTransactionPage(
+      @PathVariable String accountId,
+      @RequestParam(defaultValue = "0") int cursor,
+      @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+      @RequestParam(required = false) TransactionType type) {
+    return bankAccountService.getTransactionPage(accountId, new TransactionFilter(from, to, type),
+        cursor, Math.max(1, Math.min(limit, MAX_PAGE_SIZE))).map(ResponseEntity::ok);
+  }
+
+  /**
+   * Transactions are encoded as the client reads them: a slow client holds back the account's
+   * history rather than a thread.
+   */
+  @GetMapping(value = "/{accountId}/transactions/stream", produces = {APPLICATION_NDJSON_VALUE,
+      MediaType.APPLICATION_JSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+  public Flux<Transaction> streamAccountTransactions(@PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to,
+      @RequestParam(required = false) TransactionType type) {
+    return bankAccountService.streamTransactions(accountId, new TransactionFilter(from, to, type));
+  }
+
+  @GetMapping(value = "/{accountId}/statement", produces = MediaType.TEXT_PLAIN_VALUE)
+  public Mono<ResponseEntity<Flux<String>>> downloadStatementAsText(@PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to) {
+    return downloadStatement(accountId, from, to, StatementFormat.TEXT);
+  }
+
+  @GetMapping(value = "/{accountId}/statement", produces = TEXT_CSV_VALUE)
+  public Mono<ResponseEntity<Flux<String>>> downloadStatementAsCsv(@PathVariable String accountId,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime to) {
+    return downloadStatement(accountId, from, to, StatementFormat.CSV);
+  }
+
+  /**
+   * Transactions saved on the account from now on, or after the sequence given by {@code after}
+   * or by the {@code Last-Event-ID} header of a reconnecting client.
+   */
+  @GetMapping(value = "/{accountId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<TransactionEvent>> streamAccountEvents(
+      @PathVariable String accountId,
+      @RequestParam(required = false) Long after,
+      @RequestHeader(name = LAST_EVENT_ID, required = false) Long lastEventId,
+      @RequestParam(required = false) OverflowPolicy overflow) {
+    return bankAccountService.events(accountId, after != null ? after : lastEventId, overflow)
+        .map(ReactiveBankAccountController::toServerSentEvent);
+  }
+
+  /**
+   * Transactions saved on every account, resumable like the events of one account.
+   */
+  @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<TransactionEvent>> streamAllEvents(
+      @RequestParam(required = false) Long after,
+      @RequestHeader(name = LAST_EVENT_ID, required = false) Long lastEventId,
+      @RequestParam(required = false) OverflowPolicy overflow) {
+    return bankAccountService.events(null, after != null ? after : lastEventId, overflow)
+        .map(ReactiveBankAccountController::toServerSentEvent);
+  }
+
+  @ExceptionHandler(EventHistoryExpiredException.class)
+  public ResponseEntity<String> handleEventHistoryExpired(EventHistoryExpiredException ex) {
+    return ResponseEntity.status(HttpStatus.GONE).body(ex.getMessage());
+  }
+
+  @ExceptionHandler(IdempotencyKeyReusedException.class)
+  public ResponseEntity<String> handleIdempotencyKeyReused(IdempotencyKeyReusedException ex) {
+    return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(ex.getMessage());
+  }
+
+  @ExceptionHandler(BankAccountException.class)
+  public ResponseEntity<List<Transaction>> handleBankAccountException(BankAccountException ex) {
+    List<Transaction> emptyList = Collections.emptyList();
+    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(emptyList);
+  }
+
+  private static ServerSentEvent<TransactionEvent> toServerSentEvent(TransactionEvent event) {
+    return ServerSentEvent.builder(event).id(Long.toString(event.getSequence())).build();
+  }
+
+  private Mono<ResponseEntity<Void>> idempotent(String idempotencyKey, String request,
+      Supplier<Mono<Void>> operation) {
+    final Mono<Void> done = idempotencyKey == null ? operation.get()
+        : Mono.fromFuture(idempotencyCache.execute(checkedIdempotencyKey(idempotencyKey), request,
+            () -> operation.get().toFuture()));
+    return done.thenReturn(ResponseEntity.ok().build());
+  }
+
+  private Mono<ResponseEntity<Flux<String>>> downloadStatement(String accountId,
+      LocalDateTime from, LocalDateTime to, StatementFormat format) {
+    final boolean csv = format == StatementFormat.CSV;
+    return bankAccountService.getAccount(accountId).map(account -> ResponseEntity.ok()
+        .contentType(csv ? MediaType.parseMediaType(TEXT_CSV_VALUE) : MediaType.TEXT_PLAIN)
+        .header("Content-Disposition", ContentDisposition.attachment()
+            .filename("statement-" + accountId + (csv ? ".csv" : ".txt"))
+            .build().toString())
+        .body(bankAccountService.statement(account, from, to, format)));
+  }
+}
@@ -0,0 +1,74 @@
+package com.societegenerale.bankaccount.api;
+
+import com.societegenerale.bankaccount.domain.Money;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Checks shared by the servlet and reactive controllers.
+ */
+final class RequestValidation {
+
+  static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+  private static final BigDecimal MAX_AMOUNT = BigDecimal.valueOf(1_000_000_000_000L);
+  private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+  private static final int MAX_BALANCE_IDS = 1000;
+
+  private RequestValidation() {
+  }
+
+  /**
+   * Amounts received over the wire must be positive, carry at most two decimals and stay below
+   * {@link #MAX_AMOUNT}; nothing is rounded.
+   */
+  static Money toMoney(BigDecimal amount) {
+    if (amount == null || amount.signum() <= 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Amount must be positive");
+    }
+    if (amount.compareTo(MAX_AMOUNT) > 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Amount is too large");
+    }
+    if (amount.stripTrailingZeros().scale() > Money.SCALE) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Amount must have at most " + Money.SCALE + " decimals");
+    }
+    return Money.of(amount);
+  }
+
+  static String checkedIdempotencyKey(String idempotencyKey) {
+    if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          IDEMPOTENCY_KEY + " must have 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+    }
+    return idempotencyKey;
+  }
+
+  static List<String> checkedBalanceIds(List<String> accountIds) {
+    if (accountIds.isEmpty() || accountIds.size() > MAX_BALANCE_IDS) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Between 1 and " + MAX_BALANCE_IDS + " account ids are required");
+    }
+    return accountIds;
+  }
+
+  /**
+   * Balances as sent over the wire, keeping the order of the request.
+   */
+  static Map<String, BigDecimal> toAmounts(Map<String, Money> balances) {
+    final Map<String, BigDecimal> amounts = new LinkedHashMap<>();
+    balances.forEach((accountId, balance) -> amounts.put(accountId, balance.toBigDecimal()));
+    return amounts;
+  }
+
+  static String requiredTarget(TransferRequest request) {
+    if (request.getToAccountId() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Target account is required");
+    }
+    return request.getToAccountId();
+  }
+}
@@ -0,0 +1,13 @@
+package com.societegenerale.bankaccount.api;
+
+import java.math.BigDecimal;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class TransferRequest {
+
+  private final String toAccountId;
+  private final BigDecimal amount;
+}
@@ -0,0 +1,67 @@
+package com.societegenerale.bankaccount.application;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs commands that read and write accounts so that commands on the same account never overlap
+ * and run in submission order.
+ */
+public interface AccountExecutor extends AutoCloseable {
+
+  /**
+   * Commands on the calling thread under per-account lock stripes.
+   */
+  static AccountExecutor locking(int stripeCount) {
+    return new LockingAccountExecutor(stripeCount);
+  }
+
+  /**
+   * Commands on {@code shardCount} single-threaded shards, each owning the accounts hashed to it
+   * and fed through a mailbox of {@code capacity} commands.
+   */
+  static AccountExecutor sharded(int shardCount, int capacity) {
+    return new ShardedAccountExecutor(shardCount, capacity);
+  }
+
+  /**
+   * Runs {@code command} with exclusive access to {@code accountId}. The returned future completes
+   * with its result, or exceptionally with what it threw.
+   */
+  <T> CompletableFuture<T> submit(String accountId, Supplier<T> command);
+
+  /**
+   * Runs {@code command} with exclusive access to {@code accountId} and waits for its result.
+   */
+  default <T> T execute(String accountId, Supplier<T> command) {
+    return await(submit(accountId, command));
+  }
+
+  /**
+   * Runs {@code command} on the calling thread with exclusive access to all the given accounts at
+   * once.
+   */
+  <T> T executeAll(Collection<String> accountIds, Supplier<T> command);
+
+  @Override
+  void close();
+
+  /**
+   * Waits for {@code future} and rethrows what its command threw as is.
+   */
+  static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException exception) {
+      if (exception.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (exception.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw exception;
+    }
+  }
+}
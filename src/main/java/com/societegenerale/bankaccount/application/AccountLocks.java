@@ -0,0 +1,51 @@
+package com.societegenerale.bankaccount.application;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Fixed set of lock stripes keyed by account id. Operations on the same account always take the
+ * same lock, so hot accounts stay serialised while distinct accounts mostly land on different
+ * stripes and proceed in parallel.
+ */
+class AccountLocks {
+
+  private final Lock[] stripes;
+  private final int mask;
+
+  AccountLocks(int stripeCount) {
+    if (Integer.bitCount(stripeCount) != 1) {
+      throw new IllegalArgumentException("Stripe count must be a power of two: " + stripeCount);
+    }
+    this.stripes = new Lock[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+    this.mask = stripeCount - 1;
+  }
+
+  Lock lockFor(String accountId) {
+    return stripes[indexFor(accountId)];
+  }
+
+  /**
+   * Locks covering all the given accounts, each stripe once and in stripe order. Acquiring them in
+   * the returned order cannot deadlock with another caller doing the same.
+   */
+  List<Lock> locksFor(Collection<String> accountIds) {
+    return accountIds.stream()
+        .mapToInt(this::indexFor)
+        .distinct()
+        .sorted()
+        .mapToObj(index -> stripes[index])
+        .collect(Collectors.toList());
+  }
+
+  int indexFor(String accountId) {
+    final int hash = accountId.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+}
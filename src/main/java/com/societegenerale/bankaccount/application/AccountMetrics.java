@@ -0,0 +1,206 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.AccountRepository;
+import com.societegenerale.bankaccount.domain.BankAccountException;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Meters of {@link BankAccountService}. Everything the hot path records to is registered up
+ * front. Every call is counted; latencies are sampled, so an operation mostly costs a counter
+ * increment. Failures are counted per {@link FailureReason}, a fixed set of tag values.
+ */
+final class AccountMetrics {
+
+  static final String OPERATIONS = "bankaccount.operations";
+  static final String LATENCY = "bankaccount.operations.latency";
+  static final String TRANSACTIONS = "bankaccount.transactions";
+  static final String FAILURES = "bankaccount.failures";
+
+  // One call in this many is timed: reading the clock twice costs as much as a balance lookup.
+  // The latency timers' counts are therefore samples too; OPERATIONS counts every call.
+  static final int LATENCY_SAMPLING = 8;
+
+  final Operation create;
+  final Operation deposit;
+  final Operation withdrawal;
+  final Operation transfer;
+  final Operation batch;
+  final Operation balance;
+  final Operation transactions;
+
+  private final MeterRegistry registry;
+  private final Map<TransactionType, Counter> transactionsByType =
+      new EnumMap<>(TransactionType.class);
+  private final Map<String, Counter> failuresByMessage = new HashMap<>();
+  private final Counter otherFailures;
+  private final LongAdder ledgerEntries = new LongAdder();
+  private final LongAccumulator largestLedger = new LongAccumulator(Math::max, 0);
+
+  AccountMetrics(MeterRegistry registry, AccountRepository accountRepository) {
+    this.registry = registry;
+    this.create = operation("create");
+    this.deposit = operation("deposit");
+    this.withdrawal = operation("withdrawal");
+    this.transfer = operation("transfer");
+    this.batch = operation("batch");
+    this.balance = operation("balance");
+    this.transactions = operation("transactions");
+    Counter other = null;
+    for (FailureReason reason : FailureReason.values()) {
+      final Counter counter = Counter.builder(FAILURES)
+          .description("Operations rejected, by reason")
+          .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+          .register(registry);
+      if (reason.message == null) {
+        other = counter;
+      } else {
+        failuresByMessage.put(reason.message, counter);
+      }
+    }
+    this.otherFailures = other;
+    for (TransactionType type : TransactionType.values()) {
+      transactionsByType.put(type, Counter.builder(TRANSACTIONS)
+          .description("Transactions applied")
+          .tag("type", type.name())
+          .register(registry));
+    }
+    // Recovered accounts already hold transactions.
+    accountRepository.findAll().forEach(account -> {
+      ledgerEntries.add(account.getTransactions().size());
+      saved(account);
+    });
+    Gauge.builder("bankaccount.accounts", accountRepository, AccountRepository::count)
+        .description("Accounts")
+        .register(registry);
+    Gauge.builder("bankaccount.ledger.entries", ledgerEntries, LongAdder::sum)
+        .description("Transactions held across all ledgers")
+        .register(registry);
+    Gauge.builder("bankaccount.ledger.largest", largestLedger, LongAccumulator::get)
+        .description("Transactions held by the largest ledger")
+        .register(registry);
+  }
+
+  <T> T record(Operation operation, Supplier<T> call) {
+    final long start = start();
+    try {
+      return call.get();
+    } catch (BankAccountException exception) {
+      failed(exception.getMessage());
+      throw exception;
+    } finally {
+      stop(operation, start);
+    }
+  }
+
+  /**
+   * Same as {@link #record(Operation, Supplier)} for an operation that completes later.
+   */
+  <T> CompletableFuture<T> recordAsync(Operation operation,
+      Supplier<CompletableFuture<T>> call) {
+    final long start = start();
+    return call.get().whenComplete((result, failure) -> {
+      final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+          ? failure.getCause() : failure;
+      if (cause instanceof BankAccountException) {
+        failed(cause.getMessage());
+      }
+      stop(operation, start);
+    });
+  }
+
+  /**
+   * Start of a call timed by hand, for read paths that should not allocate a lambda: a clock
+   * reading for one call in {@link #LATENCY_SAMPLING}, 0 otherwise. Pair with {@link #stop}.
+   */
+  long start() {
+    return ThreadLocalRandom.current().nextInt(LATENCY_SAMPLING) == 0 ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Counts the call, and records its latency if {@link #start} sampled it.
+   */
+  void stop(Operation operation, long start) {
+    operation.calls.increment();
+    if (start != 0) {
+      operation.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  void record(Operation operation, Runnable call) {
+    record(operation, () -> {
+      call.run();
+      return null;
+    });
+  }
+
+  void applied(TransactionType type) {
+    transactionsByType.get(type).increment();
+    ledgerEntries.increment();
+  }
+
+  void saved(Account account) {
+    largestLedger.accumulate(account.getTransactions().size());
+  }
+
+  /**
+   * Counts a rejection by the message of its {@link BankAccountException}; messages outside
+   * {@link FailureReason} count as {@code other}.
+   */
+  void failed(String message) {
+    failuresByMessage.getOrDefault(message, otherFailures).increment();
+  }
+
+  private Operation operation(String name) {
+    return new Operation(Counter.builder(OPERATIONS)
+        .description("Account operations, every call")
+        .tag("operation", name)
+        .register(registry),
+        Timer.builder(LATENCY)
+            .description("Latency of account operations, one call in " + LATENCY_SAMPLING)
+            .tag("operation", name)
+            .publishPercentileHistogram()
+            .register(registry));
+  }
+
+  /**
+   * Tag values of {@link #FAILURES}, so that messages carrying ids can never add series.
+   */
+  enum FailureReason {
+    ACCOUNT_NOT_FOUND("Account not found"),
+    INSUFFICIENT_BALANCE("Insufficient balance"),
+    BALANCE_OVERFLOW("Balance overflow"),
+    SAME_ACCOUNT("Cannot transfer to the same account"),
+    UNSUPPORTED_TYPE("Unsupported transaction type"),
+    OTHER(null);
+
+    private final String message;
+
+    FailureReason(String message) {
+      this.message = message;
+    }
+  }
+
+  @RequiredArgsConstructor
+  static final class Operation {
+
+    private final Counter calls;
+    private final Timer latency;
+  }
+}
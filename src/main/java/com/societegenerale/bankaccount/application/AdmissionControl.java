@@ -0,0 +1,198 @@
+package com.societegenerale.bankaccount.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps one client or one account from taking the service over: a token bucket per client and
+ * per account, then a cap on the requests in flight with a bounded queue of waiting ones.
+ *
+ * <p>A bucket is a single {@link AtomicLong}: the time by which every token taken from it is
+ * earned back, moved forward by one interval per request with a compare-and-set (the generic cell
+ * rate algorithm). Checking a known key takes no lock and allocates nothing. Limits replaced with
+ * {@link #update} apply from the next request. Past {@code maxKeys} buckets of one kind, the ones
+ * that are full again, and so behave like new ones, are dropped.
+ */
+public class AdmissionControl {
+
+  static final String REJECTED = "bankaccount.admission.rejected";
+
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private final int maxKeys;
+  private final Map<String, AtomicLong> clientBuckets = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> accountBuckets = new ConcurrentHashMap<>();
+  private final Lock sweepLock = new ReentrantLock();
+  private final Permits permits;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final Counter clientRejections;
+  private final Counter accountRejections;
+  private final Counter concurrencyRejections;
+  private volatile AdmissionLimits limits;
+
+  public AdmissionControl(AdmissionLimits limits, int maxKeys, MeterRegistry registry) {
+    checkConcurrency(limits);
+    this.limits = limits;
+    this.maxKeys = maxKeys;
+    this.permits = new Permits(limits.getMaxConcurrent());
+    this.clientRejections = counter(registry, "client");
+    this.accountRejections = counter(registry, "account");
+    this.concurrencyRejections = counter(registry, "concurrency");
+    Gauge.builder("bankaccount.admission.in-flight", this, AdmissionControl::inFlight)
+        .description("Requests admitted and not finished yet")
+        .register(registry);
+    Gauge.builder("bankaccount.admission.queued", queued, AtomicInteger::get)
+        .description("Requests waiting for a slot")
+        .register(registry);
+  }
+
+  /**
+   * 0 if a request from {@code clientId} on {@code accountId} ({@code null} when it targets no
+   * single account) is within both rates, otherwise the nanoseconds after which it would be. A
+   * request rejected on its account has still used a token of its client.
+   */
+  public long checkRate(String clientId, String accountId) {
+    final AdmissionLimits current = limits;
+    final long now = System.nanoTime();
+    long wait = take(clientBuckets, clientId, current.getClientRate(), current.getClientBurst(),
+        now);
+    if (wait > 0) {
+      clientRejections.increment();
+      return wait;
+    }
+    if (accountId != null) {
+      wait = take(accountBuckets, accountId, current.getAccountRate(),
+          current.getAccountBurst(), now);
+      if (wait > 0) {
+        accountRejections.increment();
+      }
+    }
+    return wait;
+  }
+
+  /**
+   * Takes one of the {@code maxConcurrent} slots, waiting up to the queue timeout when
+   * {@code mayWait} and fewer than {@code maxQueued} requests already wait. Returns whether a slot
+   * was taken; it must then be given back with {@link #release()}.
+   */
+  public boolean enter(boolean mayWait) {
+    if (permits.tryAcquire()) {
+      return true;
+    }
+    final AdmissionLimits current = limits;
+    if (mayWait && queued.incrementAndGet() <= current.getMaxQueued()) {
+      try {
+        if (permits.tryAcquire(current.getQueueTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        queued.decrementAndGet();
+      }
+    } else if (mayWait) {
+      queued.decrementAndGet();
+    }
+    concurrencyRejections.increment();
+    return false;
+  }
+
+  public void release() {
+    permits.release();
+  }
+
+  public AdmissionLimits getLimits() {
+    return limits;
+  }
+
+  /**
+   * Replaces the limits. Lowering {@code maxConcurrent} lets the requests in flight finish; new
+   * ones wait until fewer than the new cap remain.
+   */
+  public synchronized void update(AdmissionLimits updated) {
+    checkConcurrency(updated);
+    final int delta = updated.getMaxConcurrent() - limits.getMaxConcurrent();
+    if (delta > 0) {
+      permits.release(delta);
+    } else if (delta < 0) {
+      permits.reduce(-delta);
+    }
+    limits = updated;
+  }
+
+  private long take(Map<String, AtomicLong> buckets, String key, double rate, int burst,
+      long now) {
+    if (rate <= 0) {
+      return 0;
+    }
+    AtomicLong bucket = buckets.get(key);
+    if (bucket == null) {
+      if (buckets.size() >= maxKeys) {
+        sweep(buckets, now);
+      }
+      bucket = buckets.computeIfAbsent(key, newKey -> new AtomicLong(Long.MIN_VALUE));
+    }
+    final long interval = Math.max(1, (long) (NANOS_PER_SECOND / rate));
+    final long tolerance = interval * Math.max(1, burst);
+    while (true) {
+      final long earnedBack = bucket.get();
+      final long next = Math.max(earnedBack, now) + interval;
+      final long wait = next - now - tolerance;
+      if (wait > 0) {
+        return wait;
+      }
+      if (bucket.compareAndSet(earnedBack, next)) {
+        return 0;
+      }
+    }
+  }
+
+  private void sweep(Map<String, AtomicLong> buckets, long now) {
+    if (sweepLock.tryLock()) {
+      try {
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+      } finally {
+        sweepLock.unlock();
+      }
+    }
+  }
+
+  private double inFlight() {
+    return limits.getMaxConcurrent() - permits.availablePermits();
+  }
+
+  private static void checkConcurrency(AdmissionLimits limits) {
+    if (limits.getMaxConcurrent() <= 0 || limits.getMaxQueued() < 0) {
+      throw new IllegalArgumentException(
+          "maxConcurrent must be positive and maxQueued not negative");
+    }
+  }
+
+  private static Counter counter(MeterRegistry registry, String reason) {
+    return Counter.builder(REJECTED)
+        .description("Requests turned away by admission control, by reason")
+        .tag("reason", reason)
+        .register(registry);
+  }
+
+  // Exposes reducePermits, so the cap can go down while requests are in flight.
+  private static final class Permits extends Semaphore {
+
+    Permits(int permits) {
+      super(permits);
+    }
+
+    void reduce(int reduction) {
+      reducePermits(reduction);
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.societegenerale.bankaccount.application;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Limits applied by {@link AdmissionControl}. A rate of 0 or less disables its limiter; a burst is
+ * the number of requests accepted at once after a quiet period.
+ */
+@Getter
+@RequiredArgsConstructor
+public class AdmissionLimits {
+
+  private final double accountRate;
+  private final int accountBurst;
+  private final double clientRate;
+  private final int clientBurst;
+  private final int maxConcurrent;
+  private final int maxQueued;
+  private final long queueTimeoutMillis;
+}
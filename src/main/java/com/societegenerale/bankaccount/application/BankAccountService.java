@@ -1,51 +1,445 @@
 package com.societegenerale.bankaccount.application;
 
+import com.societegenerale.bankaccount.application.BatchResult.Status;
 import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.AccountIdGenerator;
+import com.societegenerale.bankaccount.domain.AccountRepository;
+import com.societegenerale.bankaccount.domain.ArchivedTransactions;
 import com.societegenerale.bankaccount.domain.BankAccountException;
-import java.math.BigDecimal;
-import java.util.HashMap;
+import com.societegenerale.bankaccount.domain.CompactAccountIds;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionArchive;
+import com.societegenerale.bankaccount.domain.TransactionLog;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import com.societegenerale.bankaccount.domain.UnconfirmedWriteException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import lombok.RequiredArgsConstructor;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
-@RequiredArgsConstructor
 public class BankAccountService {
 
-  private final Map<String, Account> accounts;
+  private static final int LOCK_STRIPES = 1024;
 
-  public BankAccountService() {
-    this.accounts = new HashMap<>();
+  private final AccountRepository accountRepository;
+  private final AccountExecutor executor;
+  private final AccountMetrics metrics;
+  private final TransactionListener transactionListener;
+  private final AccountIdGenerator accountIds;
+
+  public BankAccountService(AccountRepository accountRepository) {
+    this(accountRepository, new CompositeMeterRegistry());
+  }
+
+  public BankAccountService(AccountRepository accountRepository, MeterRegistry meterRegistry) {
+    this(accountRepository, meterRegistry, AccountExecutor.locking(LOCK_STRIPES));
+  }
+
+  public BankAccountService(AccountRepository accountRepository, MeterRegistry meterRegistry,
+      AccountExecutor executor) {
+    this(accountRepository, meterRegistry, executor, TransactionListener.NONE);
+  }
+
+  public BankAccountService(AccountRepository accountRepository, MeterRegistry meterRegistry,
+      AccountExecutor executor, TransactionListener transactionListener) {
+    this(accountRepository, meterRegistry, executor, transactionListener, CompactAccountIds
+        .above(accountRepository.findAll(), CompactAccountIds.DEFAULT_BLOCK_SIZE));
+  }
+
+  @Autowired
+  public BankAccountService(AccountRepository accountRepository, MeterRegistry meterRegistry,
+      AccountExecutor executor, TransactionListener transactionListener,
+      AccountIdGenerator accountIds) {
+    this.accountRepository = accountRepository;
+    this.executor = executor;
+    this.metrics = new AccountMetrics(meterRegistry, accountRepository);
+    this.transactionListener = transactionListener;
+    this.accountIds = accountIds;
   }
 
   public Account createAccount() {
-    final Account account = new Account();
-    accounts.put(account.getAccountId(), account);
-    return account;
+    return metrics.record(metrics.create, () -> {
+      final Account account = new Account(accountIds.nextId());
+      accountRepository.add(account);
+      return account;
+    });
   }
 
-  public void deposit(String accountId, BigDecimal amount) {
-    final Account account = getAccount(accountId);
-    final Account updatedAccount = account.deposit(amount);
-    accounts.put(accountId, updatedAccount);
+  public void deposit(String accountId, Money amount) {
+    metrics.record(metrics.deposit, () -> executor.execute(accountId,
+        update(accountId, TransactionType.DEPOSIT, account -> account.deposit(amount))));
   }
 
-  public void withdrawal(String accountId, BigDecimal amount) {
-    final Account account = getAccount(accountId);
-    final Account updatedAccount = account.withdrawal(amount);
-    accounts.put(accountId, updatedAccount);
+  public void withdrawal(String accountId, Money amount) {
+    metrics.record(metrics.withdrawal, () -> executor.execute(accountId,
+        update(accountId, TransactionType.WITHDRAWAL, account -> account.withdrawal(amount))));
+  }
+
+  /**
+   * Same as {@link #deposit} without waiting for the account's executor to apply it.
+   */
+  public CompletableFuture<Void> depositAsync(String accountId, Money amount) {
+    return metrics.recordAsync(metrics.deposit, () -> executor.submit(accountId,
+        update(accountId, TransactionType.DEPOSIT, account -> account.deposit(amount))));
+  }
+
+  /**
+   * Same as {@link #withdrawal} without waiting for the account's executor to apply it.
+   */
+  public CompletableFuture<Void> withdrawalAsync(String accountId, Money amount) {
+    return metrics.recordAsync(metrics.withdrawal, () -> executor.submit(accountId,
+        update(accountId, TransactionType.WITHDRAWAL, account -> account.withdrawal(amount))));
+  }
+
+  /**
+   * Moves {@code amount} from one account to another. Both accounts are held together and saved
+   * in one write, so either both ledgers record the transfer or neither does.
+   */
+  public void transfer(String fromAccountId, String toAccountId, Money amount) {
+    metrics.record(metrics.transfer, () -> {
+      if (fromAccountId.equals(toAccountId)) {
+        throw new BankAccountException("Cannot transfer to the same account");
+      }
+      executor.executeAll(List.of(fromAccountId, toAccountId), () -> {
+        final Account savedFrom = getAccount(fromAccountId);
+        final Account savedTo = getAccount(toAccountId);
+        final Account from = savedFrom.transferOut(amount);
+        final Account to;
+        try {
+          to = savedTo.transferIn(amount);
+        } catch (BankAccountException exception) {
+          from.discard(savedFrom);
+          throw exception;
+        }
+        saveAll(List.of(from, to));
+        metrics.applied(TransactionType.TRANSFER);
+        metrics.applied(TransactionType.TRANSFER);
+        saved(from, 1);
+        saved(to, 1);
+        return null;
+      });
+    });
+  }
+
+  /**
+   * Applies deposits and withdrawals across many accounts. Operations are grouped per account so
+   * that each account is updated and saved once, and results are returned in request order. When
+   * {@code atomic} is set, every account involved is held for the whole batch and nothing is
+   * saved unless every operation succeeds.
+   */
+  public List<BatchResult> applyBatch(List<BatchOperation> operations, boolean atomic) {
+    final List<BatchResult> results =
+        metrics.record(metrics.batch, () -> applyGrouped(operations, atomic));
+    for (int index = 0; index < results.size(); index++) {
+      if (results.get(index).getStatus() == Status.APPLIED) {
+        metrics.applied(operations.get(index).getTransactionType());
+      } else if (results.get(index).getStatus() == Status.REJECTED
+          || results.get(index).getStatus() == Status.FAILED) {
+        metrics.failed(results.get(index).getError());
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Reads the balance published with the account's last saved version: no lock is taken and, the
+   * call being timed by hand rather than through a lambda, nothing is allocated.
+   */
+  public Money getBalance(String accountId) {
+    final long start = metrics.start();
+    try {
+      return getAccount(accountId).getBalance();
+    } catch (BankAccountException exception) {
+      metrics.failed(exception.getMessage());
+      throw exception;
+    } finally {
+      metrics.stop(metrics.balance, start);
+    }
+  }
+
+  /**
+   * Balances of several accounts, keyed in the order given; unknown accounts are left out. Each
+   * balance is consistent on its own, not across accounts.
+   */
+  public Map<String, Money> getBalances(Collection<String> accountIds) {
+    return metrics.record(metrics.balance, () -> {
+      final Map<String, Money> balances = new LinkedHashMap<>();
+      for (String accountId : accountIds) {
+        accountRepository.findById(accountId)
+            .ifPresent(account -> balances.put(accountId, account.getBalance()));
+      }
+      return balances;
+    });
   }
 
-  public BigDecimal getBalance(String accountId) {
+  public Money getBalanceDrift(String accountId) {
     final Account account = getAccount(accountId);
-    return account.getBalance();
+    return account.balanceDrift();
+  }
+
+  /**
+   * Returns up to {@code limit} transactions matching the filter, scanning the ledger from
+   * position {@code cursor}.
+   */
+  public TransactionPage getTransactionPage(String accountId, TransactionFilter filter, int cursor,
+      int limit) {
+    return metrics.record(metrics.transactions,
+        () -> readTransactionPage(accountId, filter, cursor, limit));
+  }
+
+  /**
+   * Lazily filtered view of the account's history as of now; later writes are not included.
+   */
+  public Stream<Transaction> streamTransactions(String accountId, TransactionFilter filter) {
+    return metrics.record(metrics.transactions, () -> {
+      final TransactionLog transactions = getAccount(accountId).getTransactions();
+      final int start = transactions.scanStart(filter.getFrom());
+      final int end = Math.max(start, transactions.scanEnd(filter.getTo()));
+      return transactions.subList(start, end).stream().filter(filter);
+    });
+  }
+
+  public List<Transaction> getTransactionsBetween(String accountId, LocalDateTime from,
+      LocalDateTime to) {
+    return metrics.record(metrics.transactions,
+        () -> getAccount(accountId).getTransactionsBetween(from, to));
+  }
+
+  public Money getBalanceAsOf(String accountId, LocalDateTime date) {
+    return metrics.record(metrics.balance, () -> getAccount(accountId).getBalanceAsOf(date));
+  }
+
+  /**
+   * Moves the transactions dated before {@code before} to {@code archive}, for every account with
+   * at least {@code minimum} of them still on the heap. Each account is swapped for its compacted
+   * version under its executor; balances and positions are unchanged. Returns the number of
+   * transactions moved.
+   */
+  public long compactLedgers(TransactionArchive archive, LocalDateTime before, int minimum) {
+    final List<Account> candidates = accountRepository.findAll().stream()
+        .filter(account -> {
+          final TransactionLog transactions = account.getTransactions();
+          return transactions.archiveEnd(before) - transactions.archivedSize()
+              >= Math.max(1, minimum);
+        })
+        .toList();
+    if (candidates.isEmpty()) {
+      return 0;
+    }
+    long moved = 0;
+    for (Map.Entry<String, ArchivedTransactions> entry
+        : archive.archive(candidates, before).entrySet()) {
+      moved += executor.execute(entry.getKey(), () -> {
+        final Account account = getAccount(entry.getKey());
+        accountRepository.save(account.compact(entry.getValue()));
+        return entry.getValue().size() - account.getTransactions().archivedSize();
+      });
+    }
+    return moved;
+  }
+
+  /**
+   * The current version of every account. Versions are immutable, so the list stays as it was
+   * while later writes save new ones.
+   */
+  public List<Account> getAccounts() {
+    return List.copyOf(accountRepository.findAll());
   }
 
   public Account getAccount(String accountId) {
-    final Account account = accounts.get(accountId);
-    if (account == null) {
-      throw new BankAccountException("Account not found");
+    return accountRepository.findById(accountId)
+        .orElseThrow(() -> new BankAccountException("Account not found"));
+  }
+
+  private List<BatchResult> applyGrouped(List<BatchOperation> operations, boolean atomic) {
+    final Map<String, List<Integer>> operationsByAccount = new LinkedHashMap<>();
+    for (int index = 0; index < operations.size(); index++) {
+      operationsByAccount
+          .computeIfAbsent(operations.get(index).getAccountId(), accountId -> new ArrayList<>())
+          .add(index);
+    }
+    final BatchResult[] results = new BatchResult[operations.size()];
+    if (atomic) {
+      applyAtomically(operations, operationsByAccount, results);
+    } else {
+      final List<CompletableFuture<Void>> pending = new ArrayList<>(operationsByAccount.size());
+      operationsByAccount.forEach((accountId, indexes) -> pending.add(executor.submit(accountId,
+          () -> applyAndSave(accountId, operations, indexes, results))));
+      pending.forEach(AccountExecutor::await);
+    }
+    return Arrays.asList(results);
+  }
+
+  private TransactionPage readTransactionPage(String accountId, TransactionFilter filter,
+      int cursor, int limit) {
+    final TransactionLog transactions = getAccount(accountId).getTransactions();
+    final int end = transactions.scanEnd(filter.getTo());
+    final List<Transaction> page = new ArrayList<>(Math.min(limit, transactions.size()));
+    int position = Math.max(cursor, transactions.scanStart(filter.getFrom()));
+    while (position < end && page.size() < limit) {
+      final Transaction transaction = transactions.get(position++);
+      if (filter.test(transaction)) {
+        page.add(transaction);
+      }
+    }
+    return new TransactionPage(page, position < end ? position : null);
+  }
+
+  private Supplier<Void> update(String accountId, TransactionType type,
+      UnaryOperator<Account> operation) {
+    return () -> {
+      final Account account = operation.apply(getAccount(accountId));
+      save(account);
+      metrics.applied(type);
+      saved(account, 1);
+      return null;
+    };
+  }
+
+  /**
+   * Saves versions derived from the saved ones under their accounts' locks. If the save fails
+   * without publishing them, they are discarded so the saved versions keep appending in place.
+   */
+  private void saveAll(List<Account> updatedAccounts) {
+    saving(updatedAccounts, () -> accountRepository.saveAll(updatedAccounts));
+  }
+
+  private void save(Account account) {
+    saving(List.of(account), () -> accountRepository.save(account));
+  }
+
+  private void saving(List<Account> updatedAccounts, Runnable write) {
+    try {
+      write.run();
+    } catch (UnconfirmedWriteException exception) {
+      throw exception;
+    } catch (RuntimeException exception) {
+      discard(updatedAccounts);
+      throw exception;
+    }
+  }
+
+  private void discard(List<Account> unsaved) {
+    unsaved.forEach(account -> accountRepository.findById(account.getAccountId())
+        .ifPresent(account::discard));
+  }
+
+  /**
+   * Reports the last {@code appended} transactions of a saved account to the metrics and the
+   * listener.
+   */
+  private void saved(Account account, int appended) {
+    metrics.saved(account);
+    final List<Transaction> transactions = account.getTransactions();
+    for (int index = transactions.size() - appended; index < transactions.size(); index++) {
+      transactionListener.onTransaction(account.getAccountId(), transactions.get(index));
+    }
+  }
+
+  private static int applied(List<Integer> indexes, BatchResult[] results) {
+    int applied = 0;
+    for (int index : indexes) {
+      if (results[index].getStatus() == Status.APPLIED) {
+        applied++;
+      }
+    }
+    return applied;
+  }
+
+  /**
+   * Applies and saves one account's share of a non-atomic batch. A failure only marks that
+   * account's operations {@link Status#FAILED}: the other accounts may already be saved, and
+   * failing the whole batch would have a retry apply them twice.
+   */
+  private Void applyAndSave(String accountId, List<BatchOperation> operations,
+      List<Integer> indexes, BatchResult[] results) {
+    try {
+      applyToAccount(accountId, operations, indexes, results).ifPresent(account -> {
+        try {
+          save(account);
+        } catch (UnconfirmedWriteException exception) {
+          // Already published: the operations are applied, as their results say.
+        }
+        saved(account, applied(indexes, results));
+      });
+    } catch (RuntimeException exception) {
+      for (int index : indexes) {
+        if (results[index] == null || results[index].getStatus() == Status.APPLIED) {
+          results[index] = BatchResult.failed(accountId);
+        }
+      }
+    }
+    return null;
+  }
+
+  private void applyAtomically(List<BatchOperation> operations,
+      Map<String, List<Integer>> operationsByAccount, BatchResult[] results) {
+    executor.executeAll(operationsByAccount.keySet(), () -> {
+      final List<Account> updatedAccounts = new ArrayList<>();
+      operationsByAccount.forEach((accountId, indexes) ->
+          applyToAccount(accountId, operations, indexes, results).ifPresent(updatedAccounts::add));
+      if (Arrays.stream(results).allMatch(result -> result.getStatus() == Status.APPLIED)) {
+        saveAll(updatedAccounts);
+        updatedAccounts.forEach(account ->
+            saved(account, operationsByAccount.get(account.getAccountId()).size()));
+        return null;
+      }
+      discard(updatedAccounts);
+      for (int index = 0; index < results.length; index++) {
+        if (results[index].getStatus() == Status.APPLIED) {
+          results[index] = BatchResult.aborted(results[index].getAccountId());
+        }
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Applies the given operations to one account in order, recording a result for each. Returns
+   * the updated account if at least one operation succeeded.
+   */
+  private Optional<Account> applyToAccount(String accountId, List<BatchOperation> operations,
+      List<Integer> indexes, BatchResult[] results) {
+    final Optional<Account> found = accountRepository.findById(accountId);
+    if (found.isEmpty()) {
+      indexes.forEach(index -> results[index] = BatchResult.rejected(accountId,
+          "Account not found"));
+      return Optional.empty();
+    }
+    final Account original = found.get();
+    Account account = original;
+    for (int index : indexes) {
+      try {
+        account = apply(account, operations.get(index));
+        results[index] = BatchResult.applied(accountId);
+      } catch (BankAccountException exception) {
+        results[index] = BatchResult.rejected(accountId, exception.getMessage());
+      }
+    }
+    return account == original ? Optional.empty() : Optional.of(account);
+  }
+
+  private static Account apply(Account account, BatchOperation operation) {
+    if (operation.getTransactionType() == TransactionType.DEPOSIT) {
+      return account.deposit(operation.getAmount());
+    }
+    if (operation.getTransactionType() == TransactionType.WITHDRAWAL) {
+      return account.withdrawal(operation.getAmount());
     }
-    return account;
+    throw new BankAccountException("Unsupported transaction type");
   }
 }
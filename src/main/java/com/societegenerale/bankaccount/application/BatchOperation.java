@@ -0,0 +1,15 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class BatchOperation {
+
+  private final String accountId;
+  private final TransactionType transactionType;
+  private final Money amount;
+}
@@ -0,0 +1,37 @@
+package com.societegenerale.bankaccount.application;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public class BatchResult {
+
+  public enum Status {
+    APPLIED,
+    REJECTED,
+    ABORTED,
+    // Not applied because its account could not be saved; unlike REJECTED, retrying may succeed.
+    FAILED
+  }
+
+  private final String accountId;
+  private final Status status;
+  private final String error;
+
+  static BatchResult applied(String accountId) {
+    return new BatchResult(accountId, Status.APPLIED, null);
+  }
+
+  static BatchResult rejected(String accountId, String error) {
+    return new BatchResult(accountId, Status.REJECTED, error);
+  }
+
+  static BatchResult aborted(String accountId) {
+    return new BatchResult(accountId, Status.ABORTED, null);
+  }
+
+  static BatchResult failed(String accountId) {
+    return new BatchResult(accountId, Status.FAILED, "Could not be saved");
+  }
+}
@@ -0,0 +1,10 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.BankAccountException;
+
+public class EventHistoryExpiredException extends BankAccountException {
+
+  public EventHistoryExpiredException(long sequence) {
+    super("Events after sequence " + sequence + " are no longer available");
+  }
+}
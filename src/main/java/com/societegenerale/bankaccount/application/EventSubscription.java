@@ -0,0 +1,164 @@
+package com.societegenerale.bankaccount.application;
+
+import io.micrometer.core.instrument.Counter;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Events of one account, or of all accounts, buffered for one subscriber. The bus adds events
+ * without ever waiting: when the buffer is full, the subscription's {@link OverflowPolicy}
+ * decides what is lost.
+ *
+ * <p>A subscription resuming after a sequence number first catches up: each time its buffer is
+ * drained, polling refills it from the bus's history, and only once it has reached the latest
+ * event does the bus start adding live events. A backlog larger than the buffer is therefore
+ * delivered whole, whatever the overflow policy.
+ */
+public final class EventSubscription implements AutoCloseable {
+
+  private final String accountId;
+  private final OverflowPolicy overflowPolicy;
+  private final BlockingQueue<TransactionEvent> buffer;
+  private final Consumer<EventSubscription> onAvailable;
+  private final Consumer<EventSubscription> onClose;
+  private final Consumer<EventSubscription> onDrained;
+  private final Counter droppedCounter;
+  // Last sequence copied from the history while catching up; guarded by the bus's lock.
+  private long replayed;
+  private volatile boolean catchingUp;
+  private volatile long dropped;
+  private volatile boolean closed;
+
+  EventSubscription(String accountId, int capacity, OverflowPolicy overflowPolicy,
+      Consumer<EventSubscription> onAvailable, Consumer<EventSubscription> onClose,
+      Consumer<EventSubscription> onDrained, Counter droppedCounter) {
+    this.accountId = accountId;
+    this.overflowPolicy = overflowPolicy;
+    this.buffer = new ArrayBlockingQueue<>(capacity);
+    this.onAvailable = onAvailable;
+    this.onClose = onClose;
+    this.onDrained = onDrained;
+    this.droppedCounter = droppedCounter;
+  }
+
+  /**
+   * The next buffered event, or {@code null} if there is none.
+   */
+  public TransactionEvent poll() {
+    final TransactionEvent event = buffer.poll();
+    if (event != null || !catchingUp) {
+      return event;
+    }
+    onDrained.accept(this);
+    return buffer.poll();
+  }
+
+  /**
+   * The next buffered event, waiting up to {@code timeout} for one.
+   */
+  public TransactionEvent poll(Duration timeout) throws InterruptedException {
+    if (catchingUp && buffer.isEmpty()) {
+      onDrained.accept(this);
+    }
+    return buffer.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Whether the subscription is closed and every event it buffered was consumed.
+   */
+  public boolean isExhausted() {
+    return closed && buffer.isEmpty();
+  }
+
+  /**
+   * Events lost to the overflow policy so far.
+   */
+  public long getDropped() {
+    return dropped;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Stops receiving events. Events already buffered can still be polled.
+   */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      onClose.accept(this);
+      onAvailable.accept(this);
+    }
+  }
+
+  String getAccountId() {
+    return accountId;
+  }
+
+  boolean matches(TransactionEvent event) {
+    return accountId == null || accountId.equals(event.getAccountId());
+  }
+
+  boolean isCatchingUp() {
+    return catchingUp;
+  }
+
+  long getReplayed() {
+    return replayed;
+  }
+
+  void catchUpFrom(long sequence) {
+    replayed = sequence;
+    catchingUp = true;
+  }
+
+  /**
+   * Buffers an event of the history if there is room, and records it as replayed.
+   */
+  boolean replay(TransactionEvent event) {
+    if (matches(event) && !buffer.offer(event)) {
+      return false;
+    }
+    replayed = event.getSequence();
+    return true;
+  }
+
+  void caughtUp() {
+    catchingUp = false;
+  }
+
+  /**
+   * Called by the bus's dispatcher only.
+   */
+  void offer(TransactionEvent event) {
+    if (closed) {
+      return;
+    }
+    if (!buffer.offer(event)) {
+      if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+        close();
+        return;
+      }
+      if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+        dropped();
+        return;
+      }
+      do {
+        if (buffer.poll() != null) {
+          dropped();
+        }
+      } while (!buffer.offer(event));
+    }
+    onAvailable.accept(this);
+  }
+
+  private void dropped() {
+    dropped++;
+    droppedCounter.increment();
+  }
+}
@@ -0,0 +1,146 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.BankAccountException;
+import com.societegenerale.bankaccount.domain.UnconfirmedWriteException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Remembers the outcome of requests sent with an idempotency key, so that a retried request gets
+ * the original outcome instead of being applied again.
+ *
+ * <p>Keys are forgotten after {@code timeToLive} and, past {@code maximumSize} keys, oldest first.
+ * Retries come shortly after the original request, so a first-in first-out order keeps exactly
+ * the keys likely to be retried, for the cost of one map insert and one queue append per new key.
+ * A retry arriving while the original request is still running waits for the same outcome.
+ * Business failures ({@link BankAccountException}) are remembered like successes, and so are
+ * writes that were applied but not confirmed durable ({@link UnconfirmedWriteException}); any
+ * other failure forgets the key so that a retry runs again.
+ */
+public class IdempotencyCache {
+
+  static final String REQUESTS = "bankaccount.idempotency.requests";
+
+  private final long maximumSize;
+  private final long timeToLiveNanos;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+  private final AtomicLong queued = new AtomicLong();
+  private final Lock evictionLock = new ReentrantLock();
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter conflicts;
+
+  public IdempotencyCache(long maximumSize, Duration timeToLive, MeterRegistry registry) {
+    this.maximumSize = maximumSize;
+    this.timeToLiveNanos = timeToLive.toNanos();
+    this.hits = counter(registry, "hit");
+    this.misses = counter(registry, "miss");
+    this.conflicts = counter(registry, "conflict");
+    Gauge.builder("bankaccount.idempotency.keys", entries, Map::size)
+        .description("Idempotency keys remembered")
+        .register(registry);
+  }
+
+  /**
+   * Runs {@code operation} unless a request was already made with {@code key}, in which case its
+   * outcome is returned. {@code request} describes the request; reusing a key for a different
+   * request fails with {@link IdempotencyKeyReusedException}.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<T> execute(String key, String request,
+      Supplier<CompletableFuture<T>> operation) {
+    final long now = System.nanoTime();
+    final Entry created = new Entry(key, request, now, new CompletableFuture<>());
+    Entry existing;
+    while ((existing = entries.putIfAbsent(key, created)) != null && existing.expired(now)) {
+      entries.remove(key, existing);
+    }
+    if (existing != null) {
+      if (!existing.request.equals(request)) {
+        conflicts.increment();
+        return CompletableFuture.failedFuture(new IdempotencyKeyReusedException(key));
+      }
+      hits.increment();
+      return (CompletableFuture<T>) existing.outcome;
+    }
+    misses.increment();
+    insertionOrder.add(created);
+    queued.incrementAndGet();
+    evict(now);
+    final CompletableFuture<T> outcome = (CompletableFuture<T>) created.outcome;
+    try {
+      operation.get().whenComplete((result, failure) -> {
+        if (failure == null) {
+          outcome.complete(result);
+        } else {
+          forget(created, failure);
+          outcome.completeExceptionally(failure);
+        }
+      });
+    } catch (RuntimeException failure) {
+      forget(created, failure);
+      outcome.completeExceptionally(failure);
+    }
+    return outcome;
+  }
+
+  // One thread evicts at a time; the others leave it to the next insert.
+  private void evict(long now) {
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      Entry oldest;
+      while ((oldest = insertionOrder.peek()) != null
+          && (queued.get() > maximumSize || oldest.expired(now))) {
+        insertionOrder.poll();
+        queued.decrementAndGet();
+        entries.remove(oldest.key, oldest);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void forget(Entry entry, Throwable failure) {
+    final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+        ? failure.getCause() : failure;
+    if (!(cause instanceof BankAccountException || cause instanceof UnconfirmedWriteException)) {
+      entries.remove(entry.key, entry);
+    }
+  }
+
+  private static Counter counter(MeterRegistry registry, String result) {
+    return Counter.builder(REQUESTS)
+        .description("Requests sent with an idempotency key, by cache outcome")
+        .tag("result", result)
+        .register(registry);
+  }
+
+  @RequiredArgsConstructor
+  private final class Entry {
+
+    private final String key;
+    private final String request;
+    private final long createdAt;
+    private final CompletableFuture<?> outcome;
+
+    boolean expired(long now) {
+      return now - createdAt >= timeToLiveNanos;
+    }
+  }
+}
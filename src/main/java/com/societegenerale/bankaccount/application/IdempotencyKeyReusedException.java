@@ -0,0 +1,10 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.BankAccountException;
+
+public class IdempotencyKeyReusedException extends BankAccountException {
+
+  public IdempotencyKeyReusedException(String key) {
+    super("Idempotency key " + key + " was already used for a different request");
+  }
+}
@@ -0,0 +1,86 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.TransactionArchive;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps ledgers bounded on the heap: every {@code intervalMillis} a background thread moves the
+ * transactions older than {@code horizon} to the {@link TransactionArchive}. An account is only
+ * compacted once it has {@code minimumTransactions} such transactions, so archive reads stay
+ * block-sized and each run writes few, large segments.
+ */
+public class LedgerCompactor implements AutoCloseable {
+
+  private final BankAccountService bankAccountService;
+  private final TransactionArchive archive;
+  private final Duration horizon;
+  private final int minimumTransactions;
+  private final Timer runs;
+  private final Counter archived;
+  private final Counter failures;
+  private final ScheduledExecutorService scheduler;
+
+  public LedgerCompactor(BankAccountService bankAccountService, TransactionArchive archive,
+      Duration horizon, int minimumTransactions, long intervalMillis, MeterRegistry registry) {
+    this.bankAccountService = bankAccountService;
+    this.archive = archive;
+    this.horizon = horizon;
+    this.minimumTransactions = minimumTransactions;
+    this.runs = Timer.builder("bankaccount.compaction")
+        .description("Ledger compaction runs")
+        .register(registry);
+    this.archived = Counter.builder("bankaccount.compaction.archived")
+        .description("Transactions moved to the archive")
+        .register(registry);
+    this.failures = Counter.builder("bankaccount.compaction.failures")
+        .description("Ledger compaction runs that failed")
+        .register(registry);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "ledger-compactor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (intervalMillis > 0) {
+      scheduler.scheduleWithFixedDelay(this::compactQuietly, intervalMillis, intervalMillis,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Archives what is older than the horizon now and returns the number of transactions moved.
+   */
+  public long compact() {
+    return compact(LocalDateTime.now().minus(horizon));
+  }
+
+  /**
+   * Archives the transactions dated before {@code before}.
+   */
+  public long compact(LocalDateTime before) {
+    final long moved = runs.record(
+        () -> bankAccountService.compactLedgers(archive, before, minimumTransactions));
+    archived.increment(moved);
+    return moved;
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+  // A failed run is counted and retried at the next interval instead of cancelling the schedule.
+  private void compactQuietly() {
+    try {
+      compact();
+    } catch (RuntimeException exception) {
+      failures.increment();
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.societegenerale.bankaccount.application;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Runs commands on the calling thread while holding the lock stripes of their accounts.
+ */
+class LockingAccountExecutor implements AccountExecutor {
+
+  private final AccountLocks locks;
+
+  LockingAccountExecutor(int stripeCount) {
+    this.locks = new AccountLocks(stripeCount);
+  }
+
+  @Override
+  public <T> CompletableFuture<T> submit(String accountId, Supplier<T> command) {
+    try {
+      return CompletableFuture.completedFuture(execute(accountId, command));
+    } catch (RuntimeException exception) {
+      return CompletableFuture.failedFuture(exception);
+    }
+  }
+
+  @Override
+  public <T> T execute(String accountId, Supplier<T> command) {
+    final Lock lock = locks.lockFor(accountId);
+    lock.lock();
+    try {
+      return command.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public <T> T executeAll(Collection<String> accountIds, Supplier<T> command) {
+    final List<Lock> heldLocks = locks.locksFor(accountIds);
+    heldLocks.forEach(Lock::lock);
+    try {
+      return command.get();
+    } finally {
+      for (int i = heldLocks.size() - 1; i >= 0; i--) {
+        heldLocks.get(i).unlock();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -0,0 +1,73 @@
+package com.societegenerale.bankaccount.application;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ *
+ * <p>Each slot carries a sequence number telling whose turn it is: a producer claims the next
+ * position with a CAS on the tail and publishes its element by advancing the slot's sequence; the
+ * consumer takes the element once the sequence says it was published and hands the slot back to
+ * producers one lap later. Only {@link #poll()} and {@link #isEmpty()} are for the consumer.
+ */
+final class MpscRing<E> {
+
+  private final Object[] elements;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private long head;
+
+  MpscRing(int capacity) {
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+    }
+    this.elements = new Object[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * Adds {@code element} unless the ring is full.
+   */
+  boolean offer(E element) {
+    long position = tail.get();
+    while (true) {
+      final int index = (int) position & mask;
+      final long lag = sequences.get(index) - position;
+      if (lag == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements[index] = element;
+          sequences.set(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (lag < 0) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  E poll() {
+    final int index = (int) head & mask;
+    if (sequences.get(index) != head + 1) {
+      return null;
+    }
+    final E element = (E) elements[index];
+    elements[index] = null;
+    sequences.set(index, head + elements.length);
+    head++;
+    return element;
+  }
+
+  boolean isEmpty() {
+    return sequences.get((int) head & mask) != head + 1;
+  }
+}
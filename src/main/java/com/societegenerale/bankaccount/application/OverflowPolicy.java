@@ -0,0 +1,23 @@
+package com.societegenerale.bankaccount.application;
+
+/**
+ * What happens to an event that finds its subscriber's buffer full.
+ */
+public enum OverflowPolicy {
+
+  /**
+   * Makes room by discarding the oldest buffered event.
+   */
+  DROP_OLDEST,
+
+  /**
+   * Discards the new event.
+   */
+  DROP_NEWEST,
+
+  /**
+   * Ends the subscription once its buffered events are consumed; the subscriber may resume from
+   * the last sequence it received.
+   */
+  DISCONNECT
+}
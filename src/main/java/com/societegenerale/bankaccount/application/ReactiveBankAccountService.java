@@ -0,0 +1,217 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.BankAccountException;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link BankAccountService} for callers that must never block, such as event-loop threads.
+ *
+ * <p>Writes may wait for an account lock or for the write-ahead log to reach the disk, so they are
+ * subscribed on {@code blockingScheduler}; with the sharded engine that thread only hands the
+ * command to a shard. Reads of an account whose oldest transactions were moved to the archive by
+ * ledger compaction may read and inflate archive blocks, so they go to {@code blockingScheduler}
+ * too. Reads of other accounts, and balances, only touch memory and run on the subscribing thread.
+ * Whether an account is archived is checked on subscription: a read racing with the account's
+ * first compaction may still touch the archive from the subscribing thread.
+ */
+@Service
+public class ReactiveBankAccountService {
+
+  private static final int EVENT_PREFETCH = 32;
+
+  private final BankAccountService bankAccountService;
+  private final TransactionEventBus eventBus;
+  private final Scheduler blockingScheduler;
+
+  @Autowired
+  public ReactiveBankAccountService(BankAccountService bankAccountService,
+      TransactionEventBus eventBus) {
+    this(bankAccountService, eventBus, Schedulers.boundedElastic());
+  }
+
+  public ReactiveBankAccountService(BankAccountService bankAccountService,
+      TransactionEventBus eventBus, Scheduler blockingScheduler) {
+    this.bankAccountService = bankAccountService;
+    this.eventBus = eventBus;
+    this.blockingScheduler = blockingScheduler;
+  }
+
+  public Mono<Account> createAccount() {
+    return Mono.fromSupplier(bankAccountService::createAccount).subscribeOn(blockingScheduler);
+  }
+
+  public Mono<Void> deposit(String accountId, Money amount) {
+    return Mono.fromFuture(() -> bankAccountService.depositAsync(accountId, amount))
+        .subscribeOn(blockingScheduler);
+  }
+
+  public Mono<Void> withdrawal(String accountId, Money amount) {
+    return Mono.fromFuture(() -> bankAccountService.withdrawalAsync(accountId, amount))
+        .subscribeOn(blockingScheduler);
+  }
+
+  public Mono<Void> transfer(String fromAccountId, String toAccountId, Money amount) {
+    return Mono.<Void>fromRunnable(
+            () -> bankAccountService.transfer(fromAccountId, toAccountId, amount))
+        .subscribeOn(blockingScheduler);
+  }
+
+  public Mono<List<BatchResult>> applyBatch(List<BatchOperation> operations, boolean atomic) {
+    return Mono.fromSupplier(() -> bankAccountService.applyBatch(operations, atomic))
+        .subscribeOn(blockingScheduler);
+  }
+
+  public Mono<Money> getBalance(String accountId) {
+    return Mono.fromSupplier(() -> bankAccountService.getBalance(accountId));
+  }
+
+  public Mono<Map<String, Money>> getBalances(Collection<String> accountIds) {
+    return Mono.fromSupplier(() -> bankAccountService.getBalances(accountIds));
+  }
+
+  public Mono<Money> getBalanceAsOf(String accountId, LocalDateTime date) {
+    return read(accountId, () -> bankAccountService.getBalanceAsOf(accountId, date));
+  }
+
+  /**
+   * The account, emitted on {@code blockingScheduler} when it is archived, so that reading its
+   * transactions downstream stays off the subscribing thread.
+   */
+  public Mono<Account> getAccount(String accountId) {
+    return read(accountId, () -> bankAccountService.getAccount(accountId));
+  }
+
+  public Mono<TransactionPage> getTransactionPage(String accountId, TransactionFilter filter,
+      int cursor, int limit) {
+    return read(accountId,
+        () -> bankAccountService.getTransactionPage(accountId, filter, cursor, limit));
+  }
+
+  /**
+   * The account's history as of subscription, emitted only as fast as it is requested.
+   */
+  public Flux<Transaction> streamTransactions(String accountId, TransactionFilter filter) {
+    final Flux<Transaction> transactions = Flux.defer(
+        () -> Flux.fromStream(bankAccountService.streamTransactions(accountId, filter)));
+    return Flux.defer(() -> isArchived(accountId)
+        ? transactions.subscribeOn(blockingScheduler) : transactions);
+  }
+
+  /**
+   * Statement of {@code account} for the transactions from {@code from} inclusive to {@code to}
+   * exclusive, rendered in parts of a few kilobytes, each only once it is requested: memory stays
+   * constant whatever the length of the history.
+   */
+  public Flux<String> statement(Account account, LocalDateTime from, LocalDateTime to,
+      StatementFormat format) {
+    final Flux<String> parts = Flux.defer(() -> {
+      final List<Transaction> transactions = from == null && to == null
+          ? account.getTransactions() : account.getTransactionsBetween(from, to);
+      final StatementRenderer renderer = new StatementRenderer();
+      return Flux.generate(() -> StatementRenderer.START, (Integer position,
+          SynchronousSink<String> sink) -> {
+        final StringBuilder part = new StringBuilder();
+        final int next;
+        try {
+          next = renderer.renderPart(account.getAccountId(), transactions, account.getBalance(),
+              format, position, part);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        sink.next(part.toString());
+        if (next == StatementRenderer.END) {
+          sink.complete();
+        }
+        return next;
+      });
+    });
+    return isArchived(account) ? parts.subscribeOn(blockingScheduler) : parts;
+  }
+
+  /**
+   * Events of {@code accountId}, or of every account when it is {@code null}, as they are
+   * published; see {@link TransactionEventBus#subscribe}. Events are taken from the subscription
+   * only on demand and handed to the parallel scheduler, so the bus's dispatcher never waits for
+   * a subscriber and a slow one overflows its own buffer.
+   */
+  public Flux<TransactionEvent> events(String accountId, Long afterSequence,
+      OverflowPolicy overflowPolicy) {
+    final Flux<TransactionEvent> events = Flux.<TransactionEvent>create(sink -> {
+      final EventDrain drain = new EventDrain(sink);
+      final EventSubscription subscription =
+          eventBus.subscribe(accountId, afterSequence, overflowPolicy, drain::run);
+      sink.onRequest(requested -> drain.run(subscription));
+      sink.onDispose(subscription::close);
+    }).publishOn(Schedulers.parallel(), EVENT_PREFETCH);
+    return accountId == null ? events : getAccount(accountId).thenMany(events);
+  }
+
+  public Mono<List<Transaction>> getTransactionsBetween(String accountId, LocalDateTime from,
+      LocalDateTime to) {
+    return read(accountId, () -> bankAccountService.getTransactionsBetween(accountId, from, to));
+  }
+
+  private <T> Mono<T> read(String accountId, Supplier<T> read) {
+    final Mono<T> result = Mono.fromSupplier(read);
+    return Mono.defer(() -> isArchived(accountId)
+        ? result.subscribeOn(blockingScheduler) : result);
+  }
+
+  // Unknown accounts are left to the read itself to report.
+  private boolean isArchived(String accountId) {
+    try {
+      return isArchived(bankAccountService.getAccount(accountId));
+    } catch (BankAccountException exception) {
+      return false;
+    }
+  }
+
+  private static boolean isArchived(Account account) {
+    return account.getTransactions().archivedSize() > 0;
+  }
+
+  /**
+   * Moves buffered events to the sink while it has demand. Runs on the dispatcher thread when an
+   * event arrives and on the subscriber's thread when it requests more, one at a time.
+   */
+  @RequiredArgsConstructor
+  private static final class EventDrain {
+
+    private final FluxSink<TransactionEvent> sink;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    void run(EventSubscription subscription) {
+      if (pending.getAndIncrement() != 0) {
+        return;
+      }
+      do {
+        TransactionEvent event;
+        while (sink.requestedFromDownstream() > 0 && (event = subscription.poll()) != null) {
+          sink.next(event);
+        }
+        if (subscription.isExhausted()) {
+          sink.complete();
+        }
+      } while (pending.decrementAndGet() != 0);
+    }
+  }
+}
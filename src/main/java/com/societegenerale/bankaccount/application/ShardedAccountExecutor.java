@@ -0,0 +1,176 @@
+package com.societegenerale.bankaccount.application;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs commands on single-threaded shards. Accounts are hashed onto shards, so every command on an
+ * account runs on the same thread, in submission order, without locking.
+ *
+ * <p>Each shard drains its {@link MpscRing} mailbox until it is empty and only then parks, so a
+ * busy shard runs commands back to back without any handoff. When a mailbox is full, submitters
+ * wait for room instead of queueing without bound.
+ *
+ * <p>{@link #executeAll} stops every shard involved at a barrier and runs the command on the
+ * calling thread while they wait. Barriers are enqueued under one lock so that two of them always
+ * reach their shards in the same order and cannot wait on each other. Neither {@link #execute}
+ * nor {@link #executeAll} may be called from a command.
+ */
+class ShardedAccountExecutor implements AccountExecutor {
+
+  private static final long FULL_MAILBOX_BACKOFF_NANOS = 10_000;
+
+  private final Shard[] shards;
+  private final Lock barrierLock = new ReentrantLock();
+
+  ShardedAccountExecutor(int shardCount, int capacity) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+    }
+    this.shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard(capacity, "account-shard-" + i);
+    }
+  }
+
+  @Override
+  public <T> CompletableFuture<T> submit(String accountId, Supplier<T> command) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    shards[indexFor(accountId)].enqueue(() -> {
+      try {
+        future.complete(command.get());
+      } catch (Throwable failure) {
+        future.completeExceptionally(failure);
+      }
+    });
+    return future;
+  }
+
+  @Override
+  public <T> T executeAll(Collection<String> accountIds, Supplier<T> command) {
+    final int[] involved = accountIds.stream().mapToInt(this::indexFor).distinct().toArray();
+    if (involved.length == 1) {
+      return AccountExecutor.await(submit(accountIds.iterator().next(), command));
+    }
+    final CountDownLatch stopped = new CountDownLatch(involved.length);
+    final CountDownLatch released = new CountDownLatch(1);
+    barrierLock.lock();
+    try {
+      for (int index : involved) {
+        shards[index].enqueue(() -> {
+          stopped.countDown();
+          awaitUninterruptibly(released);
+        });
+      }
+    } finally {
+      barrierLock.unlock();
+    }
+    try {
+      awaitUninterruptibly(stopped);
+      return command.get();
+    } finally {
+      released.countDown();
+    }
+  }
+
+  /**
+   * Runs the commands already submitted, then stops the shards.
+   */
+  @Override
+  public void close() {
+    for (Shard shard : shards) {
+      shard.close();
+    }
+    for (Shard shard : shards) {
+      shard.join();
+    }
+  }
+
+  private int indexFor(String accountId) {
+    final int hash = accountId.hashCode();
+    return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class Shard implements Runnable {
+
+    private final MpscRing<Runnable> mailbox;
+    private final Thread thread;
+    private volatile boolean waiting;
+    private volatile boolean closed;
+
+    Shard(int capacity, String name) {
+      this.mailbox = new MpscRing<>(capacity);
+      this.thread = new Thread(this, name);
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+
+    void enqueue(Runnable command) {
+      if (closed) {
+        throw new RejectedExecutionException("Account executor is closed");
+      }
+      while (!mailbox.offer(command)) {
+        if (closed) {
+          throw new RejectedExecutionException("Account executor is closed");
+        }
+        LockSupport.parkNanos(FULL_MAILBOX_BACKOFF_NANOS);
+      }
+      // Pairs with run(): either the shard sees the command before parking, or we see it waiting.
+      if (waiting) {
+        LockSupport.unpark(thread);
+      }
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        final Runnable command = mailbox.poll();
+        if (command != null) {
+          command.run();
+        } else if (closed) {
+          return;
+        } else {
+          waiting = true;
+          if (mailbox.isEmpty() && !closed) {
+            LockSupport.park(this);
+          }
+          waiting = false;
+        }
+      }
+    }
+
+    void close() {
+      closed = true;
+      LockSupport.unpark(thread);
+    }
+
+    void join() {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,6 @@
+package com.societegenerale.bankaccount.application;
+
+public enum StatementFormat {
+  TEXT,
+  CSV
+}
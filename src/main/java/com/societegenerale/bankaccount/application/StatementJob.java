@@ -0,0 +1,289 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.Account;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes the statements of every account as of a cut-off, in plain text, to {@code shards} files
+ * under {@code directory/<cut-off>}. Accounts go to a shard by id hash, and shards are split
+ * between the threads of a work-stealing pool. Each shard is written to a temporary file that is
+ * renamed once synced, so starting again with the same cut-off skips the shards already written.
+ * A scheduled job first finishes the latest run if it crashed or left failed shards, on startup
+ * and before every daily run.
+ *
+ * <p>Accounts are immutable, so a run renders the versions current when it starts without taking
+ * their locks: deposits and withdrawals carry on meanwhile. Statements list the transactions dated
+ * before the cut-off and the balance they add up to.
+ */
+public class StatementJob implements AutoCloseable {
+
+  private static final DateTimeFormatter RUN_NAME =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final String SHARD_FILE = "statements-%05d.txt";
+
+  private final BankAccountService bankAccountService;
+  private final Path directory;
+  private final int shards;
+  private final ForkJoinPool pool;
+  private final Timer runs;
+  private final Counter failures;
+  private final ScheduledExecutorService scheduler;
+  private volatile StatementRun current;
+
+  /**
+   * With a {@code runAt} time, runs every day at that time for a cut-off at the start of the day.
+   * A {@code parallelism} of 0 uses one thread per core.
+   */
+  public StatementJob(BankAccountService bankAccountService, Path directory, int shards,
+      int parallelism, LocalTime runAt, MeterRegistry registry) {
+    if (shards < 1 || parallelism < 0) {
+      throw new IllegalArgumentException("shards must be positive and parallelism not negative");
+    }
+    this.bankAccountService = bankAccountService;
+    this.directory = directory;
+    this.shards = shards;
+    this.pool = new ForkJoinPool(
+        parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    this.runs = Timer.builder("bankaccount.statements")
+        .description("End-of-day statement runs")
+        .register(registry);
+    this.failures = Counter.builder("bankaccount.statements.failures")
+        .description("Statement shards or runs that failed")
+        .register(registry);
+    Gauge.builder("bankaccount.statements.accounts", this, StatementJob::doneAccounts)
+        .description("Accounts whose statement is written in the current or last run")
+        .register(registry);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "statement-job");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (runAt != null) {
+      scheduler.execute(this::resumeQuietly);
+      scheduler.scheduleAtFixedRate(this::runQuietly, delayUntil(runAt).toMillis(),
+          TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Starts a run and returns its progress; see {@link StatementRun#completion()}.
+   *
+   * @throws IllegalStateException if a run is still going on
+   */
+  public synchronized StatementRun start(LocalDateTime cutoff) {
+    if (current != null && !current.isDone()) {
+      throw new IllegalStateException("A statement run is already in progress");
+    }
+    final Path runDirectory = directory.resolve(RUN_NAME.format(cutoff));
+    try {
+      Files.createDirectories(runDirectory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot create statement directory " + runDirectory, e);
+    }
+    final List<Account> accounts = bankAccountService.getAccounts();
+    final List<List<Account>> byShard = new ArrayList<>(shards);
+    for (int shard = 0; shard < shards; shard++) {
+      byShard.add(new ArrayList<>());
+    }
+    for (Account account : accounts) {
+      byShard.get(Math.floorMod(account.getAccountId().hashCode(), shards)).add(account);
+    }
+    final StatementRun run = new StatementRun(cutoff, runDirectory, shards, accounts.size());
+    current = run;
+    final long start = System.nanoTime();
+    CompletableFuture.runAsync(() -> new ShardTask(run, byShard, 0, shards).invoke(), pool)
+        .whenComplete((result, failure) -> {
+          runs.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          run.finish(failure);
+        });
+    return run;
+  }
+
+  /**
+   * Runs for {@code cutoff} and waits for every shard.
+   */
+  public StatementRun run(LocalDateTime cutoff) {
+    return start(cutoff).completion().join();
+  }
+
+  /**
+   * Runs again for the latest cut-off under the directory if some of its shards are missing, which
+   * writes only those; empty if that run is complete or there is none.
+   */
+  public Optional<StatementRun> resume() {
+    final LocalDateTime cutoff = lastIncompleteCutoff();
+    return cutoff == null ? Optional.empty() : Optional.of(run(cutoff));
+  }
+
+  /**
+   * The current run, or the last one; {@code null} before the first.
+   */
+  public StatementRun getCurrent() {
+    return current;
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    pool.shutdownNow();
+  }
+
+  private void writeShard(StatementRun run, int shard, List<Account> accounts) {
+    final Path file = run.getDirectory().resolve(String.format(SHARD_FILE, shard));
+    if (Files.exists(file)) {
+      run.skipped(accounts.size());
+      return;
+    }
+    final Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+    final StatementRenderer renderer = new StatementRenderer();
+    accounts.sort(Comparator.comparing(Account::getAccountId));
+    try {
+      try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+          Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(),
+              BUFFER_SIZE)) {
+        for (Account account : accounts) {
+          // Balance as of the last instant before the cut-off, to match the listed transactions.
+          renderer.render(account.getAccountId(),
+              account.getTransactionsBetween(null, run.getCutoff()),
+              account.getBalanceAsOf(run.getCutoff().minusNanos(1)), StatementFormat.TEXT,
+              writer);
+        }
+        writer.flush();
+        channel.force(false);
+      }
+      Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+      run.written(accounts.size());
+    } catch (IOException | UncheckedIOException e) {
+      failures.increment();
+      run.failed();
+    }
+  }
+
+  private double doneAccounts() {
+    final StatementRun run = current;
+    return run == null ? 0 : run.getWrittenAccounts() + run.getSkippedAccounts();
+  }
+
+  // A failed run is counted, and its missing shards are retried by the next one.
+  private void runQuietly() {
+    resumeQuietly();
+    try {
+      run(LocalDate.now().atStartOfDay());
+    } catch (RuntimeException exception) {
+      failures.increment();
+    }
+  }
+
+  private void resumeQuietly() {
+    try {
+      resume();
+    } catch (RuntimeException exception) {
+      failures.increment();
+    }
+  }
+
+  // Shard files appear only once complete, so a run that crashed or failed has fewer of them.
+  private LocalDateTime lastIncompleteCutoff() {
+    if (!Files.isDirectory(directory)) {
+      return null;
+    }
+    LocalDateTime last = null;
+    try (Stream<Path> runDirectories = Files.list(directory)) {
+      for (Path runDirectory : runDirectories.filter(Files::isDirectory).toList()) {
+        final LocalDateTime cutoff = parseCutoff(runDirectory.getFileName().toString());
+        if (cutoff != null && (last == null || cutoff.isAfter(last))) {
+          last = cutoff;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot list statement directory " + directory, e);
+    }
+    if (last == null) {
+      return null;
+    }
+    final Path runDirectory = directory.resolve(RUN_NAME.format(last));
+    for (int shard = 0; shard < shards; shard++) {
+      if (!Files.exists(runDirectory.resolve(String.format(SHARD_FILE, shard)))) {
+        return last;
+      }
+    }
+    return null;
+  }
+
+  private static LocalDateTime parseCutoff(String name) {
+    try {
+      return LocalDateTime.parse(name, RUN_NAME);
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  private static Duration delayUntil(LocalTime time) {
+    final LocalDateTime now = LocalDateTime.now();
+    LocalDateTime next = now.toLocalDate().atTime(time);
+    if (!next.isAfter(now)) {
+      next = next.plusDays(1);
+    }
+    return Duration.between(now, next);
+  }
+
+  /**
+   * Halves its range of shards until one is left, so idle threads steal the other halves.
+   */
+  private final class ShardTask extends RecursiveAction {
+
+    private final StatementRun run;
+    private final List<List<Account>> byShard;
+    private final int from;
+    private final int to;
+
+    private ShardTask(StatementRun run, List<List<Account>> byShard, int from, int to) {
+      this.run = run;
+      this.byShard = byShard;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        writeShard(run, from, byShard.get(from));
+        return;
+      }
+      final int middle = (from + to) >>> 1;
+      invokeAll(new ShardTask(run, byShard, from, middle), new ShardTask(run, byShard, middle, to));
+    }
+  }
+}
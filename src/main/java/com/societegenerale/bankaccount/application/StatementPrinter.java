@@ -1,50 +1,144 @@
 package com.societegenerale.bankaccount.application;
 
+import com.societegenerale.bankaccount.domain.Money;
 import com.societegenerale.bankaccount.domain.Transaction;
-import com.societegenerale.bankaccount.domain.TransactionType;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.format.DateTimeFormatter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
 
-public class StatementPrinter {
+/**
+ * Prints text statements to a sink from a single background thread, so request threads only pay
+ * for enqueueing.
+ *
+ * <p>The queue is bounded: when the sink falls behind, further statements are dropped and counted
+ * instead of blocking the caller. Statements hold the immutable transaction list they were given,
+ * so rendering them later shows the account as it was when {@link #print} was called.
+ */
+public class StatementPrinter implements AutoCloseable {
 
-  private static final String STATEMENT_HEADER = "STATEMENT\n";
-  private static final String ACCOUNT_ID_PREFIX = "Account ID: ";
-  private static final String BALANCE_PREFIX = "Current Balance: ";
-  private static final String TRANSACTION_HEADER = "DATE | AMOUNT | TRANS. TYPE";
-  private static final String LINE_SEPARATOR = "----------------------";
+  public static final int DEFAULT_CAPACITY = 1024;
 
-  public void print(String accountId, List<Transaction> transactions, BigDecimal balance) {
-    System.out.println(STATEMENT_HEADER);
-    System.out.println(ACCOUNT_ID_PREFIX + accountId + "\n");
-    System.out.println(TRANSACTION_HEADER);
-    System.out.println(LINE_SEPARATOR);
-    transactions.stream()
-        .map(this::formatTransaction)
-        .forEach(System.out::println);
-    System.out.println();
-    System.out.println(BALANCE_PREFIX + balance.setScale(2, RoundingMode.UP));
+  private static final Statement END = new Statement(null, null, null);
+
+  private final Appendable sink;
+  private final Closeable ownedSink;
+  private final BlockingQueue<Statement> queue;
+  private final StatementRenderer renderer = new StatementRenderer();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final Thread worker;
+  private volatile boolean closed;
+
+  public StatementPrinter() {
+    this(System.out, DEFAULT_CAPACITY);
+  }
+
+  public StatementPrinter(Appendable sink, int capacity) {
+    this(sink, null, capacity);
+  }
+
+  private StatementPrinter(Appendable sink, Closeable ownedSink, int capacity) {
+    this.sink = sink;
+    this.ownedSink = ownedSink;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.worker = new Thread(this::run, "statement-printer");
+    this.worker.setDaemon(true);
+    this.worker.start();
+  }
+
+  /**
+   * Appends statements to {@code file}, creating it if needed. The file is closed with the printer.
+   */
+  public static StatementPrinter toFile(Path file, int capacity) {
+    try {
+      final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      return new StatementPrinter(writer, writer, capacity);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open statement file " + file, e);
+    }
   }
 
-  private String formatTransaction(Transaction transaction) {
-    final StringBuilder builder = new StringBuilder();
-    final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+  /**
+   * Queues a statement for printing and returns whether it was accepted.
+   */
+  public boolean print(String accountId, List<Transaction> transactions, Money balance) {
+    if (closed || !queue.offer(new Statement(accountId, transactions, balance))) {
+      dropped.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  public long getFailed() {
+    return failed.get();
+  }
 
-    final String formattedDate = transaction.getDate().format(dateFormatter);
-    final String formattedAmount = formatAmount(transaction.getAmount(),
-        transaction.getTransactionType().equals(
-            TransactionType.DEPOSIT));
+  /**
+   * Prints the statements already queued, then stops the background thread.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      queue.put(END);
+      worker.join();
+      if (ownedSink != null) {
+        ownedSink.close();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot close statement sink", e);
+    }
+  }
 
-    builder.append(formattedDate).append(" | ");
-    builder.append(formattedAmount).append(" | ");
-    builder.append(transaction.getTransactionType());
+  private void run() {
+    try {
+      Statement statement;
+      while ((statement = queue.take()) != END) {
+        write(statement);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 
-    return builder.toString();
+  private void write(Statement statement) {
+    try {
+      renderer.render(statement.accountId, statement.transactions, statement.balance,
+          StatementFormat.TEXT, sink);
+      if (sink instanceof Flushable) {
+        ((Flushable) sink).flush();
+      }
+    } catch (IOException | RuntimeException e) {
+      failed.incrementAndGet();
+    }
   }
 
-  private String formatAmount(BigDecimal amount, Boolean positiveValue) {
-    final BigDecimal scale = amount.setScale(2, RoundingMode.UP);
-    return positiveValue ? scale.toString() : scale.negate().toString();
+  @RequiredArgsConstructor
+  private static final class Statement {
+
+    private final String accountId;
+    private final List<Transaction> transactions;
+    private final Money balance;
   }
 }
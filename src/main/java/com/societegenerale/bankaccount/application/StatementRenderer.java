@@ -0,0 +1,100 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Formats account statements as plain text or CSV.
+ *
+ * <p>Lines are formatted into one buffer that is handed to the output every few kilobytes and then
+ * reused, so an instance must not be shared between threads. Transactions are read by position,
+ * so the lists given must be random access.
+ */
+public class StatementRenderer {
+
+  private static final String STATEMENT_HEADER = "STATEMENT\n";
+  private static final String ACCOUNT_ID_PREFIX = "Account ID: ";
+  private static final String BALANCE_PREFIX = "Current Balance: ";
+  private static final String TRANSACTION_HEADER = "DATE | AMOUNT | TRANS. TYPE";
+  private static final String LINE_SEPARATOR = "----------------------";
+  private static final String CSV_HEADER = "date,type,amount";
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+  private static final DateTimeFormatter CSV_DATE_FORMATTER =
+      DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+  private static final int FLUSH_THRESHOLD = 8 * 1024;
+
+  private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 256);
+
+  /**
+   * Where {@link #renderPart} starts a statement, and what it returns once the statement is done.
+   */
+  public static final int START = -1;
+  public static final int END = -2;
+
+  public void render(String accountId, List<Transaction> transactions, Money balance,
+      StatementFormat format, Appendable output) throws IOException {
+    int position = START;
+    while (position != END) {
+      position = renderPart(accountId, transactions, balance, format, position, output);
+    }
+  }
+
+  /**
+   * Appends the part of the statement that starts at {@code position}, about
+   * {@value #FLUSH_THRESHOLD} characters, to {@code output} and returns where the next part
+   * starts. Lets a caller render a statement only as fast as it is consumed.
+   */
+  public int renderPart(String accountId, List<Transaction> transactions, Money balance,
+      StatementFormat format, int position, Appendable output) throws IOException {
+    final boolean csv = format == StatementFormat.CSV;
+    buffer.setLength(0);
+    int next = position;
+    if (next == START) {
+      if (csv) {
+        buffer.append(CSV_HEADER).append('\n');
+      } else {
+        buffer.append(STATEMENT_HEADER).append('\n');
+        buffer.append(ACCOUNT_ID_PREFIX).append(accountId).append("\n\n");
+        buffer.append(TRANSACTION_HEADER).append('\n');
+        buffer.append(LINE_SEPARATOR).append('\n');
+      }
+      next = 0;
+    }
+    while (next < transactions.size() && buffer.length() < FLUSH_THRESHOLD) {
+      if (csv) {
+        appendCsvLine(transactions.get(next++));
+      } else {
+        appendTextLine(transactions.get(next++));
+      }
+    }
+    if (next == transactions.size()) {
+      if (!csv) {
+        buffer.append('\n');
+        balance.appendTo(buffer.append(BALANCE_PREFIX)).append('\n');
+      }
+      next = END;
+    }
+    output.append(buffer);
+    buffer.setLength(0);
+    return next;
+  }
+
+  private void appendTextLine(Transaction transaction) {
+    DATE_FORMATTER.formatTo(transaction.getDate(), buffer);
+    buffer.append(" | ");
+    final Money amount = transaction.getAmount();
+    (transaction.getTransactionType() == TransactionType.WITHDRAWAL ? amount.negate() : amount)
+        .appendTo(buffer);
+    buffer.append(" | ").append(transaction.getTransactionType()).append('\n');
+  }
+
+  private void appendCsvLine(Transaction transaction) {
+    CSV_DATE_FORMATTER.formatTo(transaction.getDate(), buffer);
+    buffer.append(',').append(transaction.getTransactionType()).append(',');
+    transaction.getAmount().appendTo(buffer).append('\n');
+  }
+}
@@ -0,0 +1,93 @@
+package com.societegenerale.bankaccount.application;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+
+/**
+ * Progress of one {@link StatementJob} run, readable while it goes on. Shards found complete from
+ * an earlier run with the same cut-off are skipped rather than written again.
+ */
+public final class StatementRun {
+
+  @Getter
+  private final LocalDateTime cutoff;
+  @Getter
+  private final Path directory;
+  @Getter
+  private final int shards;
+  @Getter
+  private final int accounts;
+  private final AtomicLong writtenAccounts = new AtomicLong();
+  private final AtomicLong skippedAccounts = new AtomicLong();
+  private final AtomicInteger writtenShards = new AtomicInteger();
+  private final AtomicInteger skippedShards = new AtomicInteger();
+  private final AtomicInteger failedShards = new AtomicInteger();
+  private final CompletableFuture<StatementRun> done = new CompletableFuture<>();
+
+  StatementRun(LocalDateTime cutoff, Path directory, int shards, int accounts) {
+    this.cutoff = cutoff;
+    this.directory = directory;
+    this.shards = shards;
+    this.accounts = accounts;
+  }
+
+  public long getWrittenAccounts() {
+    return writtenAccounts.get();
+  }
+
+  public long getSkippedAccounts() {
+    return skippedAccounts.get();
+  }
+
+  public int getWrittenShards() {
+    return writtenShards.get();
+  }
+
+  public int getSkippedShards() {
+    return skippedShards.get();
+  }
+
+  /**
+   * Shards left unwritten by an I/O error; running again with the same cut-off retries them.
+   */
+  public int getFailedShards() {
+    return failedShards.get();
+  }
+
+  public boolean isDone() {
+    return done.isDone();
+  }
+
+  /**
+   * Completes with this run once every shard was written, skipped or failed.
+   */
+  public CompletableFuture<StatementRun> completion() {
+    return done;
+  }
+
+  void written(int accountsInShard) {
+    writtenAccounts.addAndGet(accountsInShard);
+    writtenShards.incrementAndGet();
+  }
+
+  void skipped(int accountsInShard) {
+    skippedAccounts.addAndGet(accountsInShard);
+    skippedShards.incrementAndGet();
+  }
+
+  void failed() {
+    failedShards.incrementAndGet();
+  }
+
+  void finish(Throwable failure) {
+    if (failure == null) {
+      done.complete(this);
+    } else {
+      done.completeExceptionally(failure);
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.Transaction;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A saved transaction, numbered by {@link TransactionEventBus} in publication order across all
+ * accounts.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TransactionEvent {
+
+  private final long sequence;
+  private final String accountId;
+  private final Transaction transaction;
+}
@@ -0,0 +1,254 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Fans saved transactions out to subscribers, per account or for all accounts.
+ *
+ * <p>Publishing only appends to a bounded lock-free inbox, so it never waits on subscribers; if
+ * the inbox is ever full the event is dropped and counted. A single dispatcher thread numbers the
+ * events, keeps the last {@code historySize} of them so that subscribers can resume after a
+ * sequence number, and copies each event into the buffer of every interested subscription that
+ * has caught up.
+ */
+public class TransactionEventBus implements TransactionListener, AutoCloseable {
+
+  static final int INBOX_CAPACITY = 1 << 16;
+  static final String DROPPED = "bankaccount.events.dropped";
+  private static final long NAP_NANOS = 50_000;
+  private static final int IDLE_NAPS = 2_000;
+
+  private final MpscRing<Published> inbox = new MpscRing<>(INBOX_CAPACITY);
+  private final TransactionEvent[] history;
+  private final int subscriberCapacity;
+  private final OverflowPolicy defaultOverflowPolicy;
+  private final Lock dispatchLock = new ReentrantLock();
+  private final Map<String, List<EventSubscription>> accountSubscriptions =
+      new ConcurrentHashMap<>();
+  private final List<EventSubscription> firehoseSubscriptions = new CopyOnWriteArrayList<>();
+  private final AtomicInteger subscriptionCount = new AtomicInteger();
+  private final Counter droppedByBus;
+  private final Counter droppedBySubscribers;
+  private final Thread dispatcher;
+  private long lastSequence;
+  private volatile boolean waiting;
+  private volatile boolean closed;
+
+  public TransactionEventBus(int historySize, int subscriberCapacity,
+      OverflowPolicy defaultOverflowPolicy, MeterRegistry registry) {
+    this.history = new TransactionEvent[historySize];
+    this.subscriberCapacity = subscriberCapacity;
+    this.defaultOverflowPolicy = defaultOverflowPolicy;
+    this.droppedByBus = dropped(registry, "bus");
+    this.droppedBySubscribers = dropped(registry, "subscriber");
+    Gauge.builder("bankaccount.events.subscribers", subscriptionCount, AtomicInteger::get)
+        .description("Open event subscriptions")
+        .register(registry);
+    this.dispatcher = new Thread(this::dispatch, "transaction-events");
+    this.dispatcher.setDaemon(true);
+    this.dispatcher.start();
+  }
+
+  @Override
+  public void onTransaction(String accountId, Transaction transaction) {
+    if (closed || !inbox.offer(new Published(accountId, transaction))) {
+      droppedByBus.increment();
+      return;
+    }
+    // Pairs with dispatch(): either the dispatcher sees the event before parking, or we see it
+    // waiting.
+    if (waiting) {
+      LockSupport.unpark(dispatcher);
+    }
+  }
+
+  /**
+   * Subscribes to the events of {@code accountId}, or of every account when it is {@code null}.
+   * With an {@code afterSequence}, the retained events that follow it are delivered first, read
+   * from the history as the subscriber drains its buffer; if some of them are no longer retained,
+   * fails with {@link EventHistoryExpiredException}. A subscriber that falls behind the history
+   * while catching up is closed, and resuming again fails the same way. {@code onAvailable} is
+   * called on the dispatcher thread whenever a live event is buffered and once the subscription
+   * is closed; it must not block.
+   */
+  public EventSubscription subscribe(String accountId, Long afterSequence,
+      OverflowPolicy overflowPolicy, Consumer<EventSubscription> onAvailable) {
+    final EventSubscription subscription = new EventSubscription(accountId, subscriberCapacity,
+        overflowPolicy == null ? defaultOverflowPolicy : overflowPolicy, onAvailable,
+        this::unsubscribe, this::catchUp, droppedBySubscribers);
+    dispatchLock.lock();
+    try {
+      subscriptionCount.incrementAndGet();
+      if (afterSequence == null) {
+        register(subscription);
+      } else {
+        if (afterSequence > lastSequence || afterSequence < oldestRetained() - 1) {
+          subscriptionCount.decrementAndGet();
+          throw new EventHistoryExpiredException(afterSequence);
+        }
+        subscription.catchUpFrom(afterSequence);
+        catchUp(subscription);
+      }
+    } finally {
+      dispatchLock.unlock();
+    }
+    return subscription;
+  }
+
+  /**
+   * Delivers the events already published, then stops the dispatcher and closes every
+   * subscription.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    LockSupport.unpark(dispatcher);
+    try {
+      dispatcher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    firehoseSubscriptions.forEach(EventSubscription::close);
+    accountSubscriptions.values().forEach(subscriptions ->
+        subscriptions.forEach(EventSubscription::close));
+  }
+
+  /**
+   * Refills the buffer of a subscription catching up from the history, and hands it over to live
+   * delivery once it has reached the latest event.
+   */
+  private void catchUp(EventSubscription subscription) {
+    dispatchLock.lock();
+    try {
+      if (subscription.isClosed() || !subscription.isCatchingUp()) {
+        return;
+      }
+      if (subscription.getReplayed() < oldestRetained() - 1) {
+        subscription.close();
+        return;
+      }
+      for (long sequence = subscription.getReplayed() + 1; sequence <= lastSequence; sequence++) {
+        if (!subscription.replay(history[(int) (sequence % history.length)])) {
+          return;
+        }
+      }
+      subscription.caughtUp();
+      register(subscription);
+    } finally {
+      dispatchLock.unlock();
+    }
+  }
+
+  private void register(EventSubscription subscription) {
+    if (subscription.getAccountId() == null) {
+      firehoseSubscriptions.add(subscription);
+    } else {
+      accountSubscriptions
+          .computeIfAbsent(subscription.getAccountId(), key -> new CopyOnWriteArrayList<>())
+          .add(subscription);
+    }
+  }
+
+  private long oldestRetained() {
+    return Math.max(1, lastSequence - history.length + 1);
+  }
+
+  private void unsubscribe(EventSubscription subscription) {
+    dispatchLock.lock();
+    try {
+      // A subscription still catching up is not registered for live events yet.
+      final boolean removed = subscription.isCatchingUp()
+          || (subscription.getAccountId() == null
+              ? firehoseSubscriptions.remove(subscription)
+              : removeAccountSubscription(subscription));
+      if (removed) {
+        subscriptionCount.decrementAndGet();
+      }
+    } finally {
+      dispatchLock.unlock();
+    }
+  }
+
+  private boolean removeAccountSubscription(EventSubscription subscription) {
+    final List<EventSubscription> subscriptions =
+        accountSubscriptions.get(subscription.getAccountId());
+    if (subscriptions == null || !subscriptions.remove(subscription)) {
+      return false;
+    }
+    if (subscriptions.isEmpty()) {
+      accountSubscriptions.remove(subscription.getAccountId());
+    }
+    return true;
+  }
+
+  /**
+   * While events keep coming, the dispatcher naps between batches instead of waiting to be woken,
+   * so that publishers do not pay for a wake-up per event. It only waits for a wake-up once no
+   * event came for {@value #IDLE_NAPS} naps.
+   */
+  private void dispatch() {
+    int idleNaps = 0;
+    while (true) {
+      final Published published = inbox.poll();
+      if (published != null) {
+        deliver(published);
+        idleNaps = 0;
+      } else if (closed) {
+        return;
+      } else if (idleNaps < IDLE_NAPS) {
+        LockSupport.parkNanos(this, NAP_NANOS);
+        idleNaps++;
+      } else {
+        waiting = true;
+        if (inbox.isEmpty() && !closed) {
+          LockSupport.park(this);
+        }
+        waiting = false;
+      }
+    }
+  }
+
+  private void deliver(Published published) {
+    dispatchLock.lock();
+    try {
+      final TransactionEvent event =
+          new TransactionEvent(++lastSequence, published.accountId, published.transaction);
+      history[(int) (lastSequence % history.length)] = event;
+      final List<EventSubscription> subscriptions = accountSubscriptions.get(event.getAccountId());
+      if (subscriptions != null) {
+        subscriptions.forEach(subscription -> subscription.offer(event));
+      }
+      firehoseSubscriptions.forEach(subscription -> subscription.offer(event));
+    } finally {
+      dispatchLock.unlock();
+    }
+  }
+
+  private static Counter dropped(MeterRegistry registry, String stage) {
+    return Counter.builder(DROPPED)
+        .description("Transaction events lost, by the bus when its inbox is full or by a "
+            + "subscriber's overflow policy")
+        .tag("stage", stage)
+        .register(registry);
+  }
+
+  @RequiredArgsConstructor
+  private static final class Published {
+
+    private final String accountId;
+    private final Transaction transaction;
+  }
+}
@@ -0,0 +1,30 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.time.LocalDateTime;
+import java.util.function.Predicate;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Optional criteria on transaction history: {@code from} is inclusive, {@code to} exclusive, and
+ * a {@code null} criterion matches everything.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TransactionFilter implements Predicate<Transaction> {
+
+  public static final TransactionFilter NONE = new TransactionFilter(null, null, null);
+
+  private final LocalDateTime from;
+  private final LocalDateTime to;
+  private final TransactionType transactionType;
+
+  @Override
+  public boolean test(Transaction transaction) {
+    return (from == null || !transaction.getDate().isBefore(from))
+        && (to == null || transaction.getDate().isBefore(to))
+        && (transactionType == null || transaction.getTransactionType() == transactionType);
+  }
+}
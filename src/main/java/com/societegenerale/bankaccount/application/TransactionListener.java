@@ -0,0 +1,16 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.Transaction;
+
+/**
+ * Told about every transaction once it is saved, on the thread that applied it and while its
+ * account is still held, so calls for one account come in ledger order. Must not block.
+ */
+@FunctionalInterface
+public interface TransactionListener {
+
+  TransactionListener NONE = (accountId, transaction) -> {
+  };
+
+  void onTransaction(String accountId, Transaction transaction);
+}
@@ -0,0 +1,18 @@
+package com.societegenerale.bankaccount.application;
+
+import com.societegenerale.bankaccount.domain.Transaction;
+import java.util.List;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * One page of an account's history. {@code nextCursor} is the ledger position to resume from, or
+ * {@code null} once the end of the ledger has been reached.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TransactionPage {
+
+  private final List<Transaction> transactions;
+  private final Integer nextCursor;
+}
@@ -1,57 +1,130 @@
 package com.societegenerale.bankaccount.domain;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
 @Getter
-@RequiredArgsConstructor
 public class Account {
 
   private final String accountId;
-  private final List<Transaction> transactions;
+  private final TransactionLog transactions;
+  private final Money balance;
 
   public Account() {
-    this.accountId = UUID.randomUUID().toString();
-    this.transactions = new ArrayList<>();
+    this(AccountIdGenerator.RANDOM_UUID.nextId());
   }
 
-  public Account deposit(BigDecimal amount) {
-    final Transaction depositTransaction = new Transaction(TransactionType.DEPOSIT,
-        LocalDateTime.now(),
-        amount);
+  /**
+   * New account with no transactions.
+   */
+  public Account(String accountId) {
+    this(accountId, TransactionLog.empty(), Money.ZERO);
+  }
 
-    final List<Transaction> updatedTransactions = Stream
-        .concat(transactions.stream(), Stream.of(depositTransaction))
-        .collect(Collectors.toList());
+  public Account(String accountId, List<Transaction> transactions) {
+    this(accountId, TransactionLog.of(transactions));
+  }
 
-    return new Account(accountId, updatedTransactions);
+  /**
+   * Account whose oldest transactions are archived, followed by {@code recent} ones.
+   */
+  public Account(String accountId, ArchivedTransactions archived, List<Transaction> recent) {
+    this(accountId, TransactionLog.of(archived, recent));
   }
 
-  public Account withdrawal(BigDecimal amount) {
-    if (this.getBalance().compareTo(amount) < 0) {
-      throw new BankAccountException("Insufficient balance");
+  private Account(String accountId, TransactionLog transactions) {
+    this(accountId, transactions, transactions.balance());
+  }
+
+  private Account(String accountId, TransactionLog transactions, Money balance) {
+    this.accountId = accountId;
+    this.transactions = transactions;
+    this.balance = balance;
+  }
+
+  public Account deposit(Money amount) {
+    return credit(TransactionType.DEPOSIT, amount);
+  }
+
+  public Account withdrawal(Money amount) {
+    return debit(TransactionType.WITHDRAWAL, amount);
+  }
+
+  /**
+   * Records the sending side of a transfer, as a negative {@link TransactionType#TRANSFER}.
+   */
+  public Account transferOut(Money amount) {
+    return debit(TransactionType.TRANSFER, amount);
+  }
+
+  /**
+   * Records the receiving side of a transfer, as a positive {@link TransactionType#TRANSFER}.
+   */
+  public Account transferIn(Money amount) {
+    return credit(TransactionType.TRANSFER, amount);
+  }
+
+  public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+    return transactions.between(from, to);
+  }
+
+  public Money getBalanceAsOf(LocalDateTime date) {
+    return transactions.balanceAsOf(date);
+  }
+
+  /**
+   * Same account with its oldest transactions served by {@code archived}; see
+   * {@link TransactionLog#compact}.
+   */
+  public Account compact(ArchivedTransactions archived) {
+    return new Account(accountId, transactions.compact(archived), balance);
+  }
+
+  /**
+   * Drops this version, derived from {@code saved} but never saved itself; see
+   * {@link TransactionLog#discard}.
+   */
+  public void discard(Account saved) {
+    transactions.discard(saved.transactions);
+  }
+
+  /**
+   * Returns the difference between the balance the ledger's prefix sums reach and the running
+   * balance. A non-zero result means the cached balance has drifted from the transactions.
+   */
+  public Money balanceDrift() {
+    return transactions.balance().subtract(balance);
+  }
+
+  private Account credit(TransactionType type, Money amount) {
+    final Money newBalance;
+    try {
+      newBalance = balance.add(amount);
+    } catch (ArithmeticException exception) {
+      throw new BankAccountException("Balance overflow");
     }
+    final Transaction creditTransaction = new Transaction(type, nextDate(), amount);
 
-    final Transaction withdrawalTransaction = new Transaction(TransactionType.WITHDRAWAL,
-        LocalDateTime.now(), amount.negate());
+    return new Account(accountId, transactions.append(creditTransaction), newBalance);
+  }
+
+  private Account debit(TransactionType type, Money amount) {
+    if (balance.compareTo(amount) < 0) {
+      throw new BankAccountException("Insufficient balance");
+    }
 
-    final List<Transaction> updatedTransactions = Stream
-        .concat(transactions.stream(), Stream.of(withdrawalTransaction))
-        .collect(Collectors.toList());
+    final Transaction debitTransaction = new Transaction(type, nextDate(), amount.negate());
 
-    return new Account(accountId, updatedTransactions);
+    return new Account(accountId, transactions.append(debitTransaction),
+        balance.subtract(amount));
   }
 
-  public BigDecimal getBalance() {
-    return transactions.stream()
-        .map(Transaction::getAmount)
-        .reduce(BigDecimal.ZERO, BigDecimal::add);
+  // The wall clock goes back at every daylight saving change and clock step. Dates never do, so
+  // the ledger stays in date order and keeps its binary searches.
+  private LocalDateTime nextDate() {
+    final LocalDateTime now = LocalDateTime.now();
+    final LocalDateTime last = transactions.lastDate();
+    return last != null && last.isAfter(now) ? last : now;
   }
 }
@@ -0,0 +1,18 @@
+package com.societegenerale.bankaccount.domain;
+
+import java.util.UUID;
+
+/**
+ * Source of new account ids. An id must never be handed out twice, including after a restart.
+ */
+@FunctionalInterface
+public interface AccountIdGenerator {
+
+  /**
+   * Random UUIDs, as accounts were first created with; every call draws from the shared
+   * {@code SecureRandom}.
+   */
+  AccountIdGenerator RANDOM_UUID = () -> UUID.randomUUID().toString();
+
+  String nextId();
+}
@@ -0,0 +1,30 @@
+package com.societegenerale.bankaccount.domain;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Storage port for accounts. {@link #save(Account)} and {@link #saveAll(Collection)} are always
+ * called by the owner of the accounts' locks with versions that extend the last saved ones, so
+ * implementations may persist only the newly appended transactions.
+ *
+ * <p>A save that fails leaves the saved versions unchanged, except with
+ * {@link UnconfirmedWriteException}: the new versions are then published already.
+ */
+public interface AccountRepository {
+
+  void add(Account account);
+
+  Optional<Account> findById(String accountId);
+
+  void save(Account account);
+
+  /**
+   * Saves several accounts as one unit: after a crash either all of them or none are recovered.
+   */
+  void saveAll(Collection<Account> accounts);
+
+  Collection<Account> findAll();
+
+  int count();
+}
@@ -0,0 +1,59 @@
+package com.societegenerale.bankaccount.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * The oldest transactions of a ledger, moved out of the heap by compaction and read back on
+ * demand. Indexes are ledger positions: the archive always holds a ledger's first {@link #size()}
+ * transactions.
+ */
+public interface ArchivedTransactions {
+
+  ArchivedTransactions NONE = new ArchivedTransactions() {
+
+    @Override
+    public int size() {
+      return 0;
+    }
+
+    @Override
+    public Transaction get(int index) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+    }
+
+    @Override
+    public Money balanceAt(int index) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+    }
+
+    @Override
+    public Money balance() {
+      return Money.ZERO;
+    }
+
+    @Override
+    public LocalDateTime lastDate() {
+      return LocalDateTime.MIN;
+    }
+  };
+
+  int size();
+
+  Transaction get(int index);
+
+  /**
+   * Balance right after the transaction at {@code index}.
+   */
+  Money balanceAt(int index);
+
+  /**
+   * Balance after the last archived transaction: the checkpoint the rest of the ledger builds on.
+   * Answered without reading the archive.
+   */
+  Money balance();
+
+  /**
+   * Date of the last archived transaction, answered without reading the archive.
+   */
+  LocalDateTime lastDate();
+}
@@ -0,0 +1,144 @@
+package com.societegenerale.bankaccount.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Time-ordered 64-bit account ids, written as {@value #LENGTH} Crockford base32 characters that
+ * sort like the numbers they encode. Bits 22 to 62 hold the milliseconds since 2024-01-01 UTC and
+ * the lower 22 a sequence.
+ *
+ * <p>Ids are handed out from blocks of {@code blockSize} reserved on a shared counter, one block
+ * per stripe of threads, so the clock and the counter are touched once per block rather than per
+ * id. A thread always gets increasing ids; ids of different stripes interleave block by block. The
+ * counter never goes back and starts above {@code floor}: ids stay unique across restarts as long
+ * as the generator is created {@link #above} the ids already in use.
+ */
+public final class CompactAccountIds implements AccountIdGenerator {
+
+  public static final int LENGTH = 13;
+  /**
+   * What {@link #parse} returns for an id that is not in this format.
+   */
+  public static final long NOT_COMPACT = -1;
+  public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+  private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+  private static final int SEQUENCE_BITS = 22;
+  private static final byte[] DIGITS =
+      "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] VALUES = new byte[128];
+
+  static {
+    Arrays.fill(VALUES, (byte) -1);
+    for (int digit = 0; digit < DIGITS.length; digit++) {
+      VALUES[DIGITS[digit]] = (byte) digit;
+    }
+  }
+
+  private final AtomicLong reserved;
+  private final int blockSize;
+  private final AtomicReferenceArray<Block> stripes;
+  private final int stripeMask;
+
+  public CompactAccountIds() {
+    this(NOT_COMPACT, DEFAULT_BLOCK_SIZE);
+  }
+
+  public CompactAccountIds(long floor, int blockSize) {
+    this.reserved = new AtomicLong(floor + 1);
+    this.blockSize = blockSize;
+    final int stripeCount =
+        Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+    this.stripes = new AtomicReferenceArray<>(stripeCount);
+    this.stripeMask = stripeCount - 1;
+  }
+
+  /**
+   * Generator whose ids are all above the compact ids among {@code accounts}.
+   */
+  public static CompactAccountIds above(Iterable<Account> accounts, int blockSize) {
+    long floor = NOT_COMPACT;
+    for (Account account : accounts) {
+      floor = Math.max(floor, parse(account.getAccountId()));
+    }
+    return new CompactAccountIds(floor, blockSize);
+  }
+
+  @Override
+  public String nextId() {
+    return format(next());
+  }
+
+  public long next() {
+    final int stripe = (int) Thread.currentThread().threadId() & stripeMask;
+    while (true) {
+      final Block block = stripes.get(stripe);
+      if (block != null) {
+        final long id = block.next.getAndIncrement();
+        if (id < block.end) {
+          return id;
+        }
+      }
+      // A block lost to a racing thread is skipped: ids may have gaps, never repeats.
+      stripes.compareAndSet(stripe, block, reserve());
+    }
+  }
+
+  public static String format(long id) {
+    if (id < 0) {
+      throw new IllegalArgumentException("Negative account id: " + id);
+    }
+    final byte[] chars = new byte[LENGTH];
+    for (int index = LENGTH - 1; index >= 0; index--) {
+      chars[index] = DIGITS[(int) (id & 31)];
+      id >>>= 5;
+    }
+    return new String(chars, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * The id {@link #format} wrote as {@code accountId}, or {@link #NOT_COMPACT}. Each id has a
+   * single string form: lower case and look-alike letters are not accepted.
+   */
+  public static long parse(String accountId) {
+    if (accountId.length() != LENGTH) {
+      return NOT_COMPACT;
+    }
+    long id = 0;
+    for (int index = 0; index < LENGTH; index++) {
+      final char c = accountId.charAt(index);
+      final int digit = c < VALUES.length ? VALUES[c] : -1;
+      // 13 digits carry 65 bits: the first one holds the sign bit and one more, both clear.
+      if (digit < 0 || index == 0 && digit > 7) {
+        return NOT_COMPACT;
+      }
+      id = id << 5 | digit;
+    }
+    return id;
+  }
+
+  private Block reserve() {
+    final long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+    long current;
+    long start;
+    do {
+      current = reserved.get();
+      start = Math.max(current, now);
+    } while (!reserved.compareAndSet(current, start + blockSize));
+    return new Block(start, start + blockSize);
+  }
+
+  private static final class Block {
+
+    private final AtomicLong next;
+    private final long end;
+
+    private Block(long start, long end) {
+      this.next = new AtomicLong(start);
+      this.end = end;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.societegenerale.bankaccount.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.math.BigDecimal;
+
+/**
+ * Amount of money held as a whole number of cents.
+ *
+ * <p>Arithmetic is exact and throws an {@link ArithmeticException} on overflow instead of
+ * wrapping. {@link BigDecimal} is only used to convert from and to the outside world.
+ */
+public final class Money implements Comparable<Money> {
+
+  public static final int SCALE = 2;
+  public static final Money ZERO = new Money(0);
+
+  private static final int CENTS_PER_UNIT = 100;
+
+  private final long cents;
+
+  private Money(long cents) {
+    this.cents = cents;
+  }
+
+  public static Money ofCents(long cents) {
+    return cents == 0 ? ZERO : new Money(cents);
+  }
+
+  public static Money of(long units) {
+    return ofCents(Math.multiplyExact(units, CENTS_PER_UNIT));
+  }
+
+  /**
+   * Exact conversion: fails if {@code amount} has more than two significant decimals or does not
+   * fit in a {@code long} number of cents.
+   */
+  @JsonCreator
+  public static Money of(BigDecimal amount) {
+    return ofCents(amount.movePointRight(SCALE).longValueExact());
+  }
+
+  public long getCents() {
+    return cents;
+  }
+
+  public Money add(Money other) {
+    return ofCents(Math.addExact(cents, other.cents));
+  }
+
+  public Money subtract(Money other) {
+    return ofCents(Math.subtractExact(cents, other.cents));
+  }
+
+  public Money negate() {
+    return ofCents(Math.negateExact(cents));
+  }
+
+  public boolean isNegative() {
+    return cents < 0;
+  }
+
+  @JsonValue
+  public BigDecimal toBigDecimal() {
+    return BigDecimal.valueOf(cents, SCALE);
+  }
+
+  /**
+   * Appends this amount with exactly two decimals, without going through a {@code String}.
+   */
+  public StringBuilder appendTo(StringBuilder builder) {
+    final long units = cents / CENTS_PER_UNIT;
+    final int fraction = (int) Math.abs(cents % CENTS_PER_UNIT);
+    if (cents < 0 && units == 0) {
+      builder.append('-');
+    }
+    builder.append(units).append('.');
+    if (fraction < 10) {
+      builder.append('0');
+    }
+    return builder.append(fraction);
+  }
+
+  @Override
+  public int compareTo(Money other) {
+    return Long.compare(cents, other.cents);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Money && ((Money) other).cents == cents;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(cents);
+  }
+
+  @Override
+  public String toString() {
+    return appendTo(new StringBuilder(24)).toString();
+  }
+}
@@ -1,15 +1,18 @@
 package com.societegenerale.bankaccount.domain;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+/**
+ * A ledger entry. Transactions read from a {@link TransactionLog} are views over its columns and
+ * only answer through their getters.
+ */
 @Getter
 @RequiredArgsConstructor
 public class Transaction {
 
   private final TransactionType transactionType;
   private final LocalDateTime date;
-  private final BigDecimal amount;
+  private final Money amount;
 }
@@ -0,0 +1,23 @@
+package com.societegenerale.bankaccount.domain;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Cold storage for the old part of ledgers.
+ */
+public interface TransactionArchive {
+
+  /**
+   * Durably stores the transactions of each account dated before {@code before} that are not
+   * archived yet, and returns the whole archived part of every account that had any, keyed by
+   * account id. Accounts are not modified: callers swap in {@link Account#compact} themselves.
+   */
+  Map<String, ArchivedTransactions> archive(Collection<Account> accounts, LocalDateTime before);
+
+  /**
+   * What has been archived of an account so far.
+   */
+  ArchivedTransactions archived(String accountId);
+}
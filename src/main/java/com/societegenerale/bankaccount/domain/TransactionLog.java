@@ -0,0 +1,435 @@
+package com.societegenerale.bankaccount.domain;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent append-only list of transactions, stored column by column in primitive arrays.
+ *
+ * <p>Every version shares the same chunked storage and only remembers its own size, so
+ * {@link #append(Transaction)} is O(1) amortised and older versions stay valid and unchanged. The
+ * first version to append at a given size claims the slot; appending to a version that is no
+ * longer the newest one (a branch) copies its prefix into fresh storage. A version dropped before
+ * use gives its slots back with {@link #discard}, so its base does not become a branch.
+ *
+ * <p>A transaction takes 17 bytes: its type as a byte, its date in nanoseconds since the epoch
+ * (UTC), which covers the years 1677 to 2262, and the balance in cents right after it (a prefix
+ * sum), from which its amount is derived. {@link #get(int)} returns a flyweight view that reads
+ * these columns on each call, so transactions handed out are not the instances appended. As long
+ * as transactions are appended in date order, which is what {@link Account} does,
+ * date-range lookups and balances as of a date are answered by binary search in O(log n). Logs
+ * built from unordered transactions fall back to a linear scan.
+ *
+ * <p>{@link #compact} hands the oldest transactions over to {@link ArchivedTransactions}: they
+ * keep their positions and are read back from the archive when asked for, while the storage only
+ * holds the entries after them and their balances, which build on the archive's checkpoint.
+ */
+public final class TransactionLog extends AbstractList<Transaction> implements RandomAccess {
+
+  private static final int CHUNK_SHIFT = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  // Most ledgers are short: the first chunk starts small and doubles up to the full chunk size.
+  private static final int FIRST_CHUNK_CAPACITY = 8;
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+  private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+  private final Storage storage;
+  private final int size;
+  private final boolean ordered;
+  private final ArchivedTransactions archived;
+  private final int archivedSize;
+
+  private TransactionLog(Storage storage, int size, boolean ordered,
+      ArchivedTransactions archived) {
+    this.storage = storage;
+    this.size = size;
+    this.ordered = ordered;
+    this.archived = archived;
+    this.archivedSize = archived.size();
+  }
+
+  public static TransactionLog empty() {
+    return of(ArchivedTransactions.NONE, List.of());
+  }
+
+  /**
+   * Log made of archived transactions followed by {@code recent} ones.
+   */
+  public static TransactionLog of(ArchivedTransactions archived, List<Transaction> recent) {
+    TransactionLog log = new TransactionLog(new Storage(archived.balance().getCents()),
+        archived.size(), true, archived);
+    for (Transaction transaction : recent) {
+      log = log.append(transaction);
+    }
+    return log;
+  }
+
+  public static TransactionLog of(List<Transaction> transactions) {
+    if (transactions instanceof TransactionLog) {
+      return (TransactionLog) transactions;
+    }
+    TransactionLog log = empty();
+    for (Transaction transaction : transactions) {
+      log = log.append(transaction);
+    }
+    return log;
+  }
+
+  public TransactionLog append(Transaction transaction) {
+    final long balance = Math.addExact(balanceCents(), transaction.getAmount().getCents());
+    final long date;
+    try {
+      date = toEpochNanos(transaction.getDate());
+    } catch (ArithmeticException exception) {
+      throw new IllegalArgumentException("Transaction date out of range: "
+          + transaction.getDate());
+    }
+    final boolean stillOrdered = ordered && (size == 0 || date >= lastEpochNanos());
+    final int stored = size - archivedSize;
+    final Storage target = storage.claim(stored) ? storage : storage.copyOf(stored);
+    target.set(stored, (byte) transaction.getTransactionType().ordinal(), date, balance);
+    return new TransactionLog(target, size + 1, stillOrdered, archived);
+  }
+
+  /**
+   * Gives back the slots this version and the versions between it and {@code base}, which it was
+   * appended from, have claimed, so that the next append to {@code base} reuses them instead of
+   * copying. This version must not be read afterwards. Does nothing if another version was
+   * appended after this one.
+   */
+  public void discard(TransactionLog base) {
+    if (base.storage == storage) {
+      storage.unclaim(size - archivedSize, base.size - base.archivedSize);
+    }
+  }
+
+  /**
+   * Whether both versions share their storage, which appending to the newest version keeps.
+   */
+  boolean sharesStorageWith(TransactionLog other) {
+    return storage == other.storage;
+  }
+
+  /**
+   * Same transactions, with the first {@code archived.size()} of them served by {@code archived}
+   * instead of the heap. The archive must hold at least what this log already archived.
+   */
+  public TransactionLog compact(ArchivedTransactions archived) {
+    if (archived.size() < archivedSize || archived.size() > size) {
+      throw new IllegalArgumentException("Archive of " + archived.size()
+          + " transactions does not fit a log of " + size + " with " + archivedSize + " archived");
+    }
+    return new TransactionLog(storage.copyOf(archived.size() - archivedSize, size - archivedSize),
+        size, ordered, archived);
+  }
+
+  /**
+   * Number of leading transactions served by the archive.
+   */
+  public int archivedSize() {
+    return archivedSize;
+  }
+
+  /**
+   * Balance after the archived transactions.
+   */
+  public Money checkpointBalance() {
+    return archived.balance();
+  }
+
+  public Money balance() {
+    return Money.ofCents(balanceCents());
+  }
+
+  /**
+   * Date of the last transaction, or {@code null} when the log is empty.
+   */
+  public LocalDateTime lastDate() {
+    if (size == 0) {
+      return null;
+    }
+    return size > archivedSize ? fromEpochNanos(storage.dateAt(size - 1 - archivedSize))
+        : archived.lastDate();
+  }
+
+  /**
+   * Sum of the transactions dated at or before {@code date}.
+   */
+  public Money balanceAsOf(LocalDateTime date) {
+    if (!ordered) {
+      long balance = 0;
+      for (int index = 0; index < size; index++) {
+        final Transaction transaction = get(index);
+        if (!transaction.getDate().isAfter(date)) {
+          balance = Math.addExact(balance, transaction.getAmount().getCents());
+        }
+      }
+      return Money.ofCents(balance);
+    }
+    final int end = firstIndexAfter(date);
+    if (end == 0) {
+      return Money.ZERO;
+    }
+    return end <= archivedSize ? archived.balanceAt(end - 1)
+        : Money.ofCents(storage.balanceAt(end - 1 - archivedSize));
+  }
+
+  /**
+   * Transactions dated from {@code from} inclusive to {@code to} exclusive; a {@code null} bound
+   * is open.
+   */
+  public List<Transaction> between(LocalDateTime from, LocalDateTime to) {
+    if (!ordered) {
+      return stream()
+          .filter(transaction -> from == null || !transaction.getDate().isBefore(from))
+          .filter(transaction -> to == null || transaction.getDate().isBefore(to))
+          .toList();
+    }
+    final int start = scanStart(from);
+    return subList(start, Math.max(start, scanEnd(to)));
+  }
+
+  /**
+   * Position before which no transaction is dated at or after {@code from}: the first entry of a
+   * date-ordered log at or after that date, or 0 when the log is unordered or the bound is open.
+   */
+  public int scanStart(LocalDateTime from) {
+    return from == null || !ordered ? 0 : firstIndexAtOrAfter(from);
+  }
+
+  /**
+   * Position from which no transaction is dated before {@code to}: the first entry of a
+   * date-ordered log at or after that date, or the size when the log is unordered or the bound is
+   * open.
+   */
+  public int scanEnd(LocalDateTime to) {
+    return to == null || !ordered ? size : firstIndexAtOrAfter(to);
+  }
+
+  /**
+   * Position up to which every transaction is dated before {@code before}, so that they can be
+   * archived: {@link #scanStart} on a date-ordered log, otherwise the first entry after the
+   * archived ones that is not, found by a linear scan. Never less than {@link #archivedSize()}.
+   */
+  public int archiveEnd(LocalDateTime before) {
+    if (ordered) {
+      return Math.max(archivedSize, scanStart(before));
+    }
+    final long target = clampedEpochNanos(before);
+    int end = archivedSize;
+    while (end < size && storage.dateAt(end - archivedSize) < target) {
+      end++;
+    }
+    return end;
+  }
+
+  @Override
+  public Transaction get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return index < archivedSize ? archived.get(index)
+        : new StoredTransaction(storage, index - archivedSize);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private long balanceCents() {
+    return size > archivedSize ? storage.balanceAt(size - 1 - archivedSize)
+        : archived.balance().getCents();
+  }
+
+  private long lastEpochNanos() {
+    return size > archivedSize ? storage.dateAt(size - 1 - archivedSize)
+        : clampedEpochNanos(archived.lastDate());
+  }
+
+  private long dateAt(int index) {
+    return index < archivedSize ? clampedEpochNanos(archived.get(index).getDate())
+        : storage.dateAt(index - archivedSize);
+  }
+
+  // Searches only skip the archive when the date is past everything it holds.
+  private int firstIndexAtOrAfter(LocalDateTime date) {
+    int low = archivedSize > 0 && archived.lastDate().isBefore(date) ? archivedSize : 0;
+    int high = size;
+    final long target = clampedEpochNanos(date);
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (dateAt(middle) < target) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private int firstIndexAfter(LocalDateTime date) {
+    int low = archivedSize > 0 && !archived.lastDate().isAfter(date) ? archivedSize : 0;
+    int high = size;
+    final long target = clampedEpochNanos(date);
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (dateAt(middle) > target) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  private static long toEpochNanos(LocalDateTime date) {
+    return Math.addExact(
+        Math.multiplyExact(date.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND), date.getNano());
+  }
+
+  // Dates outside the stored range still compare correctly with every stored one.
+  private static long clampedEpochNanos(LocalDateTime date) {
+    final long seconds = date.toEpochSecond(ZoneOffset.UTC);
+    if (seconds >= Long.MAX_VALUE / NANOS_PER_SECOND) {
+      return Long.MAX_VALUE;
+    }
+    if (seconds <= Long.MIN_VALUE / NANOS_PER_SECOND) {
+      return Long.MIN_VALUE;
+    }
+    return seconds * NANOS_PER_SECOND + date.getNano();
+  }
+
+  private static LocalDateTime fromEpochNanos(long nanos) {
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND),
+        (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+  }
+
+  private static final class Storage {
+
+    private final AtomicInteger length = new AtomicInteger();
+    private final long startBalance;
+    private volatile Chunk[] chunks = new Chunk[1];
+
+    Storage(long startBalance) {
+      this.startBalance = startBalance;
+    }
+
+    boolean claim(int index) {
+      return length.compareAndSet(index, index + 1);
+    }
+
+    void unclaim(int claimed, int kept) {
+      length.compareAndSet(claimed, kept);
+    }
+
+    byte typeAt(int index) {
+      return chunks[index >>> CHUNK_SHIFT].types[index & CHUNK_MASK];
+    }
+
+    long dateAt(int index) {
+      return chunks[index >>> CHUNK_SHIFT].dates[index & CHUNK_MASK];
+    }
+
+    long balanceAt(int index) {
+      return chunks[index >>> CHUNK_SHIFT].balances[index & CHUNK_MASK];
+    }
+
+    long amountAt(int index) {
+      return balanceAt(index) - (index == 0 ? startBalance : balanceAt(index - 1));
+    }
+
+    // Only the owner of a claimed slot writes, and slots are claimed in order, so chunk
+    // allocation never races with another writer. A chunk that grows goes into a new outer
+    // array: readers still holding the old one keep seeing the old chunk.
+    void set(int index, byte type, long date, long balance) {
+      final int chunkIndex = index >>> CHUNK_SHIFT;
+      final int slot = index & CHUNK_MASK;
+      Chunk[] currentChunks = chunks;
+      Chunk chunk = chunkIndex < currentChunks.length ? currentChunks[chunkIndex] : null;
+      if (chunk == null || slot >= chunk.types.length) {
+        currentChunks = Arrays.copyOf(currentChunks,
+            chunkIndex < currentChunks.length ? currentChunks.length : currentChunks.length << 1);
+        final int capacity = chunk != null ? chunk.types.length << 1
+            : chunkIndex == 0 ? FIRST_CHUNK_CAPACITY : CHUNK_SIZE;
+        chunk = new Chunk(chunk, capacity);
+        currentChunks[chunkIndex] = chunk;
+      }
+      chunk.types[slot] = type;
+      chunk.dates[slot] = date;
+      chunk.balances[slot] = balance;
+      chunks = currentChunks;
+    }
+
+    Storage copyOf(int size) {
+      final Storage copy = copyOf(0, size);
+      copy.length.set(size + 1);
+      return copy;
+    }
+
+    Storage copyOf(int from, int to) {
+      final Storage copy = new Storage(from == 0 ? startBalance : balanceAt(from - 1));
+      for (int index = from; index < to; index++) {
+        copy.set(index - from, typeAt(index), dateAt(index), balanceAt(index));
+      }
+      copy.length.set(to - from);
+      return copy;
+    }
+  }
+
+  /**
+   * Up to {@value #CHUNK_SIZE} transactions, one array per column. Growing copies the columns in
+   * the constructor, so a reader that finds the new chunk sees every slot copied into it.
+   */
+  private static final class Chunk {
+
+    private final byte[] types;
+    private final long[] dates;
+    private final long[] balances;
+
+    Chunk(Chunk previous, int capacity) {
+      this.types = previous == null ? new byte[capacity]
+          : Arrays.copyOf(previous.types, capacity);
+      this.dates = previous == null ? new long[capacity]
+          : Arrays.copyOf(previous.dates, capacity);
+      this.balances = previous == null ? new long[capacity]
+          : Arrays.copyOf(previous.balances, capacity);
+    }
+  }
+
+  /**
+   * Flyweight over one stored transaction.
+   */
+  private static final class StoredTransaction extends Transaction {
+
+    private final Storage storage;
+    private final int index;
+
+    StoredTransaction(Storage storage, int index) {
+      super(null, null, null);
+      this.storage = storage;
+      this.index = index;
+    }
+
+    @Override
+    public TransactionType getTransactionType() {
+      return TRANSACTION_TYPES[storage.typeAt(index)];
+    }
+
+    @Override
+    public LocalDateTime getDate() {
+      return fromEpochNanos(storage.dateAt(index));
+    }
+
+    @Override
+    public Money getAmount() {
+      return Money.ofCents(storage.amountAt(index));
+    }
+  }
+}
@@ -2,5 +2,6 @@ package com.societegenerale.bankaccount.domain;
 
 public enum TransactionType {
   DEPOSIT,
-  WITHDRAWAL
+  WITHDRAWAL,
+  TRANSFER
 }
@@ -0,0 +1,12 @@
+package com.societegenerale.bankaccount.domain;
+
+/**
+ * Thrown by an {@link AccountRepository} when a change was written and published but could not be
+ * confirmed durable. The change must be treated as applied: running it again would apply it twice.
+ */
+public class UnconfirmedWriteException extends RuntimeException {
+
+  public UnconfirmedWriteException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,28 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.domain.AccountIdGenerator;
+import com.societegenerale.bankaccount.domain.AccountRepository;
+import com.societegenerale.bankaccount.domain.CompactAccountIds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AccountIdConfiguration {
+
+  // Recovered accounts may hold ids handed out ahead of the clock: new ones start above them.
+  @Bean
+  @ConditionalOnProperty(name = "bankaccount.ids.format", havingValue = "compact",
+      matchIfMissing = true)
+  public AccountIdGenerator compactAccountIds(AccountRepository accountRepository,
+      @Value("${bankaccount.ids.block-size:1024}") int blockSize) {
+    return CompactAccountIds.above(accountRepository.findAll(), blockSize);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "bankaccount.ids.format", havingValue = "uuid")
+  public AccountIdGenerator uuidAccountIds() {
+    return AccountIdGenerator.RANDOM_UUID;
+  }
+}
@@ -0,0 +1,171 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.CompactAccountIds;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Accounts by id, for the repositories. {@link CompactAccountIds compact ids} are parsed once and
+ * kept as primitive keys in open-addressing tables, 12 bytes per slot where a map would take a
+ * node per account; other ids, such as the UUIDs of older accounts, go to a
+ * {@link ConcurrentHashMap}.
+ *
+ * <p>Reads take no lock. Writes lock one of {@value #SEGMENTS} segments; a slot's key is written
+ * before its account is published, and a grown table is filled before it replaces the old one.
+ * Accounts are never removed.
+ */
+final class AccountMap {
+
+  private static final int SEGMENTS = 64;
+  private static final int SEGMENT_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(SEGMENTS);
+  private static final int INITIAL_CAPACITY = 16;
+  private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Account[].class);
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final Map<String, Account> others = new ConcurrentHashMap<>();
+
+  AccountMap() {
+    Arrays.setAll(segments, index -> new Segment());
+  }
+
+  Account get(String accountId) {
+    final long id = CompactAccountIds.parse(accountId);
+    if (id == CompactAccountIds.NOT_COMPACT) {
+      return others.get(accountId);
+    }
+    final long hash = hash(id);
+    return segments[(int) (hash >>> SEGMENT_SHIFT)].get(id, (int) hash);
+  }
+
+  void put(Account account) {
+    final long id = CompactAccountIds.parse(account.getAccountId());
+    if (id == CompactAccountIds.NOT_COMPACT) {
+      others.put(account.getAccountId(), account);
+      return;
+    }
+    final long hash = hash(id);
+    segments[(int) (hash >>> SEGMENT_SHIFT)].put(id, (int) hash, account);
+  }
+
+  int size() {
+    int size = others.size();
+    for (Segment segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  /**
+   * Weakly consistent view, like the values of a {@link ConcurrentHashMap}.
+   */
+  Collection<Account> values() {
+    return new AbstractCollection<>() {
+
+      @Override
+      public Iterator<Account> iterator() {
+        return Stream.concat(Arrays.stream(segments).flatMap(Segment::accounts),
+            others.values().stream()).iterator();
+      }
+
+      @Override
+      public int size() {
+        return AccountMap.this.size();
+      }
+    };
+  }
+
+  // Murmur3's finalizer: ids taken at different milliseconds share their low bits.
+  private static long hash(long id) {
+    long hash = (id ^ (id >>> 33)) * 0xFF51AFD7ED558CCDL;
+    hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return hash ^ (hash >>> 33);
+  }
+
+  private static final class Segment {
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private volatile int size;
+
+    Account get(long id, int hash) {
+      final Table current = table;
+      final int mask = current.keys.length - 1;
+      for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+        final Account account = (Account) SLOTS.getAcquire(current.accounts, slot);
+        if (account == null || current.keys[slot] == id) {
+          return account;
+        }
+      }
+    }
+
+    synchronized void put(long id, int hash, Account account) {
+      Table current = table;
+      if (!current.replace(id, hash, account)) {
+        if ((size + 1) * 4L > current.keys.length * 3L) {
+          current = current.grown();
+          table = current;
+        }
+        current.insert(id, hash, account);
+        size++;
+      }
+    }
+
+    Stream<Account> accounts() {
+      final Table current = table;
+      return IntStream.range(0, current.accounts.length)
+          .mapToObj(slot -> (Account) SLOTS.getAcquire(current.accounts, slot))
+          .filter(Objects::nonNull);
+    }
+  }
+
+  private static final class Table {
+
+    private final long[] keys;
+    private final Account[] accounts;
+
+    Table(int capacity) {
+      this.keys = new long[capacity];
+      this.accounts = new Account[capacity];
+    }
+
+    boolean replace(long id, int hash, Account account) {
+      final int mask = keys.length - 1;
+      for (int slot = hash & mask; accounts[slot] != null; slot = (slot + 1) & mask) {
+        if (keys[slot] == id) {
+          SLOTS.setRelease(accounts, slot, account);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    void insert(long id, int hash, Account account) {
+      final int mask = keys.length - 1;
+      int slot = hash & mask;
+      while (accounts[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      keys[slot] = id;
+      SLOTS.setRelease(accounts, slot, account);
+    }
+
+    Table grown() {
+      final Table grown = new Table(keys.length * 2);
+      for (int slot = 0; slot < keys.length; slot++) {
+        if (accounts[slot] != null) {
+          grown.insert(keys[slot], (int) hash(keys[slot]), accounts[slot]);
+        }
+      }
+      return grown;
+    }
+  }
+}
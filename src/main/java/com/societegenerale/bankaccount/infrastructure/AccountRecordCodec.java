@@ -0,0 +1,136 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionLog;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Binary layout of the records written to the {@link WriteAheadLog}: the id of an account, the
+ * ledger sequence of the first transaction carried and the transactions themselves. A record
+ * with no transaction marks the creation of an account. Changes to several accounts that must be
+ * applied together are written as a single record holding one such section per account.
+ * Archived transactions are left out, so a whole account is written from its first position on
+ * the heap.
+ */
+final class AccountRecordCodec {
+
+  // Kinds 1 and 2 stored amounts as BigDecimal and are no longer readable.
+  private static final byte TRANSACTIONS_APPENDED = 3;
+  private static final byte ACCOUNTS_UPDATED = 4;
+  private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+  private AccountRecordCodec() {
+  }
+
+  static ByteBuffer encode(Account account) {
+    return encode(account, account.getTransactions().archivedSize());
+  }
+
+  /**
+   * The account from position {@code firstSequence} on, which must be archived up to there.
+   */
+  static ByteBuffer encode(Account account, int firstSequence) {
+    final TransactionLog transactions = account.getTransactions();
+    return encode(account.getAccountId(), firstSequence,
+        transactions.subList(firstSequence, transactions.size()));
+  }
+
+  static ByteBuffer encode(String accountId, int firstSequence, List<Transaction> transactions) {
+    final AccountRecord record = new AccountRecord(accountId, firstSequence, transactions);
+    final ByteBuffer buffer = ByteBuffer.allocate(Byte.BYTES + sizeOf(record));
+    buffer.put(TRANSACTIONS_APPENDED);
+    write(buffer, record);
+    return buffer.flip();
+  }
+
+  static ByteBuffer encode(List<AccountRecord> records) {
+    int size = Byte.BYTES + Integer.BYTES;
+    for (AccountRecord record : records) {
+      size += sizeOf(record);
+    }
+    final ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.put(ACCOUNTS_UPDATED);
+    buffer.putInt(records.size());
+    for (AccountRecord record : records) {
+      write(buffer, record);
+    }
+    return buffer.flip();
+  }
+
+  static List<AccountRecord> decode(ByteBuffer buffer) {
+    final byte kind = buffer.get();
+    switch (kind) {
+      case TRANSACTIONS_APPENDED:
+        return List.of(read(buffer));
+      case ACCOUNTS_UPDATED:
+        final int count = buffer.getInt();
+        final List<AccountRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          records.add(read(buffer));
+        }
+        return records;
+      default:
+        throw new IllegalStateException("Unknown write-ahead log record kind: " + kind);
+    }
+  }
+
+  private static int sizeOf(AccountRecord record) {
+    int size = Short.BYTES + utf8Length(record.getAccountId()) + 2 * Integer.BYTES;
+    for (Transaction transaction : record.getTransactions()) {
+      size += Byte.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+    }
+    return size;
+  }
+
+  private static void write(ByteBuffer buffer, AccountRecord record) {
+    final byte[] id = record.getAccountId().getBytes(StandardCharsets.UTF_8);
+    buffer.putShort((short) id.length).put(id);
+    buffer.putInt(record.getFirstSequence());
+    buffer.putInt(record.getTransactions().size());
+    for (Transaction transaction : record.getTransactions()) {
+      final LocalDateTime date = transaction.getDate();
+      buffer.put((byte) transaction.getTransactionType().ordinal());
+      buffer.putLong(date.toEpochSecond(ZoneOffset.UTC));
+      buffer.putInt(date.getNano());
+      buffer.putLong(transaction.getAmount().getCents());
+    }
+  }
+
+  private static AccountRecord read(ByteBuffer buffer) {
+    final byte[] id = new byte[buffer.getShort()];
+    buffer.get(id);
+    final int firstSequence = buffer.getInt();
+    final int count = buffer.getInt();
+    final List<Transaction> transactions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final TransactionType type = TRANSACTION_TYPES[buffer.get()];
+      final LocalDateTime date = LocalDateTime
+          .ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+      transactions.add(new Transaction(type, date, Money.ofCents(buffer.getLong())));
+    }
+    return new AccountRecord(new String(id, StandardCharsets.UTF_8), firstSequence, transactions);
+  }
+
+  private static int utf8Length(String value) {
+    return value.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  static final class AccountRecord {
+
+    private final String accountId;
+    private final int firstSequence;
+    private final List<Transaction> transactions;
+  }
+}
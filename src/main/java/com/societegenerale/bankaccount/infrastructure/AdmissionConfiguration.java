@@ -0,0 +1,39 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.application.AdmissionControl;
+import com.societegenerale.bankaccount.application.AdmissionLimits;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "bankaccount.admission.enabled", havingValue = "true")
+public class AdmissionConfiguration {
+
+  @Bean
+  public AdmissionControl admissionControl(
+      @Value("${bankaccount.admission.account-rate:50}") double accountRate,
+      @Value("${bankaccount.admission.account-burst:100}") int accountBurst,
+      @Value("${bankaccount.admission.client-rate:500}") double clientRate,
+      @Value("${bankaccount.admission.client-burst:1000}") int clientBurst,
+      @Value("${bankaccount.admission.max-concurrent:256}") int maxConcurrent,
+      @Value("${bankaccount.admission.max-queued:512}") int maxQueued,
+      @Value("${bankaccount.admission.queue-timeout-ms:500}") long queueTimeoutMillis,
+      @Value("${bankaccount.admission.max-keys:100000}") int maxKeys,
+      MeterRegistry meterRegistry) {
+    return new AdmissionControl(new AdmissionLimits(accountRate, accountBurst, clientRate,
+        clientBurst, maxConcurrent, maxQueued, queueTimeoutMillis), maxKeys, meterRegistry);
+  }
+
+  @Bean
+  public AdmissionEndpoint admissionEndpoint(AdmissionControl admissionControl) {
+    return new AdmissionEndpoint(admissionControl);
+  }
+
+  @Bean
+  public AdmissionLimitsEndpoint admissionLimitsEndpoint(AdmissionControl admissionControl) {
+    return new AdmissionLimitsEndpoint(admissionControl);
+  }
+}
@@ -0,0 +1,25 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.application.AdmissionControl;
+import com.societegenerale.bankaccount.application.AdmissionLimits;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * {@code /actuator/admission}: reads the admission limits in force. They are replaced through
+ * {@link AdmissionLimitsEndpoint}, which is only served over JMX.
+ */
+@Endpoint(id = "admission")
+public class AdmissionEndpoint {
+
+  private final AdmissionControl admissionControl;
+
+  public AdmissionEndpoint(AdmissionControl admissionControl) {
+    this.admissionControl = admissionControl;
+  }
+
+  @ReadOperation
+  public AdmissionLimits limits() {
+    return admissionControl.getLimits();
+  }
+}
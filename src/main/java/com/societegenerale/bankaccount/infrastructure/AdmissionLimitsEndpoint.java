@@ -0,0 +1,53 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.application.AdmissionControl;
+import com.societegenerale.bankaccount.application.AdmissionLimits;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.JmxEndpoint;
+import org.springframework.lang.Nullable;
+
+/**
+ * Replaces any of the admission limits without a restart; limits left out keep their value. The
+ * application has no authentication, so this endpoint is never served over HTTP: it needs
+ * {@code spring.jmx.enabled=true} and {@code admissionlimits} in
+ * {@code management.endpoints.jmx.exposure.include}.
+ */
+@JmxEndpoint(id = "admissionlimits")
+public class AdmissionLimitsEndpoint {
+
+  private final AdmissionControl admissionControl;
+
+  public AdmissionLimitsEndpoint(AdmissionControl admissionControl) {
+    this.admissionControl = admissionControl;
+  }
+
+  @ReadOperation
+  public AdmissionLimits limits() {
+    return admissionControl.getLimits();
+  }
+
+  @WriteOperation
+  public AdmissionLimits update(@Nullable Double accountRate, @Nullable Integer accountBurst,
+      @Nullable Double clientRate, @Nullable Integer clientBurst, @Nullable Integer maxConcurrent,
+      @Nullable Integer maxQueued, @Nullable Long queueTimeoutMillis) {
+    synchronized (admissionControl) {
+      final AdmissionLimits current = admissionControl.getLimits();
+      final AdmissionLimits updated = new AdmissionLimits(
+          accountRate != null ? accountRate : current.getAccountRate(),
+          accountBurst != null ? accountBurst : current.getAccountBurst(),
+          clientRate != null ? clientRate : current.getClientRate(),
+          clientBurst != null ? clientBurst : current.getClientBurst(),
+          maxConcurrent != null ? maxConcurrent : current.getMaxConcurrent(),
+          maxQueued != null ? maxQueued : current.getMaxQueued(),
+          queueTimeoutMillis != null ? queueTimeoutMillis : current.getQueueTimeoutMillis());
+      try {
+        admissionControl.update(updated);
+      } catch (IllegalArgumentException e) {
+        throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+      }
+      return updated;
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.LedgerCompactor;
+import com.societegenerale.bankaccount.domain.TransactionArchive;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CompactionConfiguration {
+
+  @Bean
+  @ConditionalOnProperty(name = "bankaccount.compaction.enabled", havingValue = "true")
+  public LedgerCompactor ledgerCompactor(BankAccountService bankAccountService,
+      TransactionArchive transactionArchive,
+      @Value("${bankaccount.compaction.horizon-days:90}") long horizonDays,
+      @Value("${bankaccount.compaction.min-transactions:512}") int minimumTransactions,
+      @Value("${bankaccount.compaction.interval-ms:3600000}") long intervalMillis,
+      MeterRegistry meterRegistry) {
+    return new LedgerCompactor(bankAccountService, transactionArchive,
+        Duration.ofDays(horizonDays), minimumTransactions, intervalMillis, meterRegistry);
+  }
+}
@@ -0,0 +1,27 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.application.AccountExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class EngineConfiguration {
+
+  @Bean
+  @ConditionalOnProperty(name = "bankaccount.engine.mode", havingValue = "locking",
+      matchIfMissing = true)
+  public AccountExecutor lockingAccountExecutor(
+      @Value("${bankaccount.engine.lock-stripes:1024}") int stripeCount) {
+    return AccountExecutor.locking(stripeCount);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "bankaccount.engine.mode", havingValue = "sharded")
+  public AccountExecutor shardedAccountExecutor(
+      @Value("${bankaccount.engine.shards:4}") int shardCount,
+      @Value("${bankaccount.engine.queue-capacity:1024}") int capacity) {
+    return AccountExecutor.sharded(shardCount, capacity);
+  }
+}
@@ -0,0 +1,22 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.application.OverflowPolicy;
+import com.societegenerale.bankaccount.application.TransactionEventBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class EventConfiguration {
+
+  @Bean
+  public TransactionEventBus transactionEventBus(
+      @Value("${bankaccount.events.history-size:65536}") int historySize,
+      @Value("${bankaccount.events.subscriber-capacity:1024}") int subscriberCapacity,
+      @Value("${bankaccount.events.overflow:DROP_OLDEST}") OverflowPolicy overflowPolicy,
+      MeterRegistry meterRegistry) {
+    return new TransactionEventBus(historySize, subscriberCapacity, overflowPolicy,
+        meterRegistry);
+  }
+}
@@ -0,0 +1,201 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.AccountRepository;
+import com.societegenerale.bankaccount.domain.ArchivedTransactions;
+import com.societegenerale.bankaccount.domain.BankAccountException;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.infrastructure.AccountRecordCodec.AccountRecord;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Durable repository: accounts are served from memory and every change is appended to a
+ * {@link WriteAheadLog}. A change becomes visible as soon as its record is in the log and the
+ * caller returns once it is durable.
+ *
+ * <p>Every {@code snapshotIntervalMillis} a background thread writes all accounts to the
+ * {@link SnapshotStore} and drops the log segments it covers. On startup the latest snapshot is
+ * loaded and only the log written after it is replayed.
+ *
+ * <p>Transactions moved to an archive by ledger compaction are neither snapshotted nor replayed:
+ * records start at the first position left on the heap, and recovery takes the archived part of
+ * each account from the archive. Given an archive, a snapshot first moves there all but the last
+ * {@code snapshotTail} transactions of each account, so that snapshots, and the time recovery
+ * takes to read them, do not grow with the length of the history.
+ */
+public class FileAccountRepository implements AccountRepository, Closeable {
+
+  private final AccountMap accounts = new AccountMap();
+  private final WriteAheadLog log;
+  private final SnapshotStore snapshots;
+  private final Lock snapshotLock = new ReentrantLock();
+  private final ScheduledExecutorService snapshotScheduler;
+  private final LedgerArchive archive;
+  private final int snapshotTail;
+  private final Function<String, ArchivedTransactions> archived;
+
+  /**
+   * Repository without an archive: snapshots hold whole ledgers.
+   */
+  public FileAccountRepository(WriteAheadLog log, SnapshotStore snapshots,
+      long snapshotIntervalMillis) {
+    this(log, snapshots, null, 0, snapshotIntervalMillis);
+  }
+
+  public FileAccountRepository(WriteAheadLog log, SnapshotStore snapshots, LedgerArchive archive,
+      int snapshotTail, long snapshotIntervalMillis) {
+    if (snapshotTail < 0) {
+      throw new IllegalArgumentException("Snapshot tail must not be negative: " + snapshotTail);
+    }
+    this.log = log;
+    this.snapshots = snapshots;
+    this.archive = archive;
+    this.snapshotTail = snapshotTail;
+    this.archived = archive != null ? archive::archived : accountId -> ArchivedTransactions.NONE;
+    recover();
+    this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "account-snapshotter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    if (snapshotIntervalMillis > 0) {
+      snapshotScheduler.scheduleWithFixedDelay(this::snapshot, snapshotIntervalMillis,
+          snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void add(Account account) {
+    log.append(AccountRecordCodec.encode(account),
+        () -> accounts.put(account));
+  }
+
+  @Override
+  public Optional<Account> findById(String accountId) {
+    return Optional.ofNullable(accounts.get(accountId));
+  }
+
+  @Override
+  public void save(Account account) {
+    final AccountRecord record = appendedSinceLastSave(account);
+    if (record.getTransactions().isEmpty()) {
+      accounts.put(account);
+      return;
+    }
+    log.append(AccountRecordCodec.encode(record.getAccountId(), record.getFirstSequence(),
+        record.getTransactions()), () -> accounts.put(account));
+  }
+
+  @Override
+  public void saveAll(Collection<Account> updatedAccounts) {
+    final List<AccountRecord> records = new ArrayList<>(updatedAccounts.size());
+    for (Account account : updatedAccounts) {
+      final AccountRecord record = appendedSinceLastSave(account);
+      if (!record.getTransactions().isEmpty()) {
+        records.add(record);
+      }
+    }
+    final Runnable publish = () -> updatedAccounts.forEach(accounts::put);
+    if (records.isEmpty()) {
+      publish.run();
+      return;
+    }
+    log.append(AccountRecordCodec.encode(records), publish);
+  }
+
+  @Override
+  public Collection<Account> findAll() {
+    return Collections.unmodifiableCollection(accounts.values());
+  }
+
+  @Override
+  public int count() {
+    return accounts.size();
+  }
+
+  /**
+   * Writes every account to a new snapshot without blocking writers. Accounts are immutable, so
+   * each one is read as of some version at or after the captured log position; replay skips the
+   * entries the snapshot already holds. With an archive, each record starts where the archive
+   * ends, which may be past what the account in memory has compacted.
+   */
+  public void snapshot() {
+    if (!snapshotLock.tryLock()) {
+      return;
+    }
+    try {
+      final long position = log.position();
+      if (archive == null) {
+        snapshots.write(position, accounts.values());
+      } else {
+        archive.archiveAllBut(accounts.values(), snapshotTail);
+        snapshots.write(position, accounts.values(), account -> Math.min(
+            archived.apply(account.getAccountId()).size(), account.getTransactions().size()));
+      }
+      log.truncateBefore(position);
+    } finally {
+      snapshotLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    snapshotScheduler.shutdownNow();
+    snapshotLock.lock();
+    try {
+      log.close();
+    } finally {
+      snapshotLock.unlock();
+    }
+  }
+
+  private AccountRecord appendedSinceLastSave(Account account) {
+    final Account previous = accounts.get(account.getAccountId());
+    if (previous == null) {
+      throw new BankAccountException("Account not found");
+    }
+    final int firstSequence = previous.getTransactions().size();
+    return new AccountRecord(account.getAccountId(), firstSequence,
+        account.getTransactions().subList(firstSequence, account.getTransactions().size()));
+  }
+
+  private void recover() {
+    final Map<String, List<Transaction>> ledgers = new LinkedHashMap<>();
+    final Map<String, ArchivedTransactions> archives = new HashMap<>();
+    final Consumer<ByteBuffer> apply = buffer -> {
+      for (AccountRecord record : AccountRecordCodec.decode(buffer)) {
+        final List<Transaction> ledger = ledgers
+            .computeIfAbsent(record.getAccountId(), accountId -> new ArrayList<>());
+        final int end = archives.computeIfAbsent(record.getAccountId(), archived).size()
+            + ledger.size();
+        if (record.getFirstSequence() > end) {
+          throw new IllegalStateException("Gap in the ledger of account " + record.getAccountId());
+        }
+        // Entries already applied or archived are skipped, which makes replay idempotent.
+        for (int i = end - record.getFirstSequence(); i < record.getTransactions().size(); i++) {
+          ledger.add(record.getTransactions().get(i));
+        }
+      }
+    };
+    final long replayFrom = snapshots.readLatest(apply).orElse(0L);
+    log.replay(replayFrom, apply);
+    ledgers.forEach((accountId, ledger) -> accounts
+        .put(new Account(accountId, archives.get(accountId), ledger)));
+  }
+}
@@ -0,0 +1,20 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.application.IdempotencyCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdempotencyConfiguration {
+
+  @Bean
+  public IdempotencyCache idempotencyCache(
+      @Value("${bankaccount.idempotency.max-keys:100000}") long maximumSize,
+      @Value("${bankaccount.idempotency.ttl-ms:86400000}") long timeToLiveMillis,
+      MeterRegistry meterRegistry) {
+    return new IdempotencyCache(maximumSize, Duration.ofMillis(timeToLiveMillis), meterRegistry);
+  }
+}
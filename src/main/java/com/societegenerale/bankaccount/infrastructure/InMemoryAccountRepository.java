@@ -0,0 +1,51 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.AccountRepository;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+public class InMemoryAccountRepository implements AccountRepository {
+
+  private final AccountMap accounts = new AccountMap();
+
+  public InMemoryAccountRepository() {
+    this(Collections.emptyMap());
+  }
+
+  public InMemoryAccountRepository(Map<String, Account> accounts) {
+    accounts.values().forEach(this.accounts::put);
+  }
+
+  @Override
+  public void add(Account account) {
+    accounts.put(account);
+  }
+
+  @Override
+  public Optional<Account> findById(String accountId) {
+    return Optional.ofNullable(accounts.get(accountId));
+  }
+
+  @Override
+  public void save(Account account) {
+    accounts.put(account);
+  }
+
+  @Override
+  public void saveAll(Collection<Account> updatedAccounts) {
+    updatedAccounts.forEach(this::save);
+  }
+
+  @Override
+  public Collection<Account> findAll() {
+    return Collections.unmodifiableCollection(accounts.values());
+  }
+
+  @Override
+  public int count() {
+    return accounts.size();
+  }
+}
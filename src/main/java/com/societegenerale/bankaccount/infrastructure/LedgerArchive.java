@@ -0,0 +1,570 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.ArchivedTransactions;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionArchive;
+import com.societegenerale.bankaccount.domain.TransactionLog;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * {@link TransactionArchive} kept in compressed segment files.
+ *
+ * <p>Each {@link #archive} call writes one segment. For every account it holds the newly archived
+ * transactions in blocks of {@value #BLOCK_SIZE}, delta-encoded and deflated one by one so that a
+ * block is read without the others, followed by an index of the blocks and a trailer pointing at
+ * it. Only the index stays on the heap; blocks are read when a transaction is asked for and the
+ * most recently used ones are cached. Segments are written under a temporary name and renamed
+ * once durable, so a crash leaves either the whole segment or none.
+ */
+public class LedgerArchive implements TransactionArchive, Closeable {
+
+  static final int BLOCK_SIZE = 512;
+
+  private static final String SEGMENT_PREFIX = "ledger-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  private static final int MAGIC = 0x4C444752;
+  private static final int TRAILER_SIZE = Long.BYTES + 2 * Integer.BYTES;
+  // Type, then varints for the date delta, the nanoseconds and the amount.
+  private static final int MAX_ENCODED_TRANSACTION = 1 + 10 + 5 + 10;
+  private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+  private final Map<String, Ledger> ledgers = new ConcurrentHashMap<>();
+  private final List<FileChannel> channels = new CopyOnWriteArrayList<>();
+  private final Map<BlockRef, Block> cache;
+  private final Ledger empty = new Ledger(new BlockRef[0], 0, 0, LocalDateTime.MIN);
+  private final boolean temporary;
+  private Path directory;
+  private int nextSegment;
+
+  public LedgerArchive(Path directory, int cacheBlocks) {
+    this(directory, cacheBlocks, false);
+    try {
+      Files.createDirectories(directory);
+      for (Path segment : files(TEMPORARY_SUFFIX)) {
+        Files.delete(segment);
+      }
+      for (Path segment : files(SEGMENT_SUFFIX)) {
+        load(segment);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read archive from " + directory, e);
+    }
+  }
+
+  private LedgerArchive(Path directory, int cacheBlocks, boolean temporary) {
+    this.directory = directory;
+    this.temporary = temporary;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<BlockRef, Block> eldest) {
+        return size() > cacheBlocks;
+      }
+    };
+  }
+
+  /**
+   * Archive for accounts that are not persisted: segments go to a temporary directory, created on
+   * the first archiving and deleted on {@link #close()}.
+   */
+  public static LedgerArchive temporary(int cacheBlocks) {
+    return new LedgerArchive(null, cacheBlocks, true);
+  }
+
+  @Override
+  public Map<String, ArchivedTransactions> archive(Collection<Account> accounts,
+      LocalDateTime before) {
+    return archive(accounts, transactions -> transactions.archiveEnd(before));
+  }
+
+  /**
+   * Durably stores all but the last {@code tail} transactions of each account, whatever their
+   * dates, as {@link #archive} does. Accounts with less than a block to add are left out, so
+   * that calling this often does not write a sliver of every ledger.
+   */
+  public Map<String, ArchivedTransactions> archiveAllBut(Collection<Account> accounts, int tail) {
+    final List<Account> longer = accounts.stream()
+        .filter(account -> account.getTransactions().size() - tail
+            - ledger(account.getAccountId()).size >= BLOCK_SIZE)
+        .toList();
+    return longer.isEmpty() ? Map.of()
+        : archive(longer, transactions -> transactions.size() - tail);
+  }
+
+  private synchronized Map<String, ArchivedTransactions> archive(Collection<Account> accounts,
+      ToIntFunction<TransactionLog> ends) {
+    final Map<String, Ledger> archived = new LinkedHashMap<>();
+    final Path target;
+    try {
+      if (directory == null) {
+        directory = Files.createTempDirectory("ledger-archive");
+      }
+      target = directory.resolve(segmentName(nextSegment));
+      final Path temporaryFile = target.resolveSibling(target.getFileName() + TEMPORARY_SUFFIX);
+      final List<BlockRef> blocks = new ArrayList<>();
+      final ByteBuffer index = ByteBuffer.allocate(1 << 16);
+      try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        writeFully(channel, ByteBuffer.allocate(Integer.BYTES).putInt(MAGIC).flip());
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+          for (Account account : accounts) {
+            final Ledger previous = ledger(account.getAccountId());
+            final TransactionLog transactions = account.getTransactions();
+            final int end = ends.applyAsInt(transactions);
+            if (end <= previous.size) {
+              continue;
+            }
+            blocks.clear();
+            long balance = previous.balanceCents;
+            for (int first = previous.size; first < end; first += BLOCK_SIZE) {
+              final BlockRef block = writeBlock(channel, deflater, transactions, first,
+                  Math.min(first + BLOCK_SIZE, end), balance);
+              blocks.add(block);
+              balance = Math.addExact(balance, block.sumCents);
+            }
+            final Ledger ledger = previous.extend(blocks, balance,
+                transactions.get(end - 1).getDate());
+            archived.put(account.getAccountId(), ledger);
+          }
+        } finally {
+          deflater.end();
+        }
+        if (archived.isEmpty()) {
+          channel.close();
+          Files.delete(temporaryFile);
+          return Map.of();
+        }
+        final long indexPosition = channel.position();
+        final ByteBuffer encodedIndex = encodeIndex(archived, index);
+        final CRC32C crc = new CRC32C();
+        crc.update(encodedIndex.duplicate());
+        writeFully(channel, encodedIndex);
+        writeFully(channel, ByteBuffer.allocate(TRAILER_SIZE).putLong(indexPosition)
+            .putInt((int) crc.getValue()).putInt(MAGIC).flip());
+        channel.force(true);
+      }
+      Files.move(temporaryFile, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write archive segment in " + directory, e);
+    }
+    nextSegment++;
+    openSegment(target, archived.values());
+    ledgers.putAll(archived);
+    return new LinkedHashMap<>(archived);
+  }
+
+  @Override
+  public ArchivedTransactions archived(String accountId) {
+    return ledger(accountId);
+  }
+
+  @Override
+  public synchronized void close() {
+    for (FileChannel channel : channels) {
+      try {
+        channel.close();
+      } catch (IOException ignored) {
+        // Read-only channel; nothing left to lose.
+      }
+    }
+    if (temporary && directory != null) {
+      try {
+        FileSystemUtils.deleteRecursively(directory);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot delete archive " + directory, e);
+      }
+    }
+  }
+
+  private Ledger ledger(String accountId) {
+    return ledgers.getOrDefault(accountId, empty);
+  }
+
+  private static BlockRef writeBlock(FileChannel channel, Deflater deflater,
+      TransactionLog transactions, int first, int end, long startBalance) throws IOException {
+    final ByteBuffer raw = ByteBuffer.allocate((end - first) * MAX_ENCODED_TRANSACTION);
+    long previousSecond = 0;
+    long sum = 0;
+    for (int index = first; index < end; index++) {
+      final Transaction transaction = transactions.get(index);
+      final long second = transaction.getDate().toEpochSecond(ZoneOffset.UTC);
+      raw.put((byte) transaction.getTransactionType().ordinal());
+      putVarLong(raw, zigZag(second - previousSecond));
+      putVarLong(raw, transaction.getDate().getNano());
+      putVarLong(raw, zigZag(transaction.getAmount().getCents()));
+      previousSecond = second;
+      sum = Math.addExact(sum, transaction.getAmount().getCents());
+    }
+    deflater.reset();
+    deflater.setInput(raw.flip());
+    deflater.finish();
+    final ByteBuffer compressed = ByteBuffer.allocate(raw.remaining() + 64);
+    while (!deflater.finished()) {
+      deflater.deflate(compressed);
+    }
+    final CRC32C crc = new CRC32C();
+    crc.update(compressed.flip().duplicate());
+    final long position = channel.position();
+    final int length = compressed.remaining();
+    writeFully(channel, compressed);
+    return new BlockRef(position, length, (int) crc.getValue(), first, end - first,
+        startBalance, sum);
+  }
+
+  private static ByteBuffer encodeIndex(Map<String, Ledger> archived, ByteBuffer buffer) {
+    buffer.clear();
+    buffer.putInt(archived.size());
+    for (Map.Entry<String, Ledger> entry : archived.entrySet()) {
+      final byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+      final Ledger ledger = entry.getValue();
+      final List<BlockRef> blocks = ledger.blocksOfLastSegment();
+      buffer = ensureRemaining(buffer, Short.BYTES + id.length + 24 + blocks.size() * 36);
+      buffer.putShort((short) id.length).put(id);
+      buffer.putLong(ledger.lastDate.toEpochSecond(ZoneOffset.UTC));
+      buffer.putInt(ledger.lastDate.getNano());
+      buffer.putInt(blocks.size());
+      for (BlockRef block : blocks) {
+        buffer.putLong(block.position).putInt(block.length).putInt(block.crc)
+            .putInt(block.first).putInt(block.count).putLong(block.startBalance);
+      }
+      buffer.putLong(ledger.balanceCents);
+    }
+    return buffer.flip();
+  }
+
+  private static ByteBuffer ensureRemaining(ByteBuffer buffer, int bytes) {
+    if (buffer.remaining() >= bytes) {
+      return buffer;
+    }
+    final ByteBuffer larger = ByteBuffer
+        .allocate(Math.max(buffer.capacity() << 1, buffer.position() + bytes));
+    return larger.put(buffer.flip());
+  }
+
+  private void load(Path segment) throws IOException {
+    final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ);
+    final long size = channel.size();
+    final ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+    if (size < Integer.BYTES + TRAILER_SIZE) {
+      channel.close();
+      throw new IllegalStateException("Truncated archive segment " + segment);
+    }
+    readFully(channel, trailer, size - TRAILER_SIZE);
+    final long indexPosition = trailer.getLong(0);
+    if (trailer.getInt(Long.BYTES + Integer.BYTES) != MAGIC) {
+      channel.close();
+      throw new IllegalStateException("Not an archive segment: " + segment);
+    }
+    final ByteBuffer index = ByteBuffer.allocate((int) (size - TRAILER_SIZE - indexPosition));
+    readFully(channel, index, indexPosition);
+    final CRC32C crc = new CRC32C();
+    crc.update(index.duplicate());
+    if ((int) crc.getValue() != trailer.getInt(Long.BYTES)) {
+      channel.close();
+      throw new IllegalStateException("Corrupt index in archive segment " + segment);
+    }
+    channels.add(channel);
+    final int accounts = index.getInt();
+    for (int i = 0; i < accounts; i++) {
+      final byte[] id = new byte[index.getShort()];
+      index.get(id);
+      final String accountId = new String(id, StandardCharsets.UTF_8);
+      final LocalDateTime lastDate = LocalDateTime
+          .ofEpochSecond(index.getLong(), index.getInt(), ZoneOffset.UTC);
+      final List<BlockRef> blocks = new ArrayList<>();
+      final int blockCount = index.getInt();
+      for (int j = 0; j < blockCount; j++) {
+        final BlockRef block = new BlockRef(index.getLong(), index.getInt(), index.getInt(),
+            index.getInt(), index.getInt(), index.getLong(), 0);
+        block.channel = channel;
+        blocks.add(block);
+      }
+      final long balanceCents = index.getLong();
+      final Ledger previous = ledger(accountId);
+      if (blocks.get(0).first != previous.size) {
+        throw new IllegalStateException("Gap in the archive of account " + accountId);
+      }
+      ledgers.put(accountId, previous.extend(blocks, balanceCents, lastDate));
+    }
+    nextSegment = Math.max(nextSegment, segmentNumber(segment) + 1);
+  }
+
+  private void openSegment(Path segment, Collection<Ledger> archived) {
+    try {
+      final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ);
+      channels.add(channel);
+      for (Ledger ledger : archived) {
+        ledger.blocksOfLastSegment().forEach(block -> block.channel = channel);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open archive segment " + segment, e);
+    }
+  }
+
+  private Block read(BlockRef ref) {
+    synchronized (cache) {
+      final Block cached = cache.get(ref);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    final Block block = decode(ref);
+    synchronized (cache) {
+      cache.put(ref, block);
+    }
+    return block;
+  }
+
+  private static Block decode(BlockRef ref) {
+    final ByteBuffer compressed = ByteBuffer.allocate(ref.length);
+    final ByteBuffer raw = ByteBuffer.allocate(ref.count * MAX_ENCODED_TRANSACTION);
+    final Inflater inflater = new Inflater();
+    try {
+      readFully(ref.channel, compressed, ref.position);
+      final CRC32C crc = new CRC32C();
+      crc.update(compressed.duplicate());
+      if ((int) crc.getValue() != ref.crc) {
+        throw new IllegalStateException("Corrupt archive block at " + ref.position);
+      }
+      inflater.setInput(compressed);
+      while (!inflater.finished() && inflater.inflate(raw) > 0) {
+        // Inflates until the block is complete.
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read archive block", e);
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupt archive block at " + ref.position, e);
+    } finally {
+      inflater.end();
+    }
+    raw.flip();
+    final Transaction[] transactions = new Transaction[ref.count];
+    final long[] balances = new long[ref.count];
+    long second = 0;
+    long balance = ref.startBalance;
+    for (int i = 0; i < ref.count; i++) {
+      final TransactionType type = TRANSACTION_TYPES[raw.get()];
+      second += unZigZag(getVarLong(raw));
+      final LocalDateTime date = LocalDateTime
+          .ofEpochSecond(second, (int) getVarLong(raw), ZoneOffset.UTC);
+      final long cents = unZigZag(getVarLong(raw));
+      balance += cents;
+      transactions[i] = new Transaction(type, date, Money.ofCents(cents));
+      balances[i] = balance;
+    }
+    return new Block(transactions, balances);
+  }
+
+  private static void putVarLong(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static long getVarLong(ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte current;
+    do {
+      current = buffer.get();
+      value |= (long) (current & 0x7F) << shift;
+      shift += 7;
+    } while (current < 0);
+    return value;
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Truncated archive segment");
+      }
+    }
+    buffer.flip();
+  }
+
+  private List<Path> files(String suffix) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> {
+            final String name = path.getFileName().toString();
+            return name.startsWith(SEGMENT_PREFIX) && name.endsWith(suffix);
+          })
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static String segmentName(int number) {
+    return String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+  }
+
+  private static int segmentNumber(Path segment) {
+    final String name = segment.getFileName().toString();
+    return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+        name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * Where a block lives and what it starts from. Its channel is set once the segment is open.
+   */
+  private static final class BlockRef {
+
+    private final long position;
+    private final int length;
+    private final int crc;
+    private final int first;
+    private final int count;
+    private final long startBalance;
+    private final long sumCents;
+    private volatile FileChannel channel;
+
+    BlockRef(long position, int length, int crc, int first, int count, long startBalance,
+        long sumCents) {
+      this.position = position;
+      this.length = length;
+      this.crc = crc;
+      this.first = first;
+      this.count = count;
+      this.startBalance = startBalance;
+      this.sumCents = sumCents;
+    }
+  }
+
+  private static final class Block {
+
+    private final Transaction[] transactions;
+    private final long[] balances;
+
+    Block(Transaction[] transactions, long[] balances) {
+      this.transactions = transactions;
+      this.balances = balances;
+    }
+  }
+
+  /**
+   * Archived part of one account: the index of its blocks across segments. Immutable; archiving
+   * more replaces it.
+   */
+  private final class Ledger implements ArchivedTransactions {
+
+    private final BlockRef[] blocks;
+    private final int lastSegmentStart;
+    private final int size;
+    private final long balanceCents;
+    private final LocalDateTime lastDate;
+
+    Ledger(BlockRef[] blocks, int lastSegmentStart, long balanceCents, LocalDateTime lastDate) {
+      this.blocks = blocks;
+      this.lastSegmentStart = lastSegmentStart;
+      this.size = blocks.length == 0 ? 0
+          : blocks[blocks.length - 1].first + blocks[blocks.length - 1].count;
+      this.balanceCents = balanceCents;
+      this.lastDate = lastDate;
+    }
+
+    Ledger extend(List<BlockRef> added, long balanceCents, LocalDateTime lastDate) {
+      final BlockRef[] extended = Arrays.copyOf(blocks, blocks.length + added.size());
+      for (int i = 0; i < added.size(); i++) {
+        extended[blocks.length + i] = added.get(i);
+      }
+      return new Ledger(extended, blocks.length, balanceCents, lastDate);
+    }
+
+    List<BlockRef> blocksOfLastSegment() {
+      return Arrays.asList(blocks).subList(lastSegmentStart, blocks.length);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Transaction get(int index) {
+      final BlockRef ref = blockFor(index);
+      return read(ref).transactions[index - ref.first];
+    }
+
+    @Override
+    public Money balanceAt(int index) {
+      final BlockRef ref = blockFor(index);
+      return Money.ofCents(read(ref).balances[index - ref.first]);
+    }
+
+    @Override
+    public Money balance() {
+      return Money.ofCents(balanceCents);
+    }
+
+    @Override
+    public LocalDateTime lastDate() {
+      return lastDate;
+    }
+
+    private BlockRef blockFor(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      int low = 0;
+      int high = blocks.length - 1;
+      while (low < high) {
+        final int middle = (low + high + 1) >>> 1;
+        if (blocks[middle].first <= index) {
+          low = middle;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return blocks[low];
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.domain.AccountRepository;
+import java.nio.file.Path;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PersistenceConfiguration {
+
+  @Bean
+  @ConditionalOnProperty(name = "bankaccount.persistence.mode", havingValue = "memory",
+      matchIfMissing = true)
+  public AccountRepository inMemoryAccountRepository() {
+    return new InMemoryAccountRepository();
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "bankaccount.persistence.mode", havingValue = "memory",
+      matchIfMissing = true)
+  public LedgerArchive temporaryLedgerArchive(
+      @Value("${bankaccount.compaction.cache-blocks:256}") int cacheBlocks) {
+    return LedgerArchive.temporary(cacheBlocks);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "bankaccount.persistence.mode", havingValue = "file")
+  public LedgerArchive fileLedgerArchive(
+      @Value("${bankaccount.persistence.directory:data}") Path directory,
+      @Value("${bankaccount.compaction.cache-blocks:256}") int cacheBlocks) {
+    return new LedgerArchive(directory.resolve("archive"), cacheBlocks);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "bankaccount.persistence.mode", havingValue = "file")
+  public AccountRepository fileAccountRepository(LedgerArchive ledgerArchive,
+      @Value("${bankaccount.persistence.directory:data}") Path directory,
+      @Value("${bankaccount.persistence.wal.segment-size:67108864}") int segmentSize,
+      @Value("${bankaccount.persistence.wal.fsync-batch-size:64}") int fsyncBatchSize,
+      @Value("${bankaccount.persistence.wal.fsync-interval-ms:2}") long fsyncIntervalMillis,
+      @Value("${bankaccount.persistence.snapshot.interval-ms:300000}")
+          long snapshotIntervalMillis,
+      @Value("${bankaccount.persistence.snapshot.tail:1024}") int snapshotTail) {
+    return new FileAccountRepository(
+        new WriteAheadLog(directory, segmentSize, fsyncBatchSize, fsyncIntervalMillis),
+        new SnapshotStore(directory), ledgerArchive, snapshotTail, snapshotIntervalMillis);
+  }
+}
@@ -0,0 +1,21 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Serves the reactive stack with Netty rather than Tomcat, which Spring Boot prefers when both are
+ * present: Netty has no connection limit and only runs one event-loop thread per core.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveServerConfiguration {
+
+  @Bean
+  public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+    return new NettyReactiveWebServerFactory();
+  }
+}
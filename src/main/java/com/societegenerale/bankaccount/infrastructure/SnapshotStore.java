@@ -0,0 +1,184 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.domain.Account;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Point-in-time copies of every account, stored next to the {@link WriteAheadLog}.
+ *
+ * <p>A snapshot file starts with the log position it was taken at, followed by one
+ * {@link AccountRecordCodec} record per account framed as {@code [length][crc32c][payload]} and
+ * terminated by a zero length. Records only hold the transactions after the archived ones. Files
+ * are written under a temporary name and renamed once complete, so a crash while snapshotting
+ * leaves the previous snapshot in place.
+ */
+public class SnapshotStore {
+
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".bin";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  private static final int MAGIC = 0x534E4150;
+  private static final int HEADER_SIZE = 2 * Integer.BYTES;
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final Path directory;
+
+  public SnapshotStore(Path directory) {
+    this.directory = directory;
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot create snapshot directory " + directory, e);
+    }
+  }
+
+  public void write(long logPosition, Iterable<Account> accounts) {
+    write(logPosition, accounts, account -> account.getTransactions().archivedSize());
+  }
+
+  /**
+   * Writes each account from position {@code firstSequence} on; what comes before must be held by
+   * the archive.
+   */
+  public void write(long logPosition, Iterable<Account> accounts,
+      ToIntFunction<Account> firstSequence) {
+    final Path target = directory.resolve(snapshotName(logPosition));
+    final Path temporary = target.resolveSibling(target.getFileName() + TEMPORARY_SUFFIX);
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      buffer.putInt(MAGIC).putLong(logPosition);
+      for (Account account : accounts) {
+        final ByteBuffer record = AccountRecordCodec.encode(account,
+            firstSequence.applyAsInt(account));
+        final CRC32C crc = new CRC32C();
+        crc.update(record.duplicate());
+        ensureRemaining(channel, buffer, HEADER_SIZE);
+        buffer.putInt(record.remaining()).putInt((int) crc.getValue());
+        if (record.remaining() > buffer.remaining()) {
+          drain(channel, buffer);
+          writeFully(channel, record);
+        } else {
+          buffer.put(record);
+        }
+      }
+      ensureRemaining(channel, buffer, Integer.BYTES);
+      buffer.putInt(0);
+      drain(channel, buffer);
+      channel.force(true);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write snapshot " + target, e);
+    }
+    try {
+      Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+      for (Path snapshot : snapshots()) {
+        if (!snapshot.equals(target)) {
+          Files.delete(snapshot);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot publish snapshot " + target, e);
+    }
+  }
+
+  /**
+   * Feeds every account record of the latest snapshot to the consumer and returns the log
+   * position to resume replaying from, if there is a snapshot at all.
+   */
+  public Optional<Long> readLatest(Consumer<ByteBuffer> consumer) {
+    try {
+      final List<Path> snapshots = snapshots();
+      if (snapshots.isEmpty()) {
+        return Optional.empty();
+      }
+      final Path latest = snapshots.get(snapshots.size() - 1);
+      try (FileChannel channel = FileChannel.open(latest, StandardOpenOption.READ)) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        readFully(channel, buffer.limit(Integer.BYTES + Long.BYTES));
+        if (buffer.getInt(0) != MAGIC) {
+          throw new IllegalStateException("Not a snapshot file: " + latest);
+        }
+        final long logPosition = buffer.getLong(Integer.BYTES);
+        while (true) {
+          readFully(channel, buffer.clear().limit(Integer.BYTES));
+          final int length = buffer.getInt(0);
+          if (length == 0) {
+            return Optional.of(logPosition);
+          }
+          readFully(channel, buffer.clear().limit(Integer.BYTES));
+          final int expectedCrc = buffer.getInt(0);
+          if (length > buffer.capacity()) {
+            buffer = ByteBuffer.allocateDirect(length);
+          }
+          readFully(channel, buffer.clear().limit(length));
+          final CRC32C crc = new CRC32C();
+          crc.update(buffer.flip().duplicate());
+          if ((int) crc.getValue() != expectedCrc) {
+            throw new IllegalStateException("Corrupt record in snapshot " + latest);
+          }
+          consumer.accept(buffer);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read snapshot from " + directory, e);
+    }
+  }
+
+  private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes)
+      throws IOException {
+    if (buffer.remaining() < bytes) {
+      drain(channel, buffer);
+    }
+  }
+
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    writeFully(channel, buffer.flip());
+    buffer.clear();
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.position(0);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException("Truncated snapshot");
+      }
+    }
+  }
+
+  private List<Path> snapshots() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> {
+            final String name = path.getFileName().toString();
+            return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+          })
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static String snapshotName(long logPosition) {
+    return String.format("%s%020d%s", SNAPSHOT_PREFIX, logPosition, SNAPSHOT_SUFFIX);
+  }
+}
@@ -0,0 +1,36 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.StatementJob;
+import com.societegenerale.bankaccount.application.StatementPrinter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StatementConfiguration {
+
+  @Bean
+  public StatementPrinter statementPrinter(
+      @Value("${bankaccount.statement.file:}") String file,
+      @Value("${bankaccount.statement.queue-capacity:1024}") int capacity) {
+    return file.isEmpty() ? new StatementPrinter(System.out, capacity)
+        : StatementPrinter.toFile(Path.of(file), capacity);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "bankaccount.statement.batch.enabled", havingValue = "true")
+  public StatementJob statementJob(BankAccountService bankAccountService,
+      @Value("${bankaccount.statement.batch.directory:statements}") String directory,
+      @Value("${bankaccount.statement.batch.shards:64}") int shards,
+      @Value("${bankaccount.statement.batch.parallelism:0}") int parallelism,
+      @Value("${bankaccount.statement.batch.run-at:}") String runAt,
+      MeterRegistry meterRegistry) {
+    return new StatementJob(bankAccountService, Path.of(directory), shards, parallelism,
+        runAt.isEmpty() ? null : LocalTime.parse(runAt), meterRegistry);
+  }
+}
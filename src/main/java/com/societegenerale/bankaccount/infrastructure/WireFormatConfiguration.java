@@ -0,0 +1,94 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Binary encodings offered next to JSON, chosen by the {@code Accept} and {@code Content-Type}
+ * headers: CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}). Smile
+ * also back-references repeated short string values, such as transaction types. The servlet stack
+ * uses the message converters, the reactive stack the codecs.
+ */
+@Configuration
+public class WireFormatConfiguration {
+
+  private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+    return new MappingJackson2CborHttpMessageConverter(cborMapper());
+  }
+
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+    return new MappingJackson2SmileHttpMessageConverter(smileMapper());
+  }
+
+  @Bean
+  public CodecCustomizer binaryCodecCustomizer(ObjectMapper objectMapper) {
+    final ObjectMapper cbor = cborMapper();
+    final ObjectMapper smile = smileMapper();
+    // Custom codecs are tried before the default ones: JSON goes first so that it still answers
+    // "Accept: */*", and the binary codecs name their media type or they would claim JSON too.
+    return configurer -> {
+      configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+      configurer.customCodecs().register(new SingleValueCborEncoder(cbor));
+      configurer.customCodecs().register(new Jackson2CborDecoder(cbor, MediaType.APPLICATION_CBOR));
+      configurer.customCodecs().register(new Jackson2SmileEncoder(smile, SMILE));
+      configurer.customCodecs().register(new Jackson2SmileDecoder(smile, SMILE));
+    };
+  }
+
+  private static ObjectMapper cborMapper() {
+    return Jackson2ObjectMapperBuilder.cbor().build();
+  }
+
+  private static ObjectMapper smileMapper() {
+    return Jackson2ObjectMapperBuilder.smile()
+        .factory(SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build())
+        .build();
+  }
+
+  /**
+   * Spring's CBOR encoder refuses every publisher, even the single value of a {@code Mono}.
+   */
+  private static final class SingleValueCborEncoder extends Jackson2CborEncoder {
+
+    SingleValueCborEncoder(ObjectMapper mapper) {
+      super(mapper, MediaType.APPLICATION_CBOR);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+        ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+      if (inputStream instanceof Mono<?> value) {
+        return value.map(element -> encodeValue(element, bufferFactory, elementType, mimeType,
+            hints)).flux();
+      }
+      return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+    }
+  }
+}
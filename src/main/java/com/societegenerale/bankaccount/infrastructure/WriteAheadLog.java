@@ -0,0 +1,355 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import com.societegenerale.bankaccount.domain.UnconfirmedWriteException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of opaque records stored in memory-mapped segment files.
+ *
+ * <p>Each record is framed as {@code [length][crc32c][payload]}. {@link #append(ByteBuffer)}
+ * returns once the record has been forced to disk. Forcing is done by a single flusher thread
+ * that waits for {@code fsyncBatchSize} pending records or {@code fsyncInterval}, whichever comes
+ * first, so concurrent writers share one fsync (group commit).
+ *
+ * <p>If the flusher stops, for instance because forcing a segment failed, the log fails for good:
+ * writers waiting on a record get an {@link UnconfirmedWriteException} and later appends are
+ * refused.
+ */
+public class WriteAheadLog implements Closeable {
+
+  private static final String SEGMENT_PREFIX = "wal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+  private final Path directory;
+  private final int segmentSize;
+  private final int fsyncBatchSize;
+  private final long fsyncIntervalNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition flushNeeded = lock.newCondition();
+  private final Condition flushed = lock.newCondition();
+  private final Thread flusher;
+
+  private long segmentIndex;
+  private FileChannel channel;
+  private MappedByteBuffer segment;
+  private int flushedOffset;
+  private long appendedRecords;
+  private long durableRecords;
+  private boolean closed;
+  private boolean flusherStopped;
+
+  public WriteAheadLog(Path directory, int segmentSize, int fsyncBatchSize,
+      long fsyncIntervalMillis) {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.fsyncBatchSize = fsyncBatchSize;
+    this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+    try {
+      Files.createDirectories(directory);
+      openLastSegment();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open write-ahead log in " + directory, e);
+    }
+    this.flusher = new Thread(this::flushLoop, "wal-flusher");
+    this.flusher.setDaemon(true);
+    this.flusher.start();
+  }
+
+  /**
+   * Feeds every valid record, oldest first, to the consumer. Meant to be called once at startup,
+   * before any {@link #append(ByteBuffer)}.
+   */
+  public void replay(Consumer<ByteBuffer> consumer) {
+    replay(0, consumer);
+  }
+
+  /**
+   * Same as {@link #replay(Consumer)} but skips the records written before {@code fromPosition},
+   * a value previously returned by {@link #position()}.
+   */
+  public void replay(long fromPosition, Consumer<ByteBuffer> consumer) {
+    try {
+      for (Path path : segments()) {
+        final long index = indexOf(path);
+        if (index < segmentOf(fromPosition)) {
+          continue;
+        }
+        try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+          final ByteBuffer buffer = readChannel.map(MapMode.READ_ONLY, 0, readChannel.size());
+          if (index == segmentOf(fromPosition)) {
+            buffer.position(offsetOf(fromPosition));
+          }
+          while (hasValidRecord(buffer)) {
+            final int length = buffer.getInt();
+            buffer.getInt();
+            final ByteBuffer payload = buffer.slice(buffer.position(), length).asReadOnlyBuffer();
+            buffer.position(buffer.position() + length);
+            consumer.accept(payload);
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot replay write-ahead log in " + directory, e);
+    }
+  }
+
+  /**
+   * Position right after the last record written so far. Every record before it has been passed
+   * to the {@code onWritten} callback of {@link #append(ByteBuffer, Runnable)}.
+   */
+  public long position() {
+    lock.lock();
+    try {
+      return (segmentIndex << 32) | segment.position();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the segments that only hold records before {@code position}, once they are covered by
+   * a snapshot.
+   */
+  public void truncateBefore(long position) {
+    try {
+      for (Path path : segments()) {
+        if (indexOf(path) < segmentOf(position)) {
+          Files.delete(path);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot truncate write-ahead log in " + directory, e);
+    }
+  }
+
+  public void append(ByteBuffer payload) {
+    append(payload, () -> { });
+  }
+
+  /**
+   * Appends a record and waits until it is durable. {@code onWritten} runs as soon as the record
+   * is in the log, before the wait and atomically with respect to {@link #position()}: from then
+   * on the append counts as done. Interrupts do not cut the wait short, and a log failing during
+   * it throws {@link UnconfirmedWriteException}.
+   */
+  public void append(ByteBuffer payload, Runnable onWritten) {
+    final int length = payload.remaining();
+    final CRC32C crc = new CRC32C();
+    crc.update(payload.duplicate());
+    lock.lock();
+    try {
+      ensureOpen();
+      if (segment.remaining() < HEADER_SIZE + length) {
+        rollSegment(HEADER_SIZE + length);
+      }
+      segment.putInt(length);
+      segment.putInt((int) crc.getValue());
+      segment.put(payload);
+      onWritten.run();
+      final long record = ++appendedRecords;
+      final long pending = appendedRecords - durableRecords;
+      if (pending == 1 || pending >= fsyncBatchSize) {
+        flushNeeded.signal();
+      }
+      awaitDurable(record);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot roll write-ahead log segment in " + directory, e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      flushNeeded.signal();
+    } finally {
+      lock.unlock();
+    }
+    try {
+      flusher.join();
+      channel.close();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void flushLoop() {
+    lock.lock();
+    try {
+      while (!closed) {
+        if (appendedRecords == durableRecords) {
+          flushNeeded.await();
+        } else {
+          if (appendedRecords - durableRecords < fsyncBatchSize && fsyncIntervalNanos > 0) {
+            flushNeeded.awaitNanos(fsyncIntervalNanos);
+          }
+          flush();
+        }
+      }
+      flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      flusherStopped = true;
+      flushed.signalAll();
+      lock.unlock();
+    }
+  }
+
+  // Called with the lock held; the lock is released while the pages are forced so that writers
+  // can keep appending to the next group.
+  private void flush() {
+    final long target = appendedRecords;
+    final MappedByteBuffer buffer = segment;
+    final int from = flushedOffset;
+    final int to = buffer.position();
+    lock.unlock();
+    try {
+      buffer.force(from, to - from);
+    } finally {
+      lock.lock();
+    }
+    if (buffer == segment) {
+      flushedOffset = Math.max(flushedOffset, to);
+    }
+    durableRecords = Math.max(durableRecords, target);
+    flushed.signalAll();
+  }
+
+  private void rollSegment(int minimumSize) throws IOException {
+    segment.force();
+    durableRecords = appendedRecords;
+    channel.close();
+    segmentIndex++;
+    mapSegment(Math.max(segmentSize, minimumSize));
+    flushed.signalAll();
+  }
+
+  private void openLastSegment() throws IOException {
+    final List<Path> segments = segments();
+    if (segments.isEmpty()) {
+      mapSegment(segmentSize);
+      return;
+    }
+    final Path last = segments.get(segments.size() - 1);
+    segmentIndex = indexOf(last);
+    mapSegment(Math.max(segmentSize, (int) Files.size(last)));
+    while (hasValidRecord(segment)) {
+      final int length = segment.getInt();
+      segment.position(segment.position() + Integer.BYTES + length);
+    }
+    // Wipe a torn or corrupt tail so it can never be mistaken for a record later on.
+    final int end = segment.position();
+    if (segment.remaining() >= Integer.BYTES && segment.getInt(end) != 0) {
+      while (segment.hasRemaining()) {
+        segment.put((byte) 0);
+      }
+      segment.position(end);
+      segment.force();
+    }
+    flushedOffset = end;
+  }
+
+  private void mapSegment(int size) throws IOException {
+    channel = FileChannel.open(directory.resolve(segmentName(segmentIndex)),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    segment = channel.map(MapMode.READ_WRITE, 0, size);
+    flushedOffset = 0;
+  }
+
+  private static boolean hasValidRecord(ByteBuffer buffer) {
+    if (buffer.remaining() < HEADER_SIZE) {
+      return false;
+    }
+    final int start = buffer.position();
+    final int length = buffer.getInt(start);
+    if (length <= 0 || length > buffer.remaining() - HEADER_SIZE) {
+      return false;
+    }
+    final CRC32C crc = new CRC32C();
+    crc.update(buffer.slice(start + HEADER_SIZE, length));
+    return (int) crc.getValue() == buffer.getInt(start + Integer.BYTES);
+  }
+
+  // Called with the lock held, once the record is published.
+  private void awaitDurable(long record) {
+    boolean interrupted = false;
+    try {
+      while (durableRecords < record) {
+        if (flusherStopped) {
+          throw new UnconfirmedWriteException(
+              "Write-ahead log stopped before the record was flushed");
+        }
+        try {
+          flushed.await();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("Write-ahead log is closed");
+    }
+    if (flusherStopped) {
+      throw new IllegalStateException("Write-ahead log has failed");
+    }
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static long segmentOf(long position) {
+    return position >>> 32;
+  }
+
+  private static int offsetOf(long position) {
+    return (int) position;
+  }
+
+  private static String segmentName(long index) {
+    return String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+  }
+
+  private static long indexOf(Path segment) {
+    final String name = segment.getFileName().toString();
+    return Long.parseLong(
+        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+}
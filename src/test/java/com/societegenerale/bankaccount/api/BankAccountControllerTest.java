@@ -1,27 +1,55 @@
 package com.societegenerale.bankaccount.api;
 
-import static org.mockito.Mockito.doThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.societegenerale.bankaccount.application.AdmissionControl;
+import com.societegenerale.bankaccount.application.AdmissionLimits;
 import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.BatchResult;
+import com.societegenerale.bankaccount.application.BatchResult.Status;
+import com.societegenerale.bankaccount.application.IdempotencyCache;
+import com.societegenerale.bankaccount.application.OverflowPolicy;
+import com.societegenerale.bankaccount.application.StatementPrinter;
+import com.societegenerale.bankaccount.application.TransactionEventBus;
+import com.societegenerale.bankaccount.application.TransactionPage;
 import com.societegenerale.bankaccount.domain.Account;
 import com.societegenerale.bankaccount.domain.BankAccountException;
+import com.societegenerale.bankaccount.domain.Money;
 import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
 import com.societegenerale.bankaccount.testUtils.AccountFixture;
-import java.math.BigDecimal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
@@ -33,11 +61,22 @@ public class BankAccountControllerTest {
   @Mock
   private BankAccountService bankAccountService;
 
+  private StatementPrinter statementPrinter;
+  private TransactionEventBus eventBus;
+
   @BeforeEach
   public void setup() {
     MockitoAnnotations.openMocks(this);
-    BankAccountController bankAccountController = new BankAccountController(bankAccountService);
-    mockMvc = MockMvcBuilders.standaloneSetup(bankAccountController).build();
+    statementPrinter = new StatementPrinter();
+    eventBus = new TransactionEventBus(1024, 1024, OverflowPolicy.DROP_OLDEST,
+        new SimpleMeterRegistry());
+    mockMvc = MockMvcBuilders.standaloneSetup(controller()).build();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    statementPrinter.close();
+    eventBus.close();
   }
 
   @Test
@@ -55,66 +94,174 @@ public class BankAccountControllerTest {
   @Test
   public void deposit_ValidAccountId_ShouldReturnOkStatus() throws Exception {
     final String accountId = "1";
-    BigDecimal amount = BigDecimal.valueOf(100);
+    Money amount = Money.of(100);
 
-    mockMvc.perform(MockMvcRequestBuilders.post("/accounts/{accountId}/deposit", accountId)
-        .contentType(MediaType.APPLICATION_JSON)
-        .content(amount.toString()))
+    when(bankAccountService.depositAsync(accountId, amount))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    MvcResult result = mockMvc
+        .perform(MockMvcRequestBuilders.post("/accounts/{accountId}/deposit", accountId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(amount.toString()))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
         .andExpect(status().isOk());
 
-    verify(bankAccountService, times(1)).deposit(accountId, amount);
+    verify(bankAccountService, times(1)).depositAsync(accountId, amount);
   }
 
   @Test
   public void deposit_InvalidAccountId_ShouldReturnNotFoundStatus() throws Exception {
     String invalidAccountId = "invalid";
-    BigDecimal amount = BigDecimal.valueOf(100);
+    Money amount = Money.of(100);
 
-    doThrow(new BankAccountException("Account not found")).when(bankAccountService)
-        .deposit(invalidAccountId, amount);
+    when(bankAccountService.depositAsync(invalidAccountId, amount))
+        .thenReturn(CompletableFuture.failedFuture(new BankAccountException("Account not found")));
 
-    mockMvc.perform(MockMvcRequestBuilders.post("/accounts/{accountId}/deposit", invalidAccountId)
-        .contentType(MediaType.APPLICATION_JSON)
-        .content(amount.toString()))
+    MvcResult result = mockMvc
+        .perform(MockMvcRequestBuilders.post("/accounts/{accountId}/deposit", invalidAccountId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(amount.toString()))
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
         .andExpect(status().isNotFound());
 
-    verify(bankAccountService, times(1)).deposit(invalidAccountId, amount);
+    verify(bankAccountService, times(1)).depositAsync(invalidAccountId, amount);
+  }
+
+  @Test
+  public void deposit_RetriedWithIdempotencyKey_ShouldBeAppliedOnce() throws Exception {
+    final String accountId = "1";
+    Money amount = Money.of(100);
+    when(bankAccountService.depositAsync(accountId, amount))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    for (int attempt = 0; attempt < 2; attempt++) {
+      MvcResult result = mockMvc
+          .perform(MockMvcRequestBuilders.post("/accounts/{accountId}/deposit", accountId)
+              .header("Idempotency-Key", "retried-deposit")
+              .contentType(MediaType.APPLICATION_JSON)
+              .content(amount.toString()))
+          .andReturn();
+      mockMvc.perform(asyncDispatch(result))
+          .andExpect(status().isOk());
+    }
+
+    verify(bankAccountService, times(1)).depositAsync(accountId, amount);
+  }
+
+  @Test
+  public void deposit_IdempotencyKeyReusedForOtherAmount_ShouldReturnUnprocessableEntity()
+      throws Exception {
+    when(bankAccountService.depositAsync(any(), any()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+    mockMvc.perform(MockMvcRequestBuilders.post("/accounts/{accountId}/deposit", "1")
+        .header("Idempotency-Key", "reused")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("10"));
+
+    MvcResult result = mockMvc
+        .perform(MockMvcRequestBuilders.post("/accounts/{accountId}/deposit", "1")
+            .header("Idempotency-Key", "reused")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("20"))
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isUnprocessableEntity());
+    verify(bankAccountService, times(1)).depositAsync(any(), any());
+  }
+
+  @Test
+  public void deposit_TooManyDecimals_ShouldReturnBadRequestStatus() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.post("/accounts/{accountId}/deposit", "1")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("10.001"))
+        .andExpect(status().isBadRequest());
+
+    verify(bankAccountService, times(0)).depositAsync(any(), any());
   }
 
   @Test
   public void withdrawal_ValidAccountId_ShouldReturnOkStatus() throws Exception {
     String accountId = "1";
-    BigDecimal amount = BigDecimal.valueOf(50);
+    Money amount = Money.of(50);
 
-    mockMvc.perform(MockMvcRequestBuilders.post("/accounts/{accountId}/withdrawal", accountId)
-        .contentType(MediaType.APPLICATION_JSON)
-        .content(amount.toString()))
+    when(bankAccountService.withdrawalAsync(accountId, amount))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    MvcResult result = mockMvc
+        .perform(MockMvcRequestBuilders.post("/accounts/{accountId}/withdrawal", accountId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(amount.toString()))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
         .andExpect(status().isOk());
 
-    verify(bankAccountService, times(1)).withdrawal(accountId, amount);
+    verify(bankAccountService, times(1)).withdrawalAsync(accountId, amount);
   }
 
   @Test
   public void withdrawal_InvalidAccountId_ShouldReturnNotFoundStatus() throws Exception {
     String invalidAccountId = "invalid";
-    BigDecimal amount = BigDecimal.valueOf(50);
+    Money amount = Money.of(50);
 
-    doThrow(new BankAccountException("Account not found")).when(bankAccountService)
-        .withdrawal(invalidAccountId, amount);
+    when(bankAccountService.withdrawalAsync(invalidAccountId, amount))
+        .thenReturn(CompletableFuture.failedFuture(new BankAccountException("Account not found")));
 
-    mockMvc
+    MvcResult result = mockMvc
         .perform(MockMvcRequestBuilders.post("/accounts/{accountId}/withdrawal", invalidAccountId)
             .contentType(MediaType.APPLICATION_JSON)
             .content(amount.toString()))
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
         .andExpect(status().isNotFound());
 
-    verify(bankAccountService, times(1)).withdrawal(invalidAccountId, amount);
+    verify(bankAccountService, times(1)).withdrawalAsync(invalidAccountId, amount);
+  }
+
+  @Test
+  public void transfer_ShouldMoveAmountToTargetAccount() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.post("/accounts/{accountId}/transfer", "1")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"toAccountId\": \"2\", \"amount\": 25.50}"))
+        .andExpect(status().isOk());
+
+    verify(bankAccountService, times(1)).transfer("1", "2", Money.ofCents(2550));
+  }
+
+  @Test
+  public void applyBatch_ShouldReturnPerItemResults() throws Exception {
+    when(bankAccountService.applyBatch(anyList(), eq(true))).thenReturn(List.of(
+        new BatchResult("1", Status.APPLIED, null),
+        new BatchResult("2", Status.REJECTED, "Insufficient balance")));
+
+    mockMvc.perform(MockMvcRequestBuilders.post("/accounts/transactions:batch")
+        .param("atomic", "true")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[{\"accountId\": \"1\", \"transactionType\": \"DEPOSIT\", \"amount\": 10},"
+            + "{\"accountId\": \"2\", \"transactionType\": \"WITHDRAWAL\", \"amount\": 5}]"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].status").value("APPLIED"))
+        .andExpect(jsonPath("$[1].status").value("REJECTED"))
+        .andExpect(jsonPath("$[1].error").value("Insufficient balance"));
+
+    verify(bankAccountService, times(1)).applyBatch(argThat(operations ->
+        operations.size() == 2
+            && operations.get(1).getTransactionType() == TransactionType.WITHDRAWAL
+            && operations.get(1).getAmount().equals(Money.of(5))), eq(true));
   }
 
   @Test
   public void getBalance_ValidAccountId_ShouldReturnBalance() throws Exception {
     String accountId = "1";
-    BigDecimal balance = BigDecimal.valueOf(200);
+    Money balance = Money.of(200);
 
     when(bankAccountService.getBalance(accountId)).thenReturn(balance);
 
@@ -125,6 +272,22 @@ public class BankAccountControllerTest {
     verify(bankAccountService, times(1)).getBalance(accountId);
   }
 
+  @Test
+  public void getBalance_AsOfDate_ShouldReturnHistoricalBalance() throws Exception {
+    String accountId = "1";
+    LocalDateTime asOf = LocalDateTime.of(2023, 6, 1, 12, 0);
+    Money balance = Money.of(150);
+
+    when(bankAccountService.getBalanceAsOf(accountId, asOf)).thenReturn(balance);
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{accountId}/balance", accountId)
+        .param("asOf", "2023-06-01T12:00:00"))
+        .andExpect(status().isOk())
+        .andExpect(content().string(balance.toString()));
+
+    verify(bankAccountService, times(1)).getBalanceAsOf(accountId, asOf);
+  }
+
   @Test
   public void getBalance_InvalidAccountId_ShouldReturnNotFoundStatus() throws Exception {
     String invalidAccountId = "invalid";
@@ -138,6 +301,69 @@ public class BankAccountControllerTest {
     verify(bankAccountService, times(1)).getBalance(invalidAccountId);
   }
 
+  @Test
+  public void getBalances_SeveralAccountIds_ShouldReturnBalancesById() throws Exception {
+    Map<String, Money> balances = new LinkedHashMap<>();
+    balances.put("1", Money.of(200));
+    balances.put("2", Money.ofCents(1050));
+
+    when(bankAccountService.getBalances(List.of("1", "2", "unknown"))).thenReturn(balances);
+
+    mockMvc.perform(MockMvcRequestBuilders.get("/accounts/balances")
+            .param("ids", "1,2,unknown"))
+        .andExpect(status().isOk())
+        .andExpect(content().json("{\"1\":200.00,\"2\":10.50}", true));
+  }
+
+  @Test
+  public void getBalances_TooManyAccountIds_ShouldReturnBadRequest() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.get("/accounts/balances")
+            .param("ids", String.join(",", Collections.nCopies(1001, "1"))))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void getBalance_OverAccountRate_ShouldReturnTooManyRequestsWithRetryAfter()
+      throws Exception {
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final AdmissionControl admissionControl = new AdmissionControl(
+        new AdmissionLimits(0.5, 1, 0, 0, 10, 0, 0), 100, registry);
+    final MockMvc limited = MockMvcBuilders
+        .standaloneSetup(controller())
+        .addFilters(new AdmissionFilter(admissionControl, false))
+        .build();
+    when(bankAccountService.getBalance("1")).thenReturn(Money.of(100));
+    when(bankAccountService.getBalance("2")).thenReturn(Money.of(100));
+
+    limited.perform(MockMvcRequestBuilders.get("/accounts/1/balance"))
+        .andExpect(status().isOk());
+    limited.perform(MockMvcRequestBuilders.get("/accounts/1/balance"))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string("Retry-After", "2"));
+    limited.perform(MockMvcRequestBuilders.get("/accounts/2/balance"))
+        .andExpect(status().isOk());
+    assertEquals(0, registry.get("bankaccount.admission.in-flight").gauge().value());
+  }
+
+  @Test
+  public void getBalance_OverClientRateWithNewClientIds_ShouldReturnTooManyRequests()
+      throws Exception {
+    final AdmissionControl admissionControl = new AdmissionControl(
+        new AdmissionLimits(0, 0, 0.5, 1, 10, 0, 0), 100, new SimpleMeterRegistry());
+    final MockMvc limited = MockMvcBuilders
+        .standaloneSetup(controller())
+        .addFilters(new AdmissionFilter(admissionControl, false))
+        .build();
+    when(bankAccountService.getBalance("1")).thenReturn(Money.of(100));
+
+    limited.perform(MockMvcRequestBuilders.get("/accounts/1/balance")
+            .header("X-Client-Id", "first"))
+        .andExpect(status().isOk());
+    limited.perform(MockMvcRequestBuilders.get("/accounts/1/balance")
+            .header("X-Client-Id", "second"))
+        .andExpect(status().isTooManyRequests());
+  }
+
   @Test
   public void getAccountTransactions_ValidAccountId_ShouldReturnTransactions() throws Exception {
     Account accountWithTransactions = AccountFixture.createAccountWithTransactions(2);
@@ -153,13 +379,125 @@ public class BankAccountControllerTest {
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.length()").value(accountWithTransactions.getTransactions().size()))
         .andExpect(jsonPath("$[0].transactionType").value(transaction1.getTransactionType().name()))
-        .andExpect(jsonPath("$[0].amount").value(transaction1.getAmount()))
+        .andExpect(jsonPath("$[0].amount").value(toDouble(transaction1.getAmount())))
         .andExpect(jsonPath("$[1].transactionType").value(transaction2.getTransactionType().name()))
-        .andExpect(jsonPath("$[1].amount").value(transaction2.getAmount()));
+        .andExpect(jsonPath("$[1].amount").value(toDouble(transaction2.getAmount())));
 
     verify(bankAccountService, times(1)).getAccount(accountId);
   }
 
+  @Test
+  public void getAccountTransactions_AcceptCbor_ShouldReturnCborEncodedHistory() throws Exception {
+    Account account = AccountFixture.createAccountWithTransactions(3);
+    String accountId = account.getAccountId();
+    when(bankAccountService.getAccount(accountId)).thenReturn(account);
+    when(bankAccountService.getBalance(accountId)).thenReturn(account.getBalance());
+
+    byte[] body = mockMvc.perform(MockMvcRequestBuilders.get("/accounts/{accountId}/transactions",
+            accountId)
+            .accept("application/cbor"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/cbor"))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    List<Transaction> transactions = Jackson2ObjectMapperBuilder.cbor().build()
+        .readValue(body, new TypeReference<List<Transaction>>() { });
+    assertEquals(3, transactions.size());
+    assertEquals(account.getTransactions().get(2).getAmount(), transactions.get(2).getAmount());
+    assertEquals(account.getTransactions().get(2).getDate(), transactions.get(2).getDate());
+  }
+
+  @Test
+  public void getAccountTransactionPage_ShouldReturnPageAndNextCursor() throws Exception {
+    Account account = AccountFixture.createAccountWithTransactions(3);
+    String accountId = account.getAccountId();
+
+    when(bankAccountService.getTransactionPage(eq(accountId),
+        argThat(filter -> filter.getTransactionType() == TransactionType.DEPOSIT), eq(5), eq(2)))
+        .thenReturn(new TransactionPage(account.getTransactions().subList(0, 2), 7));
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/accounts/{accountId}/transactions/page", accountId)
+            .param("cursor", "5")
+            .param("limit", "2")
+            .param("type", "DEPOSIT"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.transactions.length()").value(2))
+        .andExpect(jsonPath("$.nextCursor").value(7));
+  }
+
+  @Test
+  public void streamAccountTransactions_Ndjson_ShouldWriteOneTransactionPerLine() throws Exception {
+    Account account = AccountFixture.createAccountWithTransactions(3);
+    String accountId = account.getAccountId();
+
+    when(bankAccountService.streamTransactions(eq(accountId), any()))
+        .thenReturn(account.getTransactions().stream());
+
+    MvcResult result = mockMvc
+        .perform(MockMvcRequestBuilders.get("/accounts/{accountId}/transactions/stream", accountId)
+            .accept("application/x-ndjson"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    String body = mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    assertEquals(3, body.lines().count());
+  }
+
+  @Test
+  public void streamAccountTransactions_Json_ShouldWriteArray() throws Exception {
+    Account account = AccountFixture.createAccountWithTransactions(2);
+    String accountId = account.getAccountId();
+
+    when(bankAccountService.streamTransactions(eq(accountId), any()))
+        .thenReturn(account.getTransactions().stream());
+
+    MvcResult result = mockMvc
+        .perform(MockMvcRequestBuilders.get("/accounts/{accountId}/transactions/stream", accountId)
+            .accept(MediaType.APPLICATION_JSON))
+        .andReturn();
+
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2));
+  }
+
+  @Test
+  public void streamAccountTransactions_InvalidAccountId_ShouldReturnNotFoundStatus()
+      throws Exception {
+    when(bankAccountService.streamTransactions(eq("invalid"), any()))
+        .thenThrow(new BankAccountException("Account not found"));
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/accounts/{accountId}/transactions/stream", "invalid")
+            .accept("application/x-ndjson"))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void downloadStatement_Csv_ShouldWriteOneRowPerTransaction() throws Exception {
+    Account account = AccountFixture.createAccountWithTransactions(3);
+    String accountId = account.getAccountId();
+
+    when(bankAccountService.getAccount(accountId)).thenReturn(account);
+
+    MvcResult result = mockMvc
+        .perform(MockMvcRequestBuilders.get("/accounts/{accountId}/statement", accountId)
+            .accept("text/csv"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    String body = mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Disposition",
+            "attachment; filename=\"statement-" + accountId + ".csv\""))
+        .andReturn().getResponse().getContentAsString();
+    assertEquals(4, body.lines().count());
+    assertEquals("date,type,amount", body.lines().findFirst().orElseThrow());
+  }
+
   @Test
   public void getAccountTransactions_InvalidAccountId_ShouldReturnNotFoundStatus()
       throws Exception {
@@ -174,4 +512,14 @@ public class BankAccountControllerTest {
 
     verify(bankAccountService, times(1)).getAccount(invalidAccountId);
   }
+
+  private static double toDouble(Money amount) {
+    return amount.toBigDecimal().doubleValue();
+  }
+
+  private BankAccountController controller() {
+    return new BankAccountController(bankAccountService,
+        Jackson2ObjectMapperBuilder.json().build(), statementPrinter,
+        new IdempotencyCache(10_000, Duration.ofDays(1), new SimpleMeterRegistry()), eventBus);
+  }
 }
@@ -0,0 +1,200 @@
+package com.societegenerale.bankaccount.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.societegenerale.bankaccount.application.AccountExecutor;
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.IdempotencyCache;
+import com.societegenerale.bankaccount.application.OverflowPolicy;
+import com.societegenerale.bankaccount.application.ReactiveBankAccountService;
+import com.societegenerale.bankaccount.application.StatementFormat;
+import com.societegenerale.bankaccount.application.StatementPrinter;
+import com.societegenerale.bankaccount.application.StatementRenderer;
+import com.societegenerale.bankaccount.application.TransactionEvent;
+import com.societegenerale.bankaccount.application.TransactionEventBus;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+public class ReactiveBankAccountControllerTest {
+
+  private TransactionEventBus eventBus;
+  private StatementPrinter statementPrinter;
+  private BankAccountService bankAccountService;
+  private WebTestClient client;
+
+  @BeforeEach
+  public void setup() {
+    eventBus = new TransactionEventBus(1024, 1024, OverflowPolicy.DROP_OLDEST,
+        new CompositeMeterRegistry());
+    bankAccountService = new BankAccountService(new InMemoryAccountRepository(),
+        new CompositeMeterRegistry(), AccountExecutor.locking(16), eventBus);
+    statementPrinter = new StatementPrinter(new StringBuilder(), StatementPrinter.DEFAULT_CAPACITY);
+    ReactiveBankAccountController controller = new ReactiveBankAccountController(
+        new ReactiveBankAccountService(bankAccountService, eventBus), statementPrinter,
+        new IdempotencyCache(100, Duration.ofMinutes(1), new CompositeMeterRegistry()));
+    client = WebTestClient.bindToController(controller).build();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    statementPrinter.close();
+    eventBus.close();
+  }
+
+  @Test
+  public void deposit_ThenBalance_ShouldReturnNewBalance() {
+    final String accountId = bankAccountService.createAccount().getAccountId();
+
+    client.post().uri("/accounts/{accountId}/deposit", accountId)
+        .contentType(MediaType.APPLICATION_JSON).bodyValue("100.50")
+        .exchange()
+        .expectStatus().isOk();
+
+    client.get().uri("/accounts/{accountId}/balance", accountId)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class).isEqualTo("100.50");
+  }
+
+  @Test
+  public void downloadStatement_LongHistory_ShouldStreamTheWholeStatement() throws IOException {
+    final String accountId = bankAccountService.createAccount().getAccountId();
+    for (int i = 0; i < 1000; i++) {
+      bankAccountService.deposit(accountId, Money.of(i + 1));
+    }
+    final Account account = bankAccountService.getAccount(accountId);
+    final StringBuilder expected = new StringBuilder();
+    new StatementRenderer().render(accountId, account.getTransactions(), account.getBalance(),
+        StatementFormat.CSV, expected);
+
+    client.get().uri("/accounts/{accountId}/statement", accountId)
+        .accept(MediaType.parseMediaType("text/csv"))
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType("text/csv")
+        .expectBody(String.class).isEqualTo(expected.toString());
+  }
+
+  @Test
+  public void getBalances_SeveralAccountIds_ShouldReturnKnownBalances() {
+    final String first = bankAccountService.createAccount().getAccountId();
+    final String second = bankAccountService.createAccount().getAccountId();
+    bankAccountService.deposit(second, Money.of(5));
+
+    client.get().uri("/accounts/balances?ids={first},unknown,{second}", first, second)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody()
+        .jsonPath("$.length()").isEqualTo(2)
+        .jsonPath("$['" + first + "']").isEqualTo(0)
+        .jsonPath("$['" + second + "']").isEqualTo(5.0);
+  }
+
+  @Test
+  public void deposit_InvalidAmount_ShouldReturnBadRequest() {
+    final String accountId = bankAccountService.createAccount().getAccountId();
+
+    client.post().uri("/accounts/{accountId}/deposit", accountId)
+        .contentType(MediaType.APPLICATION_JSON).bodyValue("0.001")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  public void deposit_RetriedIdempotencyKey_ShouldApplyOnce() {
+    final String accountId = bankAccountService.createAccount().getAccountId();
+
+    for (int i = 0; i < 2; i++) {
+      client.post().uri("/accounts/{accountId}/deposit", accountId)
+          .header("Idempotency-Key", "key-1")
+          .contentType(MediaType.APPLICATION_JSON).bodyValue("10")
+          .exchange()
+          .expectStatus().isOk();
+    }
+
+    assertEquals(Money.of(10), bankAccountService.getBalance(accountId));
+  }
+
+  @Test
+  public void withdrawal_InsufficientFunds_ShouldReturnNotFound() {
+    final String accountId = bankAccountService.createAccount().getAccountId();
+
+    client.post().uri("/accounts/{accountId}/withdrawal", accountId)
+        .contentType(MediaType.APPLICATION_JSON).bodyValue("10")
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  public void streamTransactions_Ndjson_ShouldEmitFilteredTransactions() {
+    final String accountId = bankAccountService.createAccount().getAccountId();
+    bankAccountService.deposit(accountId, Money.of(100));
+    bankAccountService.withdrawal(accountId, Money.of(30));
+    bankAccountService.deposit(accountId, Money.of(5));
+
+    List<Transaction> transactions = client.get()
+        .uri("/accounts/{accountId}/transactions/stream?type=DEPOSIT", accountId)
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(Transaction.class).getResponseBody().collectList().block();
+
+    assertEquals(2, transactions.size());
+    assertEquals(TransactionType.DEPOSIT, transactions.get(1).getTransactionType());
+    assertEquals(Money.of(5), transactions.get(1).getAmount());
+  }
+
+  @Test
+  public void streamAccountEvents_ResumedAfterSequence_ShouldReplayThenFollowLiveEvents() {
+    final String accountId = bankAccountService.createAccount().getAccountId();
+    final String otherAccountId = bankAccountService.createAccount().getAccountId();
+    bankAccountService.deposit(accountId, Money.of(100));
+    bankAccountService.deposit(otherAccountId, Money.of(7));
+
+    Flux<TransactionEvent> events = client.get()
+        .uri("/accounts/{accountId}/events?after=0", accountId)
+        .accept(MediaType.TEXT_EVENT_STREAM)
+        .exchange()
+        .expectStatus().isOk()
+        .returnResult(TransactionEvent.class).getResponseBody();
+    bankAccountService.withdrawal(accountId, Money.of(30));
+
+    List<TransactionEvent> received = events.take(2).collectList().block(Duration.ofSeconds(5));
+    assertEquals(1, received.get(0).getSequence());
+    assertEquals(Money.of(100), received.get(0).getTransaction().getAmount());
+    assertEquals(3, received.get(1).getSequence());
+    assertEquals(TransactionType.WITHDRAWAL,
+        received.get(1).getTransaction().getTransactionType());
+  }
+
+  @Test
+  public void streamAllEvents_ExpiredSequence_ShouldReturnGone() {
+    client.get().uri("/accounts/events")
+        .header("Last-Event-ID", "42")
+        .accept(MediaType.TEXT_EVENT_STREAM)
+        .exchange()
+        .expectStatus().isEqualTo(HttpStatus.GONE);
+  }
+
+  @Test
+  public void streamTransactions_UnknownAccount_ShouldReturnNotFound() {
+    client.get().uri("/accounts/{accountId}/transactions/stream", "unknown")
+        .accept(MediaType.APPLICATION_NDJSON)
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+}
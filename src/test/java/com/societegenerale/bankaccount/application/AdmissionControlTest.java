@@ -0,0 +1,98 @@
+package com.societegenerale.bankaccount.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AdmissionControlTest {
+
+  private MeterRegistry registry;
+
+  @BeforeEach
+  public void setup() {
+    registry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  public void testBurstIsAdmittedThenRejectedWithTheWaitForTheNextToken() {
+    final AdmissionControl admission =
+        new AdmissionControl(new AdmissionLimits(1, 3, 0, 0, 10, 0, 0), 100, registry);
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, admission.checkRate("client", "account"));
+    }
+    final long wait = admission.checkRate("client", "account");
+
+    assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(900) && wait <= TimeUnit.SECONDS.toNanos(1),
+        "wait " + wait);
+    assertEquals(0, admission.checkRate("client", "other account"));
+    assertEquals(0, admission.checkRate("client", null));
+    assertEquals(1,
+        registry.get(AdmissionControl.REJECTED).tag("reason", "account").counter().count());
+  }
+
+  @Test
+  public void testClientRateAppliesAcrossAccounts() {
+    final AdmissionControl admission =
+        new AdmissionControl(new AdmissionLimits(0, 0, 1, 2, 10, 0, 0), 1, registry);
+
+    assertEquals(0, admission.checkRate("client", "a"));
+    assertEquals(0, admission.checkRate("client", "b"));
+    assertTrue(admission.checkRate("client", "c") > 0);
+    assertEquals(0, admission.checkRate("other client", "c"));
+    assertEquals(1,
+        registry.get(AdmissionControl.REJECTED).tag("reason", "client").counter().count());
+  }
+
+  @Test
+  public void testConcurrencyCapQueuesThenRejects() throws Exception {
+    final AdmissionControl admission =
+        new AdmissionControl(new AdmissionLimits(0, 0, 0, 0, 1, 1, 5_000), 100, registry);
+    assertTrue(admission.enter(true));
+
+    final CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(
+        () -> admission.enter(true));
+    while (registry.get("bankaccount.admission.queued").gauge().value() < 1) {
+      Thread.onSpinWait();
+    }
+    assertFalse(admission.enter(true));
+    assertFalse(admission.enter(false));
+
+    admission.release();
+    assertTrue(queued.get(5, TimeUnit.SECONDS));
+    assertEquals(1, registry.get("bankaccount.admission.in-flight").gauge().value());
+    assertEquals(2,
+        registry.get(AdmissionControl.REJECTED).tag("reason", "concurrency").counter().count());
+  }
+
+  @Test
+  public void testUpdatedLimitsApplyToTheNextRequests() {
+    final AdmissionControl admission =
+        new AdmissionControl(new AdmissionLimits(1, 1, 0, 0, 1, 0, 0), 100, registry);
+    assertEquals(0, admission.checkRate("client", "account"));
+    assertTrue(admission.checkRate("client", "account") > 0);
+    assertTrue(admission.enter(false));
+    assertFalse(admission.enter(false));
+
+    admission.update(new AdmissionLimits(0, 0, 0, 0, 2, 0, 0));
+
+    assertEquals(0, admission.checkRate("client", "account"));
+    assertTrue(admission.enter(false));
+    assertFalse(admission.enter(false));
+    admission.update(new AdmissionLimits(0, 0, 0, 0, 1, 0, 0));
+    admission.release();
+    assertFalse(admission.enter(false));
+    admission.release();
+    assertTrue(admission.enter(false));
+    assertThrows(IllegalArgumentException.class,
+        () -> admission.update(new AdmissionLimits(0, 0, 0, 0, 0, 0, 0)));
+  }
+}
@@ -0,0 +1,169 @@
+package com.societegenerale.bankaccount.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.societegenerale.bankaccount.domain.BankAccountException;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BankAccountServiceConcurrencyTest {
+
+  private static final int THREADS = 8;
+  private static final int OPERATIONS_PER_THREAD = 2_000;
+
+  private BankAccountService bankAccountService;
+  private ExecutorService executor;
+
+  @BeforeEach
+  public void setup() {
+    bankAccountService = new BankAccountService(new InMemoryAccountRepository());
+    executor = Executors.newFixedThreadPool(THREADS);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentDepositsOnHotAccountAreNotLost() throws Exception {
+    final String accountId = bankAccountService.createAccount().getAccountId();
+
+    runConcurrently(() -> bankAccountService.deposit(accountId, Money.of(1)));
+
+    final int expected = THREADS * OPERATIONS_PER_THREAD;
+    assertEquals(Money.of(expected), bankAccountService.getBalance(accountId));
+    assertEquals(expected, bankAccountService.getAccount(accountId).getTransactions().size());
+  }
+
+  @Test
+  public void testConcurrentWithdrawalsNeverOverdraw() throws Exception {
+    final String accountId = bankAccountService.createAccount().getAccountId();
+    final int available = OPERATIONS_PER_THREAD;
+    bankAccountService.deposit(accountId, Money.of(available));
+    final AtomicInteger succeeded = new AtomicInteger();
+
+    runConcurrently(() -> {
+      try {
+        bankAccountService.withdrawal(accountId, Money.of(1));
+        succeeded.incrementAndGet();
+      } catch (BankAccountException insufficientBalance) {
+        // expected once the account is empty
+      }
+    });
+
+    assertEquals(available, succeeded.get());
+    assertEquals(Money.ZERO, bankAccountService.getBalance(accountId));
+  }
+
+  @Test
+  public void testConcurrentOperationsOnDistinctAccounts() throws Exception {
+    final List<String> accountIds = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      accountIds.add(bankAccountService.createAccount().getAccountId());
+    }
+    final AtomicInteger next = new AtomicInteger();
+    final ThreadLocal<String> ownAccount = ThreadLocal
+        .withInitial(() -> accountIds.get(next.getAndIncrement() % THREADS));
+
+    runConcurrently(() -> {
+      bankAccountService.deposit(ownAccount.get(), Money.of(10));
+      bankAccountService.withdrawal(ownAccount.get(), Money.of(1));
+    });
+
+    final Money total = accountIds.stream()
+        .map(bankAccountService::getBalance)
+        .reduce(Money.ZERO, Money::add);
+    assertEquals(Money.of(9L * THREADS * OPERATIONS_PER_THREAD), total);
+    accountIds.forEach(accountId ->
+        assertEquals(Money.ZERO, bankAccountService.getBalanceDrift(accountId)));
+  }
+
+  @Test
+  public void testOpposingTransfersDoNotDeadlockOrLoseMoney() throws Exception {
+    final String first = bankAccountService.createAccount().getAccountId();
+    final String second = bankAccountService.createAccount().getAccountId();
+    bankAccountService.deposit(first, Money.of(100));
+    bankAccountService.deposit(second, Money.of(100));
+    final AtomicInteger next = new AtomicInteger();
+
+    runConcurrently(() -> {
+      try {
+        if (next.getAndIncrement() % 2 == 0) {
+          bankAccountService.transfer(first, second, Money.of(1));
+        } else {
+          bankAccountService.transfer(second, first, Money.of(1));
+        }
+      } catch (BankAccountException insufficientBalance) {
+        // possible when one side has been drained
+      }
+    });
+
+    assertEquals(Money.of(200),
+        bankAccountService.getBalance(first).add(bankAccountService.getBalance(second)));
+    assertEquals(Money.ZERO, bankAccountService.getBalanceDrift(first));
+  }
+
+  @Test
+  public void testShardedEngineKeepsPerAccountOrderAndAtomicBatches() throws Exception {
+    try (AccountExecutor shards = AccountExecutor.sharded(4, 64)) {
+      final BankAccountService sharded = new BankAccountService(new InMemoryAccountRepository(),
+          new SimpleMeterRegistry(), shards);
+      final List<String> accountIds = new ArrayList<>();
+      for (int i = 0; i < THREADS; i++) {
+        accountIds.add(sharded.createAccount().getAccountId());
+        sharded.deposit(accountIds.get(i), Money.of(OPERATIONS_PER_THREAD));
+      }
+      final AtomicInteger next = new AtomicInteger();
+
+      // Each batch moves 1 between two accounts, usually on different shards.
+      runConcurrently(() -> {
+        final int from = next.getAndIncrement() % THREADS;
+        final int to = (from + 1 + next.get() % (THREADS - 1)) % THREADS;
+        sharded.applyBatch(List.of(
+            new BatchOperation(accountIds.get(from), TransactionType.WITHDRAWAL, Money.of(1)),
+            new BatchOperation(accountIds.get(to), TransactionType.DEPOSIT, Money.of(1))), true);
+        sharded.depositAsync(accountIds.get(from), Money.of(1)).join();
+        sharded.withdrawal(accountIds.get(from), Money.of(1));
+      });
+
+      final Money total = accountIds.stream()
+          .map(sharded::getBalance)
+          .reduce(Money.ZERO, Money::add);
+      assertEquals(Money.of((long) THREADS * OPERATIONS_PER_THREAD), total);
+      accountIds.forEach(accountId ->
+          assertEquals(Money.ZERO, sharded.getBalanceDrift(accountId)));
+    }
+  }
+
+  private void runConcurrently(Runnable operation) throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+          operation.run();
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+  }
+}
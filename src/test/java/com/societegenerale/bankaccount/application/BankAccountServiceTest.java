@@ -2,13 +2,22 @@ package com.societegenerale.bankaccount.application;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import com.societegenerale.bankaccount.application.BatchResult.Status;
 import com.societegenerale.bankaccount.domain.Account;
 import com.societegenerale.bankaccount.domain.BankAccountException;
+import com.societegenerale.bankaccount.domain.Money;
 import com.societegenerale.bankaccount.domain.TransactionType;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
 import com.societegenerale.bankaccount.testUtils.AccountFixture;
-import java.math.BigDecimal;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.assertj.core.util.Maps;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,7 +32,33 @@ public class BankAccountServiceTest {
   public void setup() {
     account = AccountFixture.createAccountWithTransactions(5, TransactionType.DEPOSIT);
     accountId = account.getAccountId();
-    bankAccountService = new BankAccountService(Maps.newHashMap(account.getAccountId(), account));
+    bankAccountService = new BankAccountService(
+        new InMemoryAccountRepository(Maps.newHashMap(account.getAccountId(), account)));
+  }
+
+  @Test
+  public void testMetricsCountOperationsAndFailures() {
+    final MeterRegistry registry = new SimpleMeterRegistry();
+    final BankAccountService service = new BankAccountService(
+        new InMemoryAccountRepository(Maps.newHashMap(account.getAccountId(), account)), registry);
+
+    service.deposit(accountId, Money.of(10));
+    assertThrows(BankAccountException.class,
+        () -> service.withdrawal(accountId, account.getBalance().add(Money.of(100))));
+    assertThrows(BankAccountException.class, () -> service.getBalance("invalidAccountId"));
+
+    assertEquals(1, registry.get(AccountMetrics.TRANSACTIONS).tag("type", "DEPOSIT")
+        .counter().count());
+    assertEquals(1, registry.get(AccountMetrics.FAILURES).tag("reason", "insufficient_balance")
+        .counter().count());
+    assertEquals(1, registry.get(AccountMetrics.FAILURES).tag("reason", "account_not_found")
+        .counter().count());
+    assertEquals(1, registry.get(AccountMetrics.OPERATIONS).tag("operation", "withdrawal")
+        .counter().count());
+    assertEquals(1, registry.get(AccountMetrics.OPERATIONS).tag("operation", "balance")
+        .counter().count());
+    assertNotNull(registry.get(AccountMetrics.LATENCY).tag("operation", "withdrawal").timer());
+    assertEquals(6, registry.get("bankaccount.ledger.entries").gauge().value());
   }
 
   @Test
@@ -36,7 +71,7 @@ public class BankAccountServiceTest {
 
   @Test
   public void testDeposit() {
-    final BigDecimal amount = BigDecimal.valueOf(100);
+    final Money amount = Money.of(100);
 
     bankAccountService.deposit(accountId, amount);
 
@@ -47,7 +82,7 @@ public class BankAccountServiceTest {
 
   @Test
   public void testWithdrawSufficientBalance() {
-    final BigDecimal amount = BigDecimal.valueOf(50);
+    final Money amount = Money.of(50);
 
     bankAccountService.withdrawal(accountId, amount);
     account = account.withdrawal(amount);
@@ -57,7 +92,7 @@ public class BankAccountServiceTest {
 
   @Test
   public void testWithdrawInsufficientBalance() {
-    final BigDecimal amount = account.getBalance().add(BigDecimal.valueOf(100));
+    final Money amount = account.getBalance().add(Money.of(100));
 
     assertThrows(BankAccountException.class,
         () -> bankAccountService.withdrawal(account.getAccountId(), amount));
@@ -65,14 +100,27 @@ public class BankAccountServiceTest {
 
   @Test
   public void testGetBalance() {
-    final BigDecimal balance = bankAccountService.getBalance(account.getAccountId());
+    final Money balance = bankAccountService.getBalance(account.getAccountId());
     assertEquals(account.getBalance(), balance);
   }
 
+  @Test
+  public void testGetBalancesKeepsOrderAndSkipsUnknownAccounts() {
+    final Account other = bankAccountService.createAccount();
+    bankAccountService.deposit(other.getAccountId(), Money.of(10));
+
+    final Map<String, Money> balances = bankAccountService.getBalances(
+        List.of(other.getAccountId(), "invalidAccountId", accountId));
+
+    assertEquals(List.of(other.getAccountId(), accountId), List.copyOf(balances.keySet()));
+    assertEquals(Money.of(10), balances.get(other.getAccountId()));
+    assertEquals(account.getBalance(), balances.get(accountId));
+  }
+
   @Test
   public void testMultipleDepositsAndWithdrawals() {
-    final BigDecimal depositAmount = BigDecimal.valueOf(100);
-    final BigDecimal withdrawalAmount = BigDecimal.valueOf(50);
+    final Money depositAmount = Money.of(100);
+    final Money withdrawalAmount = Money.of(50);
 
     bankAccountService.deposit(accountId, depositAmount);
     account = account.deposit(depositAmount);
@@ -91,10 +139,154 @@ public class BankAccountServiceTest {
     assertEquals(account.getBalance(), bankAccountService.getBalance(accountId));
   }
 
+  @Test
+  public void testBalanceDriftIsZeroAfterDepositsAndWithdrawals() {
+    bankAccountService.deposit(accountId, Money.of(100));
+    bankAccountService.withdrawal(accountId, Money.of(30));
+
+    assertEquals(0, Money.ZERO.compareTo(bankAccountService.getBalanceDrift(accountId)));
+  }
+
+  @Test
+  public void testApplyBatchGroupsOperationsPerAccount() {
+    final String otherAccountId = bankAccountService.createAccount().getAccountId();
+
+    final List<BatchResult> results = bankAccountService.applyBatch(List.of(
+        new BatchOperation(accountId, TransactionType.DEPOSIT, Money.of(10)),
+        new BatchOperation(otherAccountId, TransactionType.DEPOSIT, Money.of(1)),
+        new BatchOperation(otherAccountId, TransactionType.WITHDRAWAL, Money.of(10)),
+        new BatchOperation("invalidAccountId", TransactionType.DEPOSIT, Money.of(1))), false);
+
+    assertEquals(List.of(Status.APPLIED, Status.APPLIED, Status.REJECTED, Status.REJECTED),
+        results.stream().map(BatchResult::getStatus).collect(Collectors.toList()));
+    assertEquals(account.getBalance().add(Money.of(10)),
+        bankAccountService.getBalance(accountId));
+    assertEquals(Money.of(1), bankAccountService.getBalance(otherAccountId));
+  }
+
+  @Test
+  public void testBatchFailsOnlyTheOperationsOfAnAccountThatCannotBeSaved() {
+    final Account broken = new Account("broken");
+    final BankAccountService service = new BankAccountService(new InMemoryAccountRepository(
+        Map.of(accountId, account, broken.getAccountId(), broken)) {
+      @Override
+      public void save(Account updated) {
+        if (updated.getAccountId().equals(broken.getAccountId())) {
+          throw new IllegalStateException("Disk full");
+        }
+        super.save(updated);
+      }
+    });
+
+    final List<BatchResult> results = service.applyBatch(List.of(
+        new BatchOperation("broken", TransactionType.DEPOSIT, Money.of(1)),
+        new BatchOperation(accountId, TransactionType.DEPOSIT, Money.of(10)),
+        new BatchOperation("broken", TransactionType.WITHDRAWAL, Money.of(5))), false);
+
+    assertEquals(List.of(Status.FAILED, Status.APPLIED, Status.REJECTED),
+        results.stream().map(BatchResult::getStatus).collect(Collectors.toList()));
+    assertEquals(account.getBalance().add(Money.of(10)), service.getBalance(accountId));
+    assertEquals(Money.ZERO, service.getBalance("broken"));
+  }
+
+  @Test
+  public void testAtomicBatchIsAllOrNothing() {
+    final String otherAccountId = bankAccountService.createAccount().getAccountId();
+
+    final List<BatchResult> results = bankAccountService.applyBatch(List.of(
+        new BatchOperation(accountId, TransactionType.DEPOSIT, Money.of(10)),
+        new BatchOperation(otherAccountId, TransactionType.WITHDRAWAL, Money.of(1))), true);
+
+    assertEquals(List.of(Status.ABORTED, Status.REJECTED),
+        results.stream().map(BatchResult::getStatus).collect(Collectors.toList()));
+    assertEquals(account.getBalance(), bankAccountService.getBalance(accountId));
+    assertEquals(0, bankAccountService.getAccount(otherAccountId).getTransactions().size());
+
+    bankAccountService.deposit(accountId, Money.of(20));
+    assertEquals(account.getBalance().add(Money.of(20)), bankAccountService.getBalance(accountId));
+    assertEquals(Money.of(20),
+        bankAccountService.getAccount(accountId).getTransactions().get(5).getAmount());
+  }
+
+  @Test
+  public void testListenerHearsOnlySavedTransactions() {
+    final List<String> heard = new ArrayList<>();
+    final BankAccountService service = new BankAccountService(
+        new InMemoryAccountRepository(Maps.newHashMap(account.getAccountId(), account)),
+        new SimpleMeterRegistry(), AccountExecutor.locking(16),
+        (id, transaction) -> heard.add(transaction.getTransactionType() + " "
+            + transaction.getAmount()));
+    final String otherAccountId = service.createAccount().getAccountId();
+
+    service.deposit(accountId, Money.of(10));
+    assertThrows(BankAccountException.class,
+        () -> service.withdrawal(otherAccountId, Money.of(1)));
+    service.applyBatch(List.of(
+        new BatchOperation(accountId, TransactionType.DEPOSIT, Money.of(2)),
+        new BatchOperation(otherAccountId, TransactionType.WITHDRAWAL, Money.of(1))), true);
+    service.applyBatch(List.of(
+        new BatchOperation(accountId, TransactionType.WITHDRAWAL, Money.of(3)),
+        new BatchOperation(otherAccountId, TransactionType.WITHDRAWAL, Money.of(1))), false);
+    service.transfer(accountId, otherAccountId, Money.of(4));
+
+    assertEquals(List.of("DEPOSIT 10.00", "WITHDRAWAL -3.00", "TRANSFER -4.00", "TRANSFER 4.00"),
+        heard);
+  }
+
+  @Test
+  public void testTransferMovesMoneyBetweenAccounts() {
+    final String otherAccountId = bankAccountService.createAccount().getAccountId();
+
+    bankAccountService.transfer(accountId, otherAccountId, Money.of(1));
+
+    assertEquals(account.getBalance().subtract(Money.of(1)),
+        bankAccountService.getBalance(accountId));
+    assertEquals(Money.of(1), bankAccountService.getBalance(otherAccountId));
+    assertEquals(TransactionType.TRANSFER,
+        bankAccountService.getAccount(otherAccountId).getTransactions().get(0).getTransactionType());
+  }
+
+  @Test
+  public void testFailedTransferChangesNeitherAccount() {
+    final String otherAccountId = bankAccountService.createAccount().getAccountId();
+
+    assertThrows(BankAccountException.class,
+        () -> bankAccountService.transfer(otherAccountId, accountId, Money.of(1)));
+    assertThrows(BankAccountException.class,
+        () -> bankAccountService.transfer(accountId, "invalidAccountId", Money.of(1)));
+    assertThrows(BankAccountException.class,
+        () -> bankAccountService.transfer(accountId, accountId, Money.of(1)));
+
+    assertEquals(account.getBalance(), bankAccountService.getBalance(accountId));
+    assertEquals(5, bankAccountService.getAccount(accountId).getTransactions().size());
+    assertEquals(0, bankAccountService.getAccount(otherAccountId).getTransactions().size());
+  }
+
+  @Test
+  public void testTransactionPagesFollowCursorAndFilter() {
+    bankAccountService.withdrawal(accountId, Money.of(1));
+    bankAccountService.deposit(accountId, Money.of(1));
+    final TransactionFilter withdrawals = new TransactionFilter(null, null,
+        TransactionType.WITHDRAWAL);
+
+    final TransactionPage firstPage = bankAccountService
+        .getTransactionPage(accountId, TransactionFilter.NONE, 0, 4);
+    final TransactionPage secondPage = bankAccountService
+        .getTransactionPage(accountId, TransactionFilter.NONE, firstPage.getNextCursor(), 4);
+    final TransactionPage filtered = bankAccountService
+        .getTransactionPage(accountId, withdrawals, 0, 10);
+
+    assertEquals(4, firstPage.getTransactions().size());
+    assertEquals(3, secondPage.getTransactions().size());
+    assertNull(secondPage.getNextCursor());
+    assertEquals(1, filtered.getTransactions().size());
+    assertEquals(1, bankAccountService.streamTransactions(accountId, withdrawals).count());
+  }
+
   @Test
   public void testDepositWithInvalidAccountId() {
     final String invalidAccountId = "invalidAccountId";
-    final BigDecimal amount = BigDecimal.valueOf(100);
+    final Money amount = Money.of(100);
 
     assertThrows(BankAccountException.class,
         () -> bankAccountService.deposit(invalidAccountId, amount));
@@ -103,7 +295,7 @@ public class BankAccountServiceTest {
   @Test
   public void testWithdrawWithInvalidAccountId() {
     final String invalidAccountId = "invalidAccountId";
-    final BigDecimal amount = BigDecimal.valueOf(100);
+    final Money amount = Money.of(100);
 
     assertThrows(BankAccountException.class,
         () -> bankAccountService.withdrawal(invalidAccountId, amount));
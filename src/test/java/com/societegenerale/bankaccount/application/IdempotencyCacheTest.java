@@ -0,0 +1,84 @@
+package com.societegenerale.bankaccount.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.societegenerale.bankaccount.domain.BankAccountException;
+import com.societegenerale.bankaccount.domain.UnconfirmedWriteException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class IdempotencyCacheTest {
+
+  private MeterRegistry registry;
+  private IdempotencyCache cache;
+  private AtomicInteger calls;
+
+  @BeforeEach
+  public void setup() {
+    registry = new SimpleMeterRegistry();
+    cache = new IdempotencyCache(100, Duration.ofMinutes(1), registry);
+    calls = new AtomicInteger();
+  }
+
+  @Test
+  public void testRetryReturnsOriginalOutcomeWithoutRunningAgain() {
+    final CompletableFuture<Integer> first = cache.execute("key", "deposit 1 10.00",
+        () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+    final CompletableFuture<Integer> retry = cache.execute("key", "deposit 1 10.00",
+        () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+
+    assertSame(first, retry);
+    assertEquals(1, retry.join());
+    assertEquals(1, calls.get());
+    assertEquals(1, registry.get(IdempotencyCache.REQUESTS).tag("result", "hit").counter().count());
+    assertEquals(1, registry.get(IdempotencyCache.REQUESTS).tag("result", "miss").counter().count());
+  }
+
+  @Test
+  public void testBusinessFailuresAreRememberedAndOtherFailuresForgotten() {
+    cache.execute("rejected", "withdrawal 1 10.00", () -> CompletableFuture.failedFuture(
+        new BankAccountException("Insufficient balance")));
+    cache.execute("crashed", "withdrawal 1 10.00", () -> {
+      throw new IllegalStateException("Account executor is closed");
+    });
+
+    final CompletableFuture<Integer> rejectedRetry = cache.execute("rejected",
+        "withdrawal 1 10.00", () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+    final CompletableFuture<Integer> crashedRetry = cache.execute("crashed",
+        "withdrawal 1 10.00", () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+
+    assertThrows(BankAccountException.class, () -> AccountExecutor.await(rejectedRetry));
+    assertEquals(1, crashedRetry.join());
+  }
+
+  // The write is published already: running the retry would apply it a second time.
+  @Test
+  public void testUnconfirmedWriteIsRememberedLikeAnAppliedOne() {
+    cache.execute("unconfirmed", "deposit 1 10.00", () -> CompletableFuture.failedFuture(
+        new UnconfirmedWriteException("Write-ahead log stopped before the record was flushed")));
+
+    final CompletableFuture<Integer> retry = cache.execute("unconfirmed", "deposit 1 10.00",
+        () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+
+    assertThrows(UnconfirmedWriteException.class, () -> AccountExecutor.await(retry));
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  public void testKeyReusedForAnotherRequestIsRejected() {
+    cache.execute("key", "deposit 1 10.00", () -> CompletableFuture.completedFuture(null));
+
+    final CompletableFuture<Object> reused = cache.execute("key", "deposit 2 10.00",
+        () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+
+    assertThrows(IdempotencyKeyReusedException.class, () -> AccountExecutor.await(reused));
+    assertEquals(0, calls.get());
+  }
+}
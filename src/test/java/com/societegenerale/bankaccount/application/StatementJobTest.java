@@ -0,0 +1,140 @@
+package com.societegenerale.bankaccount.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StatementJobTest {
+
+  private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 1, 2, 0, 0);
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  public void testRunWritesEveryAccountUpToTheCutoff() throws IOException {
+    final InMemoryAccountRepository repository = new InMemoryAccountRepository();
+    for (int i = 0; i < 20; i++) {
+      repository.add(new Account("account-" + i, List.of(
+          new Transaction(TransactionType.DEPOSIT, CUTOFF.minusHours(1), Money.of(100)),
+          new Transaction(TransactionType.DEPOSIT, CUTOFF, Money.of(7)))));
+    }
+
+    final StatementRun run;
+    try (StatementJob job = new StatementJob(new BankAccountService(repository), directory, 4, 2,
+        null, new SimpleMeterRegistry())) {
+      run = job.run(CUTOFF);
+    }
+
+    assertEquals(20, run.getWrittenAccounts());
+    assertEquals(4, run.getWrittenShards() + run.getSkippedShards());
+    final String statements = readAll(run.getDirectory());
+    for (int i = 0; i < 20; i++) {
+      assertTrue(statements.contains("Account ID: account-" + i + "\n"));
+    }
+    assertEquals(20, count(statements, "01/01/2024 | 100.00 | DEPOSIT"));
+    assertEquals(0, count(statements, "7.00"));
+    assertEquals(20, count(statements, "Current Balance: 100.00\n"));
+  }
+
+  @Test
+  public void testRunWithSameCutoffOnlyWritesMissingShards() throws IOException {
+    final InMemoryAccountRepository repository = new InMemoryAccountRepository();
+    for (int i = 0; i < 20; i++) {
+      repository.add(new Account("account-" + i, List.of()));
+    }
+    try (StatementJob job = new StatementJob(new BankAccountService(repository), directory, 4, 2,
+        null, new SimpleMeterRegistry())) {
+      final StatementRun first = job.run(CUTOFF);
+      Files.delete(first.getDirectory().resolve("statements-00001.txt"));
+
+      final StatementRun resumed = job.run(CUTOFF);
+
+      assertEquals(1, resumed.getWrittenShards());
+      assertEquals(3, resumed.getSkippedShards());
+      assertEquals(20, resumed.getWrittenAccounts() + resumed.getSkippedAccounts());
+      assertEquals(20, count(readAll(resumed.getDirectory()), "STATEMENT\n"));
+    }
+  }
+
+  @Test
+  public void testLatestIncompleteRunIsResumed() throws IOException {
+    final InMemoryAccountRepository repository = new InMemoryAccountRepository();
+    for (int i = 0; i < 20; i++) {
+      repository.add(new Account("account-" + i, List.of()));
+    }
+    final BankAccountService service = new BankAccountService(repository);
+    try (StatementJob job = new StatementJob(service, directory, 4, 2, null,
+        new SimpleMeterRegistry())) {
+      assertFalse(job.resume().isPresent());
+      job.run(CUTOFF.minusDays(1));
+      assertFalse(job.resume().isPresent());
+      final StatementRun crashed = job.run(CUTOFF);
+      // As a crash in the middle of shard 2 leaves it.
+      Files.move(crashed.getDirectory().resolve("statements-00002.txt"),
+          crashed.getDirectory().resolve("statements-00002.txt.tmp"));
+    }
+
+    // A scheduled job resumes on startup; the daily run itself is a day away at most.
+    try (StatementJob job = new StatementJob(service, directory, 4, 2,
+        LocalTime.now().minusMinutes(1), new SimpleMeterRegistry())) {
+      StatementRun resumed = job.getCurrent();
+      while (resumed == null) {
+        Thread.onSpinWait();
+        resumed = job.getCurrent();
+      }
+      resumed.completion().join();
+
+      assertEquals(CUTOFF, resumed.getCutoff());
+      assertEquals(1, resumed.getWrittenShards());
+      assertEquals(3, resumed.getSkippedShards());
+      assertEquals(20, count(readAll(resumed.getDirectory()), "STATEMENT\n"));
+      assertFalse(job.resume().isPresent());
+    }
+  }
+
+  @Test
+  public void testInvalidShardsOrParallelismAreRejected() {
+    final BankAccountService service = new BankAccountService(new InMemoryAccountRepository());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new StatementJob(service, directory, 0, 2, null, new SimpleMeterRegistry()));
+    assertThrows(IllegalArgumentException.class,
+        () -> new StatementJob(service, directory, 4, -1, null, new SimpleMeterRegistry()));
+  }
+
+  private static String readAll(Path runDirectory) throws IOException {
+    final StringBuilder content = new StringBuilder();
+    try (Stream<Path> files = Files.list(runDirectory)) {
+      for (Path file : files.sorted().toList()) {
+        content.append(Files.readString(file));
+      }
+    }
+    return content.toString();
+  }
+
+  private static int count(String text, String part) {
+    int count = 0;
+    for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + 1)) {
+      count++;
+    }
+    return count;
+  }
+}
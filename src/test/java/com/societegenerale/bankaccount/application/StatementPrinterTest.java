@@ -0,0 +1,39 @@
+package com.societegenerale.bankaccount.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class StatementPrinterTest {
+
+  @Test
+  public void testPrintWritesStatementToSink() {
+    final StringBuilder sink = new StringBuilder();
+    final List<Transaction> transactions = List.of(
+        new Transaction(TransactionType.DEPOSIT, LocalDateTime.of(2023, 6, 1, 10, 0),
+            Money.of(100)));
+
+    try (StatementPrinter printer = new StatementPrinter(sink, 16)) {
+      printer.print("1", transactions, Money.of(100));
+    }
+
+    assertEquals("STATEMENT\n\nAccount ID: 1\n\nDATE | AMOUNT | TRANS. TYPE\n"
+        + "----------------------\n01/06/2023 | 100.00 | DEPOSIT\n\n"
+        + "Current Balance: 100.00\n", sink.toString());
+  }
+
+  @Test
+  public void testPrintAfterCloseIsDropped() {
+    final StatementPrinter printer = new StatementPrinter(new StringBuilder(), 16);
+    printer.close();
+
+    assertFalse(printer.print("1", List.of(), Money.ZERO));
+    assertEquals(1, printer.getDropped());
+  }
+}
@@ -0,0 +1,184 @@
+package com.societegenerale.bankaccount.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TransactionEventBusTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private MeterRegistry registry;
+  private TransactionEventBus bus;
+  private EventSubscription all;
+
+  @BeforeEach
+  public void setup() {
+    registry = new SimpleMeterRegistry();
+    bus = new TransactionEventBus(8, 2, OverflowPolicy.DROP_OLDEST, registry);
+    all = bus.subscribe(null, null, OverflowPolicy.DROP_OLDEST, available -> {
+    });
+  }
+
+  @AfterEach
+  public void tearDown() {
+    bus.close();
+  }
+
+  @Test
+  public void testEventsAreNumberedAndFannedOutPerAccount() throws InterruptedException {
+    final EventSubscription first = bus.subscribe("1", null, null, available -> {
+    });
+
+    publish("1", 10);
+    publish("2", 20);
+
+    final TransactionEvent event = first.poll(TIMEOUT);
+    assertEquals(1, event.getSequence());
+    assertEquals(Money.of(10), event.getTransaction().getAmount());
+    assertEquals("1", all.poll(TIMEOUT).getAccountId());
+    assertEquals("2", all.poll(TIMEOUT).getAccountId());
+    assertNull(first.poll());
+  }
+
+  @Test
+  public void testSubscribersResumeAfterRetainedSequence() throws InterruptedException {
+    for (int amount = 1; amount <= 10; amount++) {
+      publish("1", amount);
+    }
+    awaitDispatched(10);
+
+    final EventSubscription resumed = bus.subscribe("1", 8L, null, available -> {
+    });
+    assertEquals(9, resumed.poll().getSequence());
+    assertEquals(10, resumed.poll().getSequence());
+    assertThrows(EventHistoryExpiredException.class,
+        () -> bus.subscribe("1", 1L, null, available -> {
+        }));
+    assertThrows(EventHistoryExpiredException.class,
+        () -> bus.subscribe("1", 11L, null, available -> {
+        }));
+  }
+
+  @Test
+  public void testBacklogLargerThanTheBufferIsReplayedWhole() throws InterruptedException {
+    for (int amount = 1; amount <= 6; amount++) {
+      publish(amount % 2 == 0 ? "1" : "2", amount);
+    }
+    awaitDispatched(6);
+
+    final EventSubscription firehose = bus.subscribe(null, 0L, OverflowPolicy.DISCONNECT,
+        available -> {
+        });
+    final EventSubscription account = bus.subscribe("1", 1L, OverflowPolicy.DROP_OLDEST,
+        available -> {
+        });
+    publish("1", 7);
+
+    assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), drain(firehose, 6));
+    assertEquals(7, firehose.poll(TIMEOUT).getSequence());
+    assertEquals(List.of(2L, 4L, 6L, 7L), drain(account, 4));
+    assertEquals(0, firehose.getDropped() + account.getDropped());
+    assertTrue(!firehose.isClosed() && !account.isClosed());
+  }
+
+  @Test
+  public void testSubscriberFallingBehindTheHistoryWhileCatchingUpIsClosed()
+      throws InterruptedException {
+    for (int amount = 1; amount <= 6; amount++) {
+      publish("1", amount);
+    }
+    awaitDispatched(6);
+    final EventSubscription resumed = bus.subscribe("1", 0L, null, available -> {
+    });
+
+    for (int amount = 7; amount <= 16; amount++) {
+      publish("1", amount);
+    }
+    awaitDispatched(16);
+
+    assertEquals(List.of(1L, 2L), drain(resumed));
+    assertTrue(resumed.isExhausted());
+    assertEquals(1.0, registry.get("bankaccount.events.subscribers").gauge().value());
+    assertThrows(EventHistoryExpiredException.class,
+        () -> bus.subscribe("1", 2L, null, available -> {
+        }));
+  }
+
+  @Test
+  public void testOverflowPoliciesBoundSlowSubscribers() throws InterruptedException {
+    final EventSubscription dropOldest = bus.subscribe("1", null, OverflowPolicy.DROP_OLDEST,
+        available -> {
+        });
+    final EventSubscription dropNewest = bus.subscribe("1", null, OverflowPolicy.DROP_NEWEST,
+        available -> {
+        });
+    final EventSubscription disconnect = bus.subscribe("1", null, OverflowPolicy.DISCONNECT,
+        available -> {
+        });
+
+    for (int amount = 1; amount <= 4; amount++) {
+      publish("1", amount);
+    }
+    awaitDispatched(4);
+
+    assertEquals(List.of(3L, 4L), drain(dropOldest));
+    assertEquals(2, dropOldest.getDropped());
+    assertEquals(List.of(1L, 2L), drain(dropNewest));
+    assertEquals(2, dropNewest.getDropped());
+    assertTrue(disconnect.isClosed());
+    assertEquals(List.of(1L, 2L), drain(disconnect));
+    assertTrue(disconnect.isExhausted());
+    assertEquals(4 + all.getDropped(), registry.get(TransactionEventBus.DROPPED)
+        .tag("stage", "subscriber").counter().count());
+  }
+
+  private void publish(String accountId, int amount) {
+    bus.onTransaction(accountId,
+        new Transaction(TransactionType.DEPOSIT, LocalDateTime.now(), Money.of(amount)));
+  }
+
+  /**
+   * Account subscriptions are served before the firehose, so once it saw an event every other
+   * subscription did.
+   */
+  private void awaitDispatched(long sequence) throws InterruptedException {
+    TransactionEvent event;
+    do {
+      event = all.poll(TIMEOUT);
+    } while (event != null && event.getSequence() < sequence);
+    assertEquals(sequence, event.getSequence());
+  }
+
+  private static List<Long> drain(EventSubscription subscription, int count)
+      throws InterruptedException {
+    final List<Long> sequences = new ArrayList<>();
+    while (sequences.size() < count) {
+      sequences.add(subscription.poll(TIMEOUT).getSequence());
+    }
+    return sequences;
+  }
+
+  private static List<Long> drain(EventSubscription subscription) {
+    final List<Long> sequences = new ArrayList<>();
+    TransactionEvent event;
+    while ((event = subscription.poll()) != null) {
+      sequences.add(event.getSequence());
+    }
+    return sequences;
+  }
+}
@@ -0,0 +1,69 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountBenchmark {
+
+  private static final Money AMOUNT = Money.of(10);
+
+  @Param({"10", "10000", "1000000"})
+  private int ledgerSize;
+
+  private Account account;
+  private Account current;
+
+  @Setup
+  public void setup() {
+    final LocalDateTime now = LocalDateTime.now();
+    account = new Account("benchmark", Stream
+        .generate(() -> new Transaction(TransactionType.DEPOSIT, now, AMOUNT))
+        .limit(ledgerSize)
+        .collect(Collectors.toList()));
+    current = account;
+  }
+
+  @Benchmark
+  public Money balance() {
+    return account.getBalance();
+  }
+
+  @Benchmark
+  public Money recomputedBalance() {
+    return account.balanceDrift();
+  }
+
+  // Appends to the newest version, as BankAccountService does; restarting from the base account
+  // every ledgerSize appends bounds the heap at the cost of one amortised prefix copy.
+  @Benchmark
+  public Account depositThenWithdrawal() {
+    if (current.getTransactions().size() >= 2 * ledgerSize + 2) {
+      current = account;
+    }
+    current = current.deposit(AMOUNT).withdrawal(AMOUNT);
+    return current;
+  }
+}
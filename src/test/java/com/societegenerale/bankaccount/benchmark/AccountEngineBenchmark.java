@@ -0,0 +1,98 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.AccountExecutor;
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Deposits through the lock-based engine versus the sharded one, as throughput and as sampled
+ * latency for the percentiles. {@code deposit} waits for each deposit; {@code pipelinedDeposits}
+ * submits {@value #PIPELINE} before waiting, as concurrent requests would. Use
+ * {@link BenchmarkRunner} to sweep thread counts.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountEngineBenchmark {
+
+  private static final Money AMOUNT = Money.of(10);
+  private static final int PIPELINE = 16;
+
+  @State(Scope.Benchmark)
+  public static class Engine {
+
+    @Param({"locking", "sharded"})
+    private String engine;
+
+    @Param({"4"})
+    private int shards;
+
+    @Param({"1000"})
+    private int accounts;
+
+    @Param({AccountSelector.UNIFORM, AccountSelector.ZIPF})
+    private String distribution;
+
+    private AccountExecutor executor;
+    private BankAccountService service;
+    private AccountSelector selector;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+      executor = "sharded".equals(engine) ? AccountExecutor.sharded(shards, 1024)
+          : AccountExecutor.locking(1024);
+      final InMemoryAccountRepository repository = new InMemoryAccountRepository();
+      service = new BankAccountService(repository, new CompositeMeterRegistry(), executor);
+      final List<String> accountIds = new ArrayList<>(accounts);
+      for (int i = 0; i < accounts; i++) {
+        final Account account = new Account("account-" + i, List.of());
+        repository.add(account);
+        accountIds.add(account.getAccountId());
+      }
+      selector = new AccountSelector(accountIds, distribution);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+      executor.close();
+    }
+  }
+
+  @Benchmark
+  public void deposit(Engine engine) {
+    engine.service.deposit(engine.selector.next(), AMOUNT);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PIPELINE)
+  public void pipelinedDeposits(Engine engine) {
+    final CompletableFuture<?>[] pending = new CompletableFuture<?>[PIPELINE];
+    for (int i = 0; i < PIPELINE; i++) {
+      pending[i] = engine.service.depositAsync(engine.selector.next(), AMOUNT);
+    }
+    CompletableFuture.allOf(pending).join();
+  }
+}
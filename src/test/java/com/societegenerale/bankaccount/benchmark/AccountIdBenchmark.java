@@ -0,0 +1,126 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.AccountExecutor;
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.TransactionListener;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.AccountIdGenerator;
+import com.societegenerale.bankaccount.domain.CompactAccountIds;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random UUIDs ({@code uuid}) against time-ordered compact ids ({@code compact}): id generation
+ * and account creation, to run with several {@code -t} threads, and lookups among
+ * {@code accounts} accounts. Setting up the lookups prints the heap taken per account by its id
+ * and by the repository's map.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AccountIdBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Ids {
+
+    @Param({"uuid", "compact"})
+    private String ids;
+
+    private AccountIdGenerator generator;
+    private BankAccountService service;
+
+    // A fresh repository per iteration keeps the heap bounded.
+    @Setup(Level.Iteration)
+    public void setup() {
+      generator = "uuid".equals(ids) ? AccountIdGenerator.RANDOM_UUID : new CompactAccountIds();
+      service = new BankAccountService(new InMemoryAccountRepository(),
+          new CompositeMeterRegistry(), AccountExecutor.locking(1024), TransactionListener.NONE,
+          generator);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Accounts {
+
+    @Param({"10000000"})
+    private int accounts;
+
+    @Param({"uuid", "compact"})
+    private String ids;
+
+    private InMemoryAccountRepository repository;
+    private String[] accountIds;
+
+    @Setup
+    public void setup() {
+      final AccountIdGenerator generator =
+          "uuid".equals(ids) ? AccountIdGenerator.RANDOM_UUID : new CompactAccountIds();
+      final long empty = usedHeap();
+      accountIds = new String[accounts];
+      for (int i = 0; i < accounts; i++) {
+        accountIds[i] = generator.nextId();
+      }
+      final long withIds = usedHeap();
+      final Account[] created = new Account[accounts];
+      for (int i = 0; i < accounts; i++) {
+        created[i] = new Account(accountIds[i]);
+      }
+      final long withAccounts = usedHeap();
+      repository = new InMemoryAccountRepository();
+      for (Account account : created) {
+        repository.add(account);
+      }
+      final long withMap = usedHeap();
+      // The arrays above hold a 4-byte reference per account.
+      System.out.printf("%n%s: id %d bytes, account %d bytes, map %d bytes per account%n", ids,
+          (withIds - empty) / accounts - 4, (withAccounts - withIds) / accounts - 4,
+          (withMap - withAccounts) / accounts);
+    }
+  }
+
+  @Benchmark
+  public String nextId(Ids ids) {
+    return ids.generator.nextId();
+  }
+
+  @Benchmark
+  public Account createAccount(Ids ids) {
+    return ids.service.createAccount();
+  }
+
+  // Ids arrive as new strings, as parsed from a request, with no hash code cached yet.
+  @Benchmark
+  public Optional<Account> findById(Accounts accounts) {
+    return accounts.repository.findById(
+        new String(accounts.accountIds[ThreadLocalRandom.current().nextInt(accounts.accounts)]));
+  }
+
+  private static long usedHeap() {
+    final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+    }
+    return used;
+  }
+}
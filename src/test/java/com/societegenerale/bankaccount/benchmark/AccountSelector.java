@@ -0,0 +1,58 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the account each benchmark operation targets: uniformly, or following a Zipf law where
+ * the account of rank {@code k} is picked with a probability proportional to {@code 1 / k^s},
+ * so a handful of hot accounts receive most of the traffic.
+ */
+final class AccountSelector {
+
+  static final String UNIFORM = "uniform";
+  static final String ZIPF = "zipf";
+
+  private static final double ZIPF_EXPONENT = 1.1;
+
+  private final List<String> accountIds;
+  private final double[] cumulative;
+
+  AccountSelector(List<String> accountIds, String distribution) {
+    this.accountIds = accountIds;
+    if (ZIPF.equals(distribution)) {
+      cumulative = new double[accountIds.size()];
+      double total = 0;
+      for (int rank = 0; rank < cumulative.length; rank++) {
+        total += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+        cumulative[rank] = total;
+      }
+      for (int rank = 0; rank < cumulative.length; rank++) {
+        cumulative[rank] /= total;
+      }
+    } else if (UNIFORM.equals(distribution)) {
+      cumulative = null;
+    } else {
+      throw new IllegalArgumentException("Unknown distribution: " + distribution);
+    }
+  }
+
+  String next() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (cumulative == null) {
+      return accountIds.get(random.nextInt(accountIds.size()));
+    }
+    final double target = random.nextDouble();
+    int low = 0;
+    int high = cumulative.length - 1;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (cumulative[middle] < target) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return accountIds.get(low);
+  }
+}
@@ -0,0 +1,77 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.AdmissionControl;
+import com.societegenerale.bankaccount.application.AdmissionLimits;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * What admission control adds to a request on a random one of {@code accounts} accounts from one
+ * of {@code clients} clients, to run with several {@code -t} threads: {@code admit} checks both
+ * rates and takes and gives back a slot, with limits no request reaches; {@code rejected} is
+ * turned away by the rate of a single busy account.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdmissionControlBenchmark {
+
+  @Param({"10000"})
+  private int accounts;
+
+  @Param({"1000"})
+  private int clients;
+
+  private AdmissionControl open;
+  private AdmissionControl saturated;
+  private String[] accountIds;
+  private String[] clientIds;
+
+  @Setup
+  public void setup() {
+    open = new AdmissionControl(new AdmissionLimits(1e9, 1000, 1e9, 1000, 1024, 0, 0), 100_000,
+        new CompositeMeterRegistry());
+    saturated = new AdmissionControl(new AdmissionLimits(1e-3, 1, 0, 0, 1024, 0, 0), 100_000,
+        new CompositeMeterRegistry());
+    accountIds = new String[accounts];
+    for (int i = 0; i < accounts; i++) {
+      accountIds[i] = "account-" + i;
+    }
+    clientIds = new String[clients];
+    for (int i = 0; i < clients; i++) {
+      clientIds[i] = "client-" + i;
+    }
+    saturated.checkRate(clientIds[0], accountIds[0]);
+  }
+
+  @Benchmark
+  public boolean admit() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (open.checkRate(clientIds[random.nextInt(clients)], accountIds[random.nextInt(accounts)])
+        > 0 || !open.enter(false)) {
+      return false;
+    }
+    open.release();
+    return true;
+  }
+
+  @Benchmark
+  public long rejected() {
+    return saturated.checkRate(clientIds[0], accountIds[0]);
+  }
+}
@@ -0,0 +1,89 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Balance reads mixed with deposits on {@code accounts} random accounts, {@code writePercent} of
+ * the calls being writes. The {@code reads} and {@code writes} counters split the throughput; run
+ * with {@code -t} above 1 to have readers and writers race on the same accounts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceReadBenchmark {
+
+  private static final Money AMOUNT = Money.of(10);
+
+  @State(Scope.Benchmark)
+  public static class Accounts {
+
+    @Param({"1000"})
+    private int accounts;
+
+    @Param({"1", "10", "50"})
+    private int writePercent;
+
+    private BankAccountService service;
+    private String[] accountIds;
+
+    // A fresh service per iteration keeps the ledgers, and so the heap, bounded.
+    @Setup(Level.Iteration)
+    public void setup() {
+      final InMemoryAccountRepository repository = new InMemoryAccountRepository();
+      service = new BankAccountService(repository);
+      accountIds = new String[accounts];
+      for (int i = 0; i < accounts; i++) {
+        accountIds[i] = "account-" + i;
+        repository.add(new Account(accountIds[i], List.of()));
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Calls {
+
+    public long reads;
+    public long writes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      reads = 0;
+      writes = 0;
+    }
+  }
+
+  @Benchmark
+  public Money readOrWrite(Accounts accounts, Calls calls) {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final String accountId = accounts.accountIds[random.nextInt(accounts.accounts)];
+    if (random.nextInt(100) < accounts.writePercent) {
+      accounts.service.deposit(accountId, AMOUNT);
+      calls.writes++;
+      return AMOUNT;
+    }
+    calls.reads++;
+    return accounts.service.getBalance(accountId);
+  }
+}
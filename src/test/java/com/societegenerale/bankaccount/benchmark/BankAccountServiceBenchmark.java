@@ -0,0 +1,123 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.AccountRepository;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import com.societegenerale.bankaccount.infrastructure.FileAccountRepository;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import com.societegenerale.bankaccount.infrastructure.SnapshotStore;
+import com.societegenerale.bankaccount.infrastructure.WriteAheadLog;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Throughput of BankAccountService over {@code accounts} accounts, each starting with
+ * {@code ledgerSize} transactions, picked uniformly or Zipf-skewed. {@code -p accounts=1} puts
+ * every thread on the same account; {@code metrics} measures the cost of instrumentation. Use
+ * {@link BenchmarkRunner} to sweep thread counts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BankAccountServiceBenchmark {
+
+  private static final Money AMOUNT = Money.of(10);
+
+  @State(Scope.Benchmark)
+  public static class Accounts {
+
+    @Param({"1000"})
+    private int accounts;
+
+    @Param({"100"})
+    private int ledgerSize;
+
+    @Param({AccountSelector.UNIFORM, AccountSelector.ZIPF})
+    private String distribution;
+
+    @Param({"memory", "file"})
+    private String persistence;
+
+    @Param({"none", "prometheus"})
+    private String metrics;
+
+    private BankAccountService service;
+    private AccountSelector selector;
+    private Path directory;
+    private FileAccountRepository fileRepository;
+
+    // A fresh service per iteration keeps the ledgers, and so the heap, bounded.
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+      final AccountRepository repository;
+      if ("file".equals(persistence)) {
+        directory = Files.createTempDirectory("wal-benchmark");
+        fileRepository = new FileAccountRepository(
+            new WriteAheadLog(directory, 64 << 20, 64, 2), new SnapshotStore(directory), 0);
+        repository = fileRepository;
+      } else {
+        repository = new InMemoryAccountRepository();
+      }
+      service = "prometheus".equals(metrics)
+          ? new BankAccountService(repository, new PrometheusMeterRegistry(PrometheusConfig.DEFAULT))
+          : new BankAccountService(repository);
+      final List<Transaction> ledger = Collections.nCopies(ledgerSize,
+          new Transaction(TransactionType.DEPOSIT, LocalDateTime.now(), AMOUNT));
+      final List<String> accountIds = new ArrayList<>(accounts);
+      for (int i = 0; i < accounts; i++) {
+        final Account account = new Account("account-" + i, ledger);
+        repository.add(account);
+        accountIds.add(account.getAccountId());
+      }
+      selector = new AccountSelector(accountIds, distribution);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+      if (fileRepository != null) {
+        fileRepository.close();
+        FileSystemUtils.deleteRecursively(directory);
+        fileRepository = null;
+      }
+    }
+  }
+
+  @Benchmark
+  public void depositThenWithdrawal(Accounts accounts) {
+    final String accountId = accounts.selector.next();
+    accounts.service.deposit(accountId, AMOUNT);
+    accounts.service.withdrawal(accountId, AMOUNT);
+  }
+
+  @Benchmark
+  public Money balance(Accounts accounts) {
+    return accounts.service.getBalance(accounts.selector.next());
+  }
+}
@@ -0,0 +1,106 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+import com.societegenerale.bankaccount.api.BankAccountController;
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.IdempotencyCache;
+import com.societegenerale.bankaccount.application.OverflowPolicy;
+import com.societegenerale.bankaccount.application.StatementPrinter;
+import com.societegenerale.bankaccount.application.TransactionEventBus;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Deposits per second through the single-operation endpoint versus the batch endpoint, both
+ * dispatched in-process through the MVC stack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchEndpointBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+  private static final int ACCOUNTS = 10;
+
+  private StatementPrinter statementPrinter;
+  private TransactionEventBus eventBus;
+  private MockMvc mockMvc;
+  private List<String> accountIds;
+  private String batch;
+  private int next;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    final BankAccountService service = new BankAccountService(new InMemoryAccountRepository());
+    statementPrinter = new StatementPrinter();
+    eventBus = new TransactionEventBus(1024, 1024, OverflowPolicy.DROP_OLDEST,
+        new SimpleMeterRegistry());
+    mockMvc = MockMvcBuilders.standaloneSetup(new BankAccountController(service,
+        Jackson2ObjectMapperBuilder.json().build(), statementPrinter,
+        new IdempotencyCache(10_000, Duration.ofDays(1), new SimpleMeterRegistry()), eventBus))
+        .build();
+    accountIds = new ArrayList<>();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accountIds.add(service.createAccount().getAccountId());
+    }
+    batch = IntStream.range(0, BATCH_SIZE)
+        .mapToObj(i -> "{\"accountId\":\"" + accountIds.get(i % ACCOUNTS)
+            + "\",\"transactionType\":\"DEPOSIT\",\"amount\":10}")
+        .collect(Collectors.joining(",", "[", "]"));
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    statementPrinter.close();
+    eventBus.close();
+  }
+
+  @Benchmark
+  public int singleDeposit() throws Exception {
+    final String accountId = accountIds.get(next++ % ACCOUNTS);
+    final MvcResult result = mockMvc
+        .perform(MockMvcRequestBuilders.post("/accounts/{accountId}/deposit", accountId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("10"))
+        .andReturn();
+    return mockMvc.perform(asyncDispatch(result)).andReturn().getResponse().getStatus();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public int batchDeposit() throws Exception {
+    return mockMvc.perform(MockMvcRequestBuilders.post("/accounts/transactions:batch")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(batch))
+        .andReturn().getResponse().getStatus();
+  }
+}
@@ -0,0 +1,43 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the {@code benchmarks} Maven profile. Takes the usual JMH command line, runs it
+ * once per thread count listed in {@code -Dbenchmark.threads} (e.g. {@code 1,2,4,8}) and writes
+ * every result to a single JSON file, {@code -Dbenchmark.result}, that can be diffed between
+ * releases.
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    final CommandLineOptions options = new CommandLineOptions(args);
+    final String threads = System.getProperty("benchmark.threads", "1");
+    final String result = System.getProperty("benchmark.result", "target/jmh-result.json");
+
+    final List<RunResult> results = new ArrayList<>();
+    for (String count : threads.split(",")) {
+      final Collection<RunResult> run = new Runner(new OptionsBuilder()
+          .parent(options)
+          .threads(Integer.parseInt(count.trim()))
+          .build())
+          .run();
+      results.addAll(run);
+    }
+    ResultFormatFactory.getInstance(ResultFormatType.JSON, result).writeOut(results);
+    System.out.println("Results for " + threads + " thread(s) written to " + result);
+  }
+}
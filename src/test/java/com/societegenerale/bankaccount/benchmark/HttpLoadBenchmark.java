@@ -0,0 +1,81 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.domain.Money;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Requests per second against the whole application, started in-process on a random port and
+ * driven over loopback HTTP by every benchmark thread through {@link HttpLoadHarness}. Use
+ * {@link BenchmarkRunner} to sweep thread counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpLoadBenchmark {
+
+  @Param({"1000"})
+  private int accounts;
+
+  @Param({AccountSelector.UNIFORM, AccountSelector.ZIPF})
+  private String distribution;
+
+  private HttpLoadHarness harness;
+  private AccountSelector selector;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    harness = new HttpLoadHarness("--logging.level.root=WARN");
+    final BankAccountService service = harness.getBean(BankAccountService.class);
+    final List<String> accountIds = new ArrayList<>(accounts);
+    for (int i = 0; i < accounts; i++) {
+      final String accountId = service.createAccount().getAccountId();
+      service.deposit(accountId, Money.of(1_000_000_000));
+      accountIds.add(accountId);
+    }
+    selector = new AccountSelector(accountIds, distribution);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    harness.close();
+  }
+
+  @Benchmark
+  public int deposit() throws IOException {
+    return send("POST", selector.next() + "/deposit", "10");
+  }
+
+  @Benchmark
+  public int withdrawal() throws IOException {
+    return send("POST", selector.next() + "/withdrawal", "10");
+  }
+
+  @Benchmark
+  public int balance() throws IOException {
+    return send("GET", selector.next() + "/balance", null);
+  }
+
+  private int send(String method, String path, String body) throws IOException {
+    return HttpLoadHarness.send(harness.uri("/accounts/" + path), method, body, 0);
+  }
+}
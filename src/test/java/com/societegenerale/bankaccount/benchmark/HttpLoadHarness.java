@@ -0,0 +1,102 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.BankAccountApplication;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The application started in-process on a random port, and the client side shared by the HTTP load
+ * benchmarks: requests over {@link HttpURLConnection}, whose connections are kept alive and reused
+ * as a pooled client would, and connections held open in the middle of a request.
+ */
+final class HttpLoadHarness implements AutoCloseable {
+
+  private final ConfigurableApplicationContext context;
+  private final int port;
+  private final List<Socket> slowConnections = new ArrayList<>();
+
+  HttpLoadHarness(String... arguments) {
+    context = SpringApplication.run(BankAccountApplication.class, Stream.concat(
+        Stream.of("--server.port=0", "--spring.main.banner-mode=off"), Stream.of(arguments))
+        .toArray(String[]::new));
+    port = ((WebServerApplicationContext) context).getWebServer().getPort();
+  }
+
+  <T> T getBean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  String uri(String path) {
+    return "http://localhost:" + port + path;
+  }
+
+  /**
+   * Opens {@code count} connections that each announce a two-byte deposit and send one byte, so
+   * every request waits for the rest of its body until {@link #close()}.
+   */
+  void holdDeposits(String accountId, int count) throws IOException {
+    final byte[] partialRequest = ("POST /accounts/" + accountId + "/deposit HTTP/1.1\r\n"
+        + "Host: localhost\r\nContent-Type: application/json\r\nContent-Length: 2\r\n\r\n1")
+        .getBytes(StandardCharsets.US_ASCII);
+    for (int i = 0; i < count; i++) {
+      final Socket socket = new Socket("localhost", port);
+      final OutputStream output = socket.getOutputStream();
+      output.write(partialRequest);
+      output.flush();
+      slowConnections.add(socket);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Socket socket : slowConnections) {
+      socket.close();
+    }
+    context.close();
+  }
+
+  /**
+   * Sends a request with an optional JSON body and returns its status, or -1 once
+   * {@code timeoutMillis} pass without an answer; 0 waits forever.
+   */
+  static int send(String uri, String method, String body, int timeoutMillis) throws IOException {
+    final HttpURLConnection connection = (HttpURLConnection) URI.create(uri).toURL()
+        .openConnection();
+    connection.setConnectTimeout(timeoutMillis);
+    connection.setReadTimeout(timeoutMillis);
+    connection.setRequestMethod(method);
+    try {
+      if (body != null) {
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream output = connection.getOutputStream()) {
+          output.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+      final int status = connection.getResponseCode();
+      // Draining the body hands the connection back to the keep-alive cache.
+      try (InputStream input = status < 400 ? connection.getInputStream()
+          : connection.getErrorStream()) {
+        if (input != null) {
+          input.readAllBytes();
+        }
+      }
+      return status;
+    } catch (SocketTimeoutException timeout) {
+      connection.disconnect();
+      return -1;
+    }
+  }
+}
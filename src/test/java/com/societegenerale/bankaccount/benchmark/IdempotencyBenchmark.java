@@ -0,0 +1,79 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.IdempotencyCache;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a deposit without an idempotency key, with a new key each time, and retried with a key
+ * already seen; {@code newKeyNoop} isolates the cache. With {@code maxKeys} keys retained, every
+ * new key evicts the oldest one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdempotencyBenchmark {
+
+  private static final Money AMOUNT = Money.of(10);
+
+  @Param({"1000", "100000"})
+  private int maxKeys;
+
+  private BankAccountService service;
+  private IdempotencyCache cache;
+  private String accountId;
+  private String request;
+  private long next;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    service = new BankAccountService(new InMemoryAccountRepository());
+    cache = new IdempotencyCache(maxKeys, Duration.ofDays(1), new CompositeMeterRegistry());
+    accountId = service.createAccount().getAccountId();
+    request = "deposit " + accountId + " " + AMOUNT;
+    cache.execute("retried", request, () -> service.depositAsync(accountId, AMOUNT)).join();
+  }
+
+  @Benchmark
+  public Object newKeyNoop() {
+    return cache.execute(Long.toString(next++), request,
+        () -> CompletableFuture.completedFuture(null)).join();
+  }
+
+  @Benchmark
+  public Object withoutKey() {
+    return service.depositAsync(accountId, AMOUNT).join();
+  }
+
+  @Benchmark
+  public Object newKey() {
+    return cache.execute(Long.toString(next++), request,
+        () -> service.depositAsync(accountId, AMOUNT)).join();
+  }
+
+  @Benchmark
+  public Object retriedKey() {
+    return cache.execute("retried", request, () -> service.depositAsync(accountId, AMOUNT))
+        .join();
+  }
+}
@@ -0,0 +1,151 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.TransactionFilter;
+import com.societegenerale.bankaccount.application.TransactionPage;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import com.societegenerale.bankaccount.infrastructure.LedgerArchive;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A simulated year of activity per account, kept on the heap ({@code heap}) or compacted with a
+ * {@value #HORIZON_DAYS}-day horizon ({@code compacted}). Setup prints the heap used per account
+ * before and after compaction; the benchmarks read the balance and a page of recent or old
+ * transactions, the latter coming from the archive once compacted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LedgerCompactionBenchmark {
+
+  private static final int DAYS = 365;
+  private static final int HORIZON_DAYS = 30;
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"1000"})
+  private int accounts;
+
+  @Param({"5"})
+  private int transactionsPerDay;
+
+  @Param({"heap", "compacted"})
+  private String ledger;
+
+  private LedgerArchive archive;
+  private BankAccountService service;
+  private String[] accountIds;
+  private int archivedPerAccount;
+  private int transactionsPerAccount;
+
+  @Setup
+  public void setup() {
+    final long empty = usedHeap();
+    final InMemoryAccountRepository repository = new InMemoryAccountRepository();
+    final LocalDateTime start = LocalDateTime.now().minusDays(DAYS);
+    final Random random = new Random(42);
+    accountIds = new String[accounts];
+    transactionsPerAccount = DAYS * transactionsPerDay;
+    for (int i = 0; i < accounts; i++) {
+      accountIds[i] = "account-" + i;
+      repository.add(new Account(accountIds[i], year(start, random)));
+    }
+    service = new BankAccountService(repository);
+    final long full = usedHeap();
+    System.out.printf("%nHeap per account, %d transactions on the heap: %d bytes%n",
+        transactionsPerAccount, (full - empty) / accounts);
+    if ("compacted".equals(ledger)) {
+      archive = LedgerArchive.temporary(256);
+      service.compactLedgers(archive, LocalDateTime.now().minusDays(HORIZON_DAYS), 1);
+      archivedPerAccount = service.getAccount(accountIds[0]).getTransactions().archivedSize();
+      System.out.printf("Heap per account, %d transactions archived: %d bytes%n",
+          archivedPerAccount, (usedHeap() - empty) / accounts);
+    } else {
+      archivedPerAccount = (DAYS - HORIZON_DAYS) * transactionsPerDay;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (archive != null) {
+      archive.close();
+    }
+  }
+
+  @Benchmark
+  public Money balance() {
+    return service.getBalance(randomAccount());
+  }
+
+  @Benchmark
+  public TransactionPage recentPage() {
+    return service.getTransactionPage(randomAccount(), TransactionFilter.NONE,
+        transactionsPerAccount - PAGE_SIZE, PAGE_SIZE);
+  }
+
+  @Benchmark
+  public TransactionPage oldPage() {
+    final int cursor = ThreadLocalRandom.current().nextInt(archivedPerAccount - PAGE_SIZE);
+    return service.getTransactionPage(randomAccount(), TransactionFilter.NONE, cursor,
+        PAGE_SIZE);
+  }
+
+  private String randomAccount() {
+    return accountIds[ThreadLocalRandom.current().nextInt(accounts)];
+  }
+
+  // Mostly card payments against a monthly salary, spread over the day.
+  private List<Transaction> year(LocalDateTime start, Random random) {
+    final List<Transaction> transactions = new ArrayList<>(transactionsPerAccount);
+    long balance = 0;
+    for (int day = 0; day < DAYS; day++) {
+      for (int i = 0; i < transactionsPerDay; i++) {
+        final LocalDateTime date = start.plusDays(day)
+            .plusSeconds((long) i * 86_400 / transactionsPerDay + random.nextInt(3600));
+        long cents = i == 0 && day % 30 == 0 ? 250_000 : -1 - random.nextInt(5_000);
+        if (balance + cents < 0) {
+          cents = -cents;
+        }
+        balance += cents;
+        transactions.add(new Transaction(cents > 0 ? TransactionType.DEPOSIT
+            : TransactionType.WITHDRAWAL, date, Money.ofCents(cents)));
+      }
+    }
+    return transactions;
+  }
+
+  private static long usedHeap() {
+    final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+    }
+    return used;
+  }
+}
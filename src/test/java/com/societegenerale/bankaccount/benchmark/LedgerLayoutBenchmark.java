@@ -0,0 +1,97 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionLog;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A ledger held as a list of {@link Transaction} objects ({@code objects}) or as a columnar
+ * {@link TransactionLog} ({@code columnar}). Setup prints the heap taken per transaction; the
+ * benchmarks scan every amount or every date, as statements do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LedgerLayoutBenchmark {
+
+  @Param({"1000", "1000000"})
+  private int ledgerSize;
+
+  @Param({"objects", "columnar"})
+  private String layout;
+
+  private List<Transaction> ledger;
+  private LocalDateTime cutoff;
+
+  @Setup
+  public void setup() {
+    final long empty = usedHeap();
+    final Random random = new Random(42);
+    final LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    List<Transaction> transactions = new ArrayList<>(ledgerSize);
+    for (int i = 0; i < ledgerSize; i++) {
+      transactions.add(new Transaction(TransactionType.DEPOSIT,
+          start.plusSeconds(i * 600L + random.nextInt(600)),
+          Money.ofCents(1 + random.nextInt(100_000))));
+    }
+    if ("columnar".equals(layout)) {
+      transactions = TransactionLog.of(transactions);
+    }
+    ledger = transactions;
+    cutoff = start.plusSeconds(ledgerSize * 300L);
+    System.out.printf("%n%s: %d bytes per transaction%n", layout,
+        (usedHeap() - empty) / ledgerSize);
+  }
+
+  @Benchmark
+  public long scanAmounts() {
+    long sum = 0;
+    for (Transaction transaction : ledger) {
+      sum += transaction.getAmount().getCents();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int scanDates() {
+    int after = 0;
+    for (Transaction transaction : ledger) {
+      if (transaction.getDate().isAfter(cutoff)) {
+        after++;
+      }
+    }
+    return after;
+  }
+
+  private static long usedHeap() {
+    final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+    }
+    return used;
+  }
+}
@@ -0,0 +1,72 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency distribution of balance requests on the servlet stack (Tomcat, {@value #MAX_THREADS}
+ * request threads) and on the reactive stack (Netty, one event loop per core) while
+ * {@code openConnections} clients each hold a deposit open by never finishing its body. Servlet
+ * requests time out after {@value #TIMEOUT_MILLIS} ms once those clients outnumber the request
+ * threads; reactive handlers wait for the body without a thread.
+ *
+ * <p>Both ends of every connection live in the benchmark JVM, so the open file limit caps
+ * {@code openConnections} at about half of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ReactiveLoadBenchmark {
+
+  private static final int MAX_THREADS = 200;
+  private static final int TIMEOUT_MILLIS = 1000;
+
+  @Param({"servlet", "reactive"})
+  private String stack;
+
+  @Param({"0", "1000", "8000"})
+  private int openConnections;
+
+  private HttpLoadHarness harness;
+  private String balanceUri;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    harness = new HttpLoadHarness("--logging.level.root=ERROR",
+        "--spring.main.web-application-type=" + stack,
+        "--server.tomcat.threads.max=" + MAX_THREADS,
+        "--server.tomcat.max-connections=" + (openConnections + MAX_THREADS),
+        "--server.tomcat.connection-timeout=10m");
+    final String accountId = harness.getBean(BankAccountService.class).createAccount()
+        .getAccountId();
+    balanceUri = harness.uri("/accounts/" + accountId + "/balance");
+    harness.holdDeposits(accountId, openConnections);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    harness.close();
+  }
+
+  @Benchmark
+  public int balance() throws IOException {
+    return HttpLoadHarness.send(balanceUri, "GET", null, TIMEOUT_MILLIS);
+  }
+}
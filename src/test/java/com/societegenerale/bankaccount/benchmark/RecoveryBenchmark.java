@@ -0,0 +1,100 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.infrastructure.FileAccountRepository;
+import com.societegenerale.bankaccount.infrastructure.LedgerArchive;
+import com.societegenerale.bankaccount.infrastructure.SnapshotStore;
+import com.societegenerale.bankaccount.infrastructure.WriteAheadLog;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Time-to-ready of the file repository, replaying either the whole log or the latest snapshot plus
+ * the log written after it. Snapshots move all but the last {@code snapshotTail} transactions of
+ * each account to the ledger archive, as in production. The 1M accounts / 100M transactions
+ * target needs a large heap:
+ * {@code -p accounts=1000000 -p transactionsPerAccount=100 -jvmArgs -Xmx32g}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RecoveryBenchmark {
+
+  private static final int SEGMENT_SIZE = 64 << 20;
+
+  @Param({"10000"})
+  private int accounts;
+
+  @Param({"100"})
+  private int transactionsPerAccount;
+
+  @Param({"log", "snapshot"})
+  private String recovery;
+
+  @Param({"1024"})
+  private int snapshotTail;
+
+  private Path directory;
+
+  @Setup
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("recovery-benchmark");
+    // One log record per transaction, as written by live deposits.
+    try (LedgerArchive archive = archive();
+        FileAccountRepository repository = open(archive)) {
+      for (int i = 0; i < accounts; i++) {
+        Account account = new Account("account-" + i, Collections.emptyList());
+        repository.add(account);
+        for (int j = 0; j < transactionsPerAccount; j++) {
+          account = account.deposit(Money.of(10));
+          repository.save(account);
+        }
+      }
+      if ("snapshot".equals(recovery)) {
+        repository.snapshot();
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  @Benchmark
+  public int timeToReady() {
+    try (LedgerArchive archive = archive();
+        FileAccountRepository repository = open(archive)) {
+      return repository.count();
+    }
+  }
+
+  private LedgerArchive archive() {
+    return new LedgerArchive(directory.resolve("archive"), 256);
+  }
+
+  private FileAccountRepository open(LedgerArchive archive) {
+    return new FileAccountRepository(new WriteAheadLog(directory, SEGMENT_SIZE, 1024, 1),
+        new SnapshotStore(directory), archive, snapshotTail, 0);
+  }
+}
@@ -0,0 +1,74 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.StatementFormat;
+import com.societegenerale.bankaccount.application.StatementRenderer;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of rendering one statement with the buffered renderer, against the previous per-line
+ * formatting (a new formatter and string per line), both written to a discarding sink.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementBenchmark {
+
+  @Param({"10000"})
+  private int ledgerSize;
+
+  private Account account;
+  private final StatementRenderer renderer = new StatementRenderer();
+  private final Writer sink = Writer.nullWriter();
+
+  @Setup
+  public void setup() {
+    Account account = new Account();
+    for (int i = 0; i < ledgerSize; i++) {
+      account = account.deposit(Money.of(10));
+    }
+    this.account = account;
+  }
+
+  @Benchmark
+  public Writer buffered() throws IOException {
+    renderer.render(account.getAccountId(), account.getTransactions(), account.getBalance(),
+        StatementFormat.TEXT, sink);
+    return sink;
+  }
+
+  @Benchmark
+  public Writer perLine() throws IOException {
+    for (Transaction transaction : account.getTransactions()) {
+      final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+      final BigDecimal amount =
+          transaction.getAmount().toBigDecimal().setScale(2, RoundingMode.UP);
+      sink.write(transaction.getDate().format(formatter) + " | "
+          + (transaction.getTransactionType() == TransactionType.DEPOSIT ? amount : amount.negate())
+          + " | " + transaction.getTransactionType() + "\n");
+    }
+    return sink;
+  }
+}
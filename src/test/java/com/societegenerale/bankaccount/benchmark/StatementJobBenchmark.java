@@ -0,0 +1,96 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.StatementJob;
+import com.societegenerale.bankaccount.application.StatementRun;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * One end-of-day run over {@code accounts} accounts of {@code ledgerSize} transactions each, with
+ * {@code parallelism} threads. Divide {@code accounts} by the time per run for accounts per
+ * second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementJobBenchmark {
+
+  private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+  @Param({"10000"})
+  private int accounts;
+
+  @Param({"100"})
+  private int ledgerSize;
+
+  @Param({"64"})
+  private int shards;
+
+  @Param({"1", "2", "4"})
+  private int parallelism;
+
+  private Path directory;
+  private StatementJob job;
+
+  @Setup
+  public void setup() throws IOException {
+    final InMemoryAccountRepository repository = new InMemoryAccountRepository();
+    for (int i = 0; i < accounts; i++) {
+      final List<Transaction> transactions = new ArrayList<>(ledgerSize);
+      for (int j = 0; j < ledgerSize; j++) {
+        transactions.add(new Transaction(TransactionType.DEPOSIT,
+            CUTOFF.minusDays(ledgerSize - j), Money.ofCents(1 + (i + j) % 10_000)));
+      }
+      repository.add(new Account("account-" + i, transactions));
+    }
+    directory = Files.createTempDirectory("statement-benchmark");
+    job = new StatementJob(new BankAccountService(repository), directory, shards, parallelism,
+        null, new CompositeMeterRegistry());
+  }
+
+  // Each run writes every shard again.
+  @TearDown(Level.Invocation)
+  public void clear() throws IOException {
+    FileSystemUtils.deleteRecursively(job.getCurrent().getDirectory());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    job.close();
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  @Benchmark
+  public StatementRun run() {
+    return job.run(CUTOFF);
+  }
+}
@@ -0,0 +1,77 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One-day range queries and balance-as-of lookups on a large, date-ordered account, against the
+ * linear scan they replace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeIndexBenchmark {
+
+  private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+  @Param({"1000000"})
+  private int ledgerSize;
+
+  private Account account;
+
+  @Setup
+  public void setup() {
+    account = new Account("benchmark", IntStream.range(0, ledgerSize)
+        .mapToObj(i -> new Transaction(TransactionType.DEPOSIT, START.plusMinutes(i),
+            Money.of(10)))
+        .collect(Collectors.toList()));
+  }
+
+  @Benchmark
+  public int indexedRange() {
+    final LocalDateTime from = randomDate();
+    return account.getTransactionsBetween(from, from.plusDays(1)).size();
+  }
+
+  @Benchmark
+  public int linearRange() {
+    final LocalDateTime from = randomDate();
+    final LocalDateTime to = from.plusDays(1);
+    final List<Transaction> range = account.getTransactions().stream()
+        .filter(transaction -> !transaction.getDate().isBefore(from)
+            && transaction.getDate().isBefore(to))
+        .collect(Collectors.toList());
+    return range.size();
+  }
+
+  @Benchmark
+  public Money indexedBalanceAsOf() {
+    return account.getBalanceAsOf(randomDate());
+  }
+
+  private LocalDateTime randomDate() {
+    return START.plusMinutes(ThreadLocalRandom.current().nextInt(ledgerSize));
+  }
+}
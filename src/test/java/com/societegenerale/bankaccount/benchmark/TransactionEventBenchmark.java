@@ -0,0 +1,94 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.AccountExecutor;
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.OverflowPolicy;
+import com.societegenerale.bankaccount.application.TransactionEventBus;
+import com.societegenerale.bankaccount.application.TransactionListener;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Deposits without any listener ({@code none}) or publishing to the event bus with no subscriber
+ * ({@code bus}), one subscriber per account ({@code accounts}) or {@value #FIREHOSE_SUBSCRIBERS}
+ * subscribers for all accounts ({@code firehose}). Subscribers never read, so every event they
+ * receive also goes through their overflow policy. Events the bus had to drop because its
+ * dispatcher fell behind are printed after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionEventBenchmark {
+
+  private static final int ACCOUNTS = 1000;
+  private static final int FIREHOSE_SUBSCRIBERS = 4;
+  private static final Money AMOUNT = Money.of(1);
+
+  @Param({"none", "bus", "accounts", "firehose"})
+  private String subscribers;
+
+  private MeterRegistry registry;
+  private TransactionEventBus bus;
+  private BankAccountService service;
+  private String[] accountIds;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    registry = new SimpleMeterRegistry();
+    bus = "none".equals(subscribers) ? null
+        : new TransactionEventBus(65536, 1024, OverflowPolicy.DROP_OLDEST, registry);
+    final InMemoryAccountRepository repository = new InMemoryAccountRepository();
+    service = new BankAccountService(repository, new CompositeMeterRegistry(),
+        AccountExecutor.locking(1024), bus == null ? TransactionListener.NONE : bus);
+    accountIds = new String[ACCOUNTS];
+    for (int i = 0; i < ACCOUNTS; i++) {
+      final Account account = new Account();
+      repository.add(account);
+      accountIds[i] = account.getAccountId();
+      if ("accounts".equals(subscribers)) {
+        bus.subscribe(account.getAccountId(), null, null, subscription -> {
+        });
+      }
+    }
+    for (int i = 0; "firehose".equals(subscribers) && i < FIREHOSE_SUBSCRIBERS; i++) {
+      bus.subscribe(null, null, null, subscription -> {
+      });
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    if (bus != null) {
+      bus.close();
+      System.out.printf("%n%s: %.0f events dropped by the bus%n", subscribers,
+          registry.get("bankaccount.events.dropped").tag("stage", "bus").counter().count());
+    }
+  }
+
+  @Benchmark
+  public void deposit() {
+    service.deposit(accountIds[ThreadLocalRandom.current().nextInt(ACCOUNTS)], AMOUNT);
+  }
+}
@@ -0,0 +1,83 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.AccountExecutor;
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import com.societegenerale.bankaccount.infrastructure.InMemoryAccountRepository;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transfers between random pairs of {@code accounts} accounts. Fewer accounts mean more transfers
+ * contending for the same ones. Run with {@code -Dbenchmark.threads=<cores>} through
+ * {@link BenchmarkRunner} to load every core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferBenchmark {
+
+  private static final Money AMOUNT = Money.of(1);
+
+  @Param({"1000", "10"})
+  private int accounts;
+
+  @Param({"locking", "sharded"})
+  private String engine;
+
+  private AccountExecutor executor;
+  private BankAccountService service;
+  private String[] accountIds;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    executor = "sharded".equals(engine)
+        ? AccountExecutor.sharded(Runtime.getRuntime().availableProcessors(), 1024)
+        : AccountExecutor.locking(1024);
+    final InMemoryAccountRepository repository = new InMemoryAccountRepository();
+    service = new BankAccountService(repository, new CompositeMeterRegistry(), executor);
+    final List<Transaction> funding = List.of(new Transaction(TransactionType.DEPOSIT,
+        LocalDateTime.now(), Money.of(1_000_000_000)));
+    accountIds = new String[accounts];
+    for (int i = 0; i < accounts; i++) {
+      final Account account = new Account("account-" + i, funding);
+      repository.add(account);
+      accountIds[i] = account.getAccountId();
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    executor.close();
+  }
+
+  @Benchmark
+  public void transfer() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final int from = random.nextInt(accounts);
+    final int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+    service.transfer(accountIds[from], accountIds[to], AMOUNT);
+  }
+}
@@ -0,0 +1,72 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency distribution (see the p0.99 line) of balance requests while {@code slowClients}
+ * connections each hold a request open by never finishing its body, on the default platform
+ * thread pool of {@value #MAX_THREADS} threads or on virtual threads. Once the slow clients
+ * outnumber the pool, platform mode stops answering and requests hit the
+ * {@value #TIMEOUT_MILLIS} ms client timeout.
+ *
+ * <p>Virtual mode keeps serving them up to a limit: Tomcat waits for a request body in
+ * {@code Object.wait}, which pins the carrier thread, and the JDK only adds carriers up to
+ * {@code jdk.virtualThreadScheduler.maxPoolSize} (256 by default).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class VirtualThreadLoadBenchmark {
+
+  private static final int MAX_THREADS = 200;
+  private static final int TIMEOUT_MILLIS = 1000;
+
+  @Param({"platform", "virtual"})
+  private String threads;
+
+  @Param({"0", "250", "400"})
+  private int slowClients;
+
+  private HttpLoadHarness harness;
+  private String balanceUri;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    harness = new HttpLoadHarness("--logging.level.root=ERROR",
+        "--server.tomcat.threads.max=" + MAX_THREADS,
+        "--server.tomcat.connection-timeout=10m",
+        "--spring.threads.virtual.enabled=" + "virtual".equals(threads));
+    final String accountId = harness.getBean(BankAccountService.class).createAccount()
+        .getAccountId();
+    balanceUri = harness.uri("/accounts/" + accountId + "/balance");
+    harness.holdDeposits(accountId, slowClients);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    harness.close();
+  }
+
+  @Benchmark
+  public int balance() throws IOException {
+    return HttpLoadHarness.send(balanceUri, "GET", null, TIMEOUT_MILLIS);
+  }
+}
@@ -0,0 +1,84 @@
+package com.societegenerale.bankaccount.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Encoding and decoding a transaction history as JSON, CBOR and Smile, configured as the HTTP
+ * message converters are. The encoded size of each format is printed during setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+  @Param({"10000"})
+  private int ledgerSize;
+
+  @Param({"json", "cbor", "smile"})
+  private String format;
+
+  private ObjectMapper mapper;
+  private JavaType historyType;
+  private List<Transaction> history;
+  private byte[] encoded;
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 20);
+
+  @Setup
+  public void setup() throws IOException {
+    mapper = switch (format) {
+      case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+      case "smile" -> Jackson2ObjectMapperBuilder.smile()
+          .factory(SmileFactory.builder()
+              .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+              .build())
+          .build();
+      default -> Jackson2ObjectMapperBuilder.json().build();
+    };
+    historyType = mapper.getTypeFactory().constructCollectionType(List.class, Transaction.class);
+    Account account = new Account();
+    for (int i = 0; i < ledgerSize; i++) {
+      account = i % 3 == 2 ? account.withdrawal(Money.ofCents(1_234))
+          : account.deposit(Money.ofCents(10_000 + i));
+    }
+    history = account.getTransactions();
+    encoded = mapper.writeValueAsBytes(history);
+    System.out.printf("%n%s: %d bytes for %d transactions%n", format, encoded.length, ledgerSize);
+  }
+
+  @Benchmark
+  public int encode() throws IOException {
+    buffer.reset();
+    mapper.writeValue(buffer, history);
+    return buffer.size();
+  }
+
+  @Benchmark
+  public List<Transaction> decode() throws IOException {
+    return mapper.readValue(encoded, historyType);
+  }
+}
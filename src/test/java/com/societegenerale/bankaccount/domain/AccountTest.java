@@ -0,0 +1,28 @@
+package com.societegenerale.bankaccount.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class AccountTest {
+
+  @Test
+  public void testDatesNeverGoBackWhenTheClockDoes() {
+    // A last transaction ahead of the clock is what the ledger sees after the clock went back.
+    final LocalDateTime last = LocalDateTime.now().plusHours(1);
+    final Account account = new Account("account", List.of(
+            new Transaction(TransactionType.DEPOSIT, last, Money.of(100))))
+        .deposit(Money.of(10))
+        .withdrawal(Money.of(5));
+
+    final TransactionLog transactions = account.getTransactions();
+    assertFalse(transactions.get(1).getDate().isBefore(last));
+    assertFalse(transactions.get(2).getDate().isBefore(transactions.get(1).getDate()));
+    assertEquals(3, transactions.scanStart(last.plusNanos(1)));
+    assertEquals(3, transactions.between(last, null).size());
+    assertEquals(Money.of(105), account.getBalanceAsOf(last));
+  }
+}
@@ -0,0 +1,75 @@
+package com.societegenerale.bankaccount.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class CompactAccountIdsTest {
+
+  @Test
+  public void testFormatAndParseRoundTripInOrder() {
+    final long[] ids = {0, 1, 31, 32, 1L << 40, Long.MAX_VALUE};
+    String previous = null;
+    for (long id : ids) {
+      final String accountId = CompactAccountIds.format(id);
+      assertEquals(CompactAccountIds.LENGTH, accountId.length());
+      assertEquals(id, CompactAccountIds.parse(accountId));
+      assertTrue(previous == null || previous.compareTo(accountId) < 0);
+      previous = accountId;
+    }
+  }
+
+  @Test
+  public void testOtherIdsAreNotCompact() {
+    for (String accountId : List.of("1", "0123456789abc", "0123456789ABI", "8ZZZZZZZZZZZZ",
+        "3f2504e0-4f89-11d3-9a0c-0305e82c3301")) {
+      assertEquals(CompactAccountIds.NOT_COMPACT, CompactAccountIds.parse(accountId));
+    }
+  }
+
+  @Test
+  public void testIdsAreUniqueAcrossThreadsAndIncreasingPerThread() throws Exception {
+    final CompactAccountIds generator = new CompactAccountIds(CompactAccountIds.NOT_COMPACT, 16);
+    final Set<Long> seen = ConcurrentHashMap.newKeySet();
+    final ExecutorService threads = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<Boolean>> increasing = threads.invokeAll(List.of(
+          () -> take(generator, seen), () -> take(generator, seen),
+          () -> take(generator, seen), () -> take(generator, seen)));
+      for (Future<Boolean> result : increasing) {
+        assertTrue(result.get());
+      }
+    } finally {
+      threads.shutdown();
+    }
+    assertEquals(4 * 10_000, seen.size());
+  }
+
+  @Test
+  public void testGeneratorStartsAboveExistingIds() {
+    final long ahead = (System.currentTimeMillis() + 60_000 - 1_704_067_200_000L) << 22;
+    final CompactAccountIds generator = CompactAccountIds.above(
+        List.of(new Account("legacy"), new Account(CompactAccountIds.format(ahead))), 16);
+
+    assertTrue(generator.next() > ahead);
+  }
+
+  private static boolean take(CompactAccountIds generator, Set<Long> seen) {
+    long previous = -1;
+    boolean increasing = true;
+    for (int i = 0; i < 10_000; i++) {
+      final long id = generator.next();
+      increasing &= id > previous;
+      seen.add(id);
+      previous = id;
+    }
+    return increasing;
+  }
+}
@@ -0,0 +1,32 @@
+package com.societegenerale.bankaccount.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+public class MoneyTest {
+
+  @Test
+  public void testConversionIsExact() {
+    assertEquals(Money.ofCents(1050), Money.of(new BigDecimal("10.50")));
+    assertEquals(Money.ofCents(1050), Money.of(new BigDecimal("10.5000")));
+    assertEquals(new BigDecimal("10.50"), Money.ofCents(1050).toBigDecimal());
+    assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("10.001")));
+    assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e30")));
+  }
+
+  @Test
+  public void testArithmeticFailsOnOverflow() {
+    assertThrows(ArithmeticException.class,
+        () -> Money.ofCents(Long.MAX_VALUE).add(Money.ofCents(1)));
+  }
+
+  @Test
+  public void testToStringHasTwoDecimals() {
+    assertEquals("12.05", Money.ofCents(1205).toString());
+    assertEquals("-0.05", Money.ofCents(-5).toString());
+    assertEquals("0.00", Money.ZERO.toString());
+  }
+}
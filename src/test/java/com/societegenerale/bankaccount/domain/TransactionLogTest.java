@@ -0,0 +1,157 @@
+package com.societegenerale.bankaccount.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.societegenerale.bankaccount.domain.Money;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class TransactionLogTest {
+
+  @Test
+  public void testAppendKeepsPreviousVersionsUnchanged() {
+    TransactionLog log = TransactionLog.empty();
+    for (int i = 0; i < 3000; i++) {
+      log = log.append(deposit(i));
+    }
+    final TransactionLog longer = log.append(deposit(3000));
+
+    assertEquals(3000, log.size());
+    assertEquals(3001, longer.size());
+    assertEquals(Money.of(2048), longer.get(2048).getAmount());
+  }
+
+  @Test
+  public void testAppendToOlderVersionBranches() {
+    final TransactionLog base = TransactionLog.empty().append(deposit(1));
+    final Transaction first = deposit(2);
+    final Transaction second = deposit(3);
+
+    final TransactionLog left = base.append(first);
+    final TransactionLog right = base.append(second);
+
+    assertEquals(first.getAmount(), left.get(1).getAmount());
+    assertEquals(second.getAmount(), right.get(1).getAmount());
+    assertEquals(2, left.size());
+    assertEquals(2, right.size());
+  }
+
+  @Test
+  public void testDiscardedVersionGivesItsSlotsBack() {
+    final TransactionLog saved = TransactionLog.empty().append(deposit(1));
+    final TransactionLog aborted = saved.append(deposit(2)).append(deposit(3));
+
+    aborted.discard(saved);
+    final TransactionLog next = saved.append(deposit(4));
+
+    assertTrue(next.sharesStorageWith(saved));
+    assertTrue(next.append(deposit(5)).sharesStorageWith(saved));
+    assertEquals(2, next.size());
+    assertEquals(Money.of(4), next.get(1).getAmount());
+    assertEquals(Money.of(5), next.balance());
+  }
+
+  @Test
+  public void testStoredTransactionsReadBackUnchanged() {
+    final LocalDateTime date = LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_789);
+    final TransactionLog log = TransactionLog.empty()
+        .append(new Transaction(TransactionType.DEPOSIT, date, Money.ofCents(12_345)))
+        .append(new Transaction(TransactionType.TRANSFER, date, Money.ofCents(-345)));
+
+    final Transaction transfer = log.get(1);
+
+    assertEquals(TransactionType.TRANSFER, transfer.getTransactionType());
+    assertEquals(date, transfer.getDate());
+    assertEquals(Money.ofCents(-345), transfer.getAmount());
+    assertEquals(Money.ofCents(12_345), log.get(0).getAmount());
+    assertThrows(IllegalArgumentException.class, () -> log.append(
+        new Transaction(TransactionType.DEPOSIT, LocalDateTime.of(1600, 1, 1, 0, 0), Money.of(1))));
+  }
+
+  @Test
+  public void testRangeAndBalanceAsOfOnOrderedLog() {
+    final LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+    TransactionLog log = TransactionLog.empty();
+    for (int day = 0; day < 3000; day++) {
+      log = log.append(new Transaction(TransactionType.DEPOSIT, start.plusDays(day),
+          Money.of(1)));
+    }
+
+    final List<Transaction> range = log.between(start.plusDays(10), start.plusDays(20));
+
+    assertEquals(10, range.size());
+    assertEquals(start.plusDays(10), range.get(0).getDate());
+    assertEquals(Money.of(11), log.balanceAsOf(start.plusDays(10)));
+    assertEquals(Money.ZERO, log.balanceAsOf(start.minusDays(1)));
+    assertEquals(Money.of(3000), log.balanceAsOf(start.plusYears(20)));
+  }
+
+  @Test
+  public void testRangeAndBalanceAsOfOnUnorderedLog() {
+    final LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+    final TransactionLog log = TransactionLog.of(List.of(
+        new Transaction(TransactionType.DEPOSIT, start.plusDays(2), Money.of(1)),
+        new Transaction(TransactionType.DEPOSIT, start, Money.of(10)),
+        new Transaction(TransactionType.DEPOSIT, start.plusDays(1), Money.of(1))));
+
+    assertEquals(2, log.between(start, start.plusDays(2)).size());
+    assertEquals(Money.of(11), log.balanceAsOf(start.plusDays(1)));
+  }
+
+  @Test
+  public void testCompactedLogKeepsPositionsAndBalances() {
+    final LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+    TransactionLog log = TransactionLog.empty();
+    for (int day = 0; day < 2000; day++) {
+      log = log.append(new Transaction(TransactionType.DEPOSIT, start.plusDays(day),
+          Money.of(1)));
+    }
+    final TransactionLog prefix = log;
+    final ArchivedTransactions archived = new ArchivedTransactions() {
+      @Override
+      public int size() {
+        return 1500;
+      }
+
+      @Override
+      public Transaction get(int index) {
+        return prefix.get(index);
+      }
+
+      @Override
+      public Money balanceAt(int index) {
+        return Money.of(index + 1);
+      }
+
+      @Override
+      public Money balance() {
+        return Money.of(1500);
+      }
+
+      @Override
+      public LocalDateTime lastDate() {
+        return start.plusDays(1499);
+      }
+    };
+
+    final TransactionLog compacted = log.compact(archived)
+        .append(new Transaction(TransactionType.WITHDRAWAL, start.plusDays(2000), Money.of(-5)));
+
+    assertEquals(2001, compacted.size());
+    assertEquals(1500, compacted.archivedSize());
+    assertEquals(prefix.get(10).getDate(), compacted.get(10).getDate());
+    assertEquals(Money.of(1995), compacted.balance());
+    assertEquals(Money.of(11), compacted.balanceAsOf(start.plusDays(10)));
+    assertEquals(Money.of(1601), compacted.balanceAsOf(start.plusDays(1600)));
+    assertEquals(10, compacted.between(start.plusDays(1495), start.plusDays(1505)).size());
+    assertEquals(2000, log.size());
+  }
+
+  private static Transaction deposit(long amount) {
+    return new Transaction(TransactionType.DEPOSIT, LocalDateTime.now(),
+        Money.of(amount));
+  }
+}
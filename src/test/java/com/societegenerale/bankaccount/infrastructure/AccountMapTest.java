@@ -0,0 +1,49 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.CompactAccountIds;
+import com.societegenerale.bankaccount.domain.Money;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class AccountMapTest {
+
+  @Test
+  public void testCompactAndOtherIdsAreFoundAfterGrowth() {
+    final AccountMap map = new AccountMap();
+    final CompactAccountIds generator = new CompactAccountIds();
+    final List<Account> accounts = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      accounts.add(new Account(generator.nextId()));
+    }
+    accounts.add(new Account("3f2504e0-4f89-11d3-9a0c-0305e82c3301"));
+    accounts.forEach(map::put);
+
+    for (Account account : accounts) {
+      assertSame(account, map.get(account.getAccountId()));
+    }
+    assertNull(map.get(generator.nextId()));
+    assertNull(map.get("unknown"));
+    assertEquals(accounts.size(), map.size());
+    assertEquals(new HashSet<>(accounts), new HashSet<>(map.values()));
+  }
+
+  @Test
+  public void testPutReplacesTheSavedVersion() {
+    final AccountMap map = new AccountMap();
+    final Account account = new Account(new CompactAccountIds().nextId());
+    map.put(account);
+
+    final Account updated = account.deposit(Money.of(10));
+    map.put(updated);
+
+    assertSame(updated, map.get(account.getAccountId()));
+    assertEquals(1, map.size());
+  }
+}
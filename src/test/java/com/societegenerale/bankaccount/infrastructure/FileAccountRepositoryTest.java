@@ -0,0 +1,215 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.societegenerale.bankaccount.application.BankAccountService;
+import com.societegenerale.bankaccount.application.TransactionFilter;
+import com.societegenerale.bankaccount.application.TransactionPage;
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileAccountRepositoryTest {
+
+  private static final int SMALL_SEGMENT = 4096;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void testAccountsAreRecoveredAfterRestart() {
+    final String accountId;
+    try (FileAccountRepository repository = open()) {
+      final BankAccountService service = new BankAccountService(repository);
+      accountId = service.createAccount().getAccountId();
+      service.deposit(accountId, Money.of(100));
+      service.withdrawal(accountId, Money.ofCents(3025));
+    }
+
+    try (FileAccountRepository repository = open()) {
+      final Account account = repository.findById(accountId).orElseThrow();
+      assertEquals(2, account.getTransactions().size());
+      assertEquals(Money.ofCents(6975), account.getBalance());
+    }
+  }
+
+  @Test
+  public void testRecoveryAcrossSegments() throws IOException {
+    final String accountId;
+    try (FileAccountRepository repository = open()) {
+      final BankAccountService service = new BankAccountService(repository);
+      accountId = service.createAccount().getAccountId();
+      for (int i = 0; i < 500; i++) {
+        service.deposit(accountId, Money.of(1));
+      }
+    }
+
+    try (Stream<Path> segments = Files.list(directory)) {
+      assertTrue(segments.filter(path -> path.toString().endsWith(".log")).count() > 1);
+    }
+    try (FileAccountRepository repository = open()) {
+      assertEquals(Money.of(500),
+          repository.findById(accountId).orElseThrow().getBalance());
+    }
+  }
+
+  @Test
+  public void testTornTailIsIgnored() throws IOException {
+    final String accountId;
+    try (FileAccountRepository repository = open()) {
+      final BankAccountService service = new BankAccountService(repository);
+      accountId = service.createAccount().getAccountId();
+      service.deposit(accountId, Money.of(10));
+    }
+    final Path segment;
+    try (Stream<Path> segments = Files.list(directory)) {
+      segment = segments.filter(path -> path.toString().endsWith(".log")).sorted()
+          .reduce((first, second) -> second).orElseThrow();
+    }
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+      channel.read(buffer, 0);
+      final int firstRecordEnd = 2 * Integer.BYTES + buffer.getInt(0);
+      final ByteBuffer secondRecordLength = ByteBuffer.allocate(Integer.BYTES);
+      channel.read(secondRecordLength, firstRecordEnd);
+      final int secondRecordEnd = firstRecordEnd + 2 * Integer.BYTES + secondRecordLength.getInt(0);
+      channel.write(ByteBuffer.wrap(new byte[] {42}), secondRecordEnd - 1);
+    }
+
+    try (FileAccountRepository repository = open()) {
+      final Account account = repository.findById(accountId).orElseThrow();
+      assertEquals(0, account.getTransactions().size());
+      new BankAccountService(repository).deposit(accountId, Money.of(1));
+    }
+    try (FileAccountRepository repository = open()) {
+      assertEquals(Money.of(1), repository.findById(accountId).orElseThrow().getBalance());
+    }
+  }
+
+  @Test
+  public void testRecoveryFromSnapshotAndLogTail() throws IOException {
+    final String accountId;
+    try (FileAccountRepository repository = open()) {
+      final BankAccountService service = new BankAccountService(repository);
+      accountId = service.createAccount().getAccountId();
+      for (int i = 0; i < 300; i++) {
+        service.deposit(accountId, Money.of(1));
+      }
+      repository.snapshot();
+      service.withdrawal(accountId, Money.of(10));
+    }
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(1, files.filter(path -> path.toString().endsWith(".bin")).count());
+    }
+    try (FileAccountRepository repository = open()) {
+      final Account account = repository.findById(accountId).orElseThrow();
+      assertEquals(301, account.getTransactions().size());
+      assertEquals(Money.of(290), account.getBalance());
+    }
+  }
+
+  @Test
+  public void testCompactedLedgerIsReadFromArchiveAndRecovered() {
+    final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+    final List<Transaction> history = new ArrayList<>();
+    for (int i = 0; i < 1200; i++) {
+      history.add(new Transaction(TransactionType.DEPOSIT, start.plusHours(i),
+          Money.ofCents(100 + i)));
+    }
+    final LocalDateTime horizon = start.plusHours(1100);
+    try (LedgerArchive archive = new LedgerArchive(directory.resolve("archive"), 4);
+        FileAccountRepository repository = open(archive)) {
+      repository.add(new Account("old", history));
+      final BankAccountService service = new BankAccountService(repository);
+      final Money balance = service.getBalance("old");
+
+      assertEquals(1100, service.compactLedgers(archive, horizon, 1));
+      assertEquals(0, service.compactLedgers(archive, horizon, 1));
+      final Account compacted = service.getAccount("old");
+      assertEquals(1100, compacted.getTransactions().archivedSize());
+      assertEquals(balance, compacted.getBalance());
+      assertEquals(Money.ZERO, compacted.balanceDrift());
+      assertEquals(Money.ofCents(100 * 11 + 55),
+          service.getBalanceAsOf("old", start.plusHours(10)));
+      final TransactionPage page = service.getTransactionPage("old", TransactionFilter.NONE,
+          1090, 20);
+      assertEquals(Money.ofCents(100 + 1090), page.getTransactions().get(0).getAmount());
+      assertEquals(start.plusHours(1109), page.getTransactions().get(19).getDate());
+      repository.snapshot();
+      service.deposit("old", Money.of(1));
+    }
+
+    try (LedgerArchive archive = new LedgerArchive(directory.resolve("archive"), 4);
+        FileAccountRepository repository = open(archive)) {
+      final Account account = repository.findById("old").orElseThrow();
+      assertEquals(1201, account.getTransactions().size());
+      assertEquals(1100, account.getTransactions().archivedSize());
+      assertEquals(history.get(5).getDate(), account.getTransactions().get(5).getDate());
+      assertEquals(Money.ZERO, account.balanceDrift());
+    }
+  }
+
+  @Test
+  public void testSnapshotOnlyHoldsTheTailOfLongLedgers() throws IOException {
+    final LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+    final List<Transaction> history = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      history.add(new Transaction(TransactionType.DEPOSIT, start.plusMinutes(i), Money.of(1)));
+    }
+    try (LedgerArchive archive = new LedgerArchive(directory.resolve("archive"), 4);
+        FileAccountRepository repository = open(archive, 100)) {
+      repository.add(new Account("long", history));
+      repository.add(new Account("short", history.subList(0, 50)));
+      repository.snapshot();
+      final Account account = repository.findById("long").orElseThrow();
+      repository.save(account.deposit(Money.of(7)));
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      final Path snapshot = files
+          .filter(path -> path.getFileName().toString().startsWith("snapshot-"))
+          .findFirst().orElseThrow();
+      assertTrue(Files.size(snapshot) < 200 * 21);
+    }
+
+    try (LedgerArchive archive = new LedgerArchive(directory.resolve("archive"), 4);
+        FileAccountRepository repository = open(archive, 100)) {
+      final Account account = repository.findById("long").orElseThrow();
+      assertEquals(3001, account.getTransactions().size());
+      assertEquals(2900, account.getTransactions().archivedSize());
+      assertEquals(Money.of(3007), account.getBalance());
+      assertEquals(Money.ZERO, account.balanceDrift());
+      assertEquals(history.get(10).getDate(), account.getTransactions().get(10).getDate());
+      assertEquals(50, repository.findById("short").orElseThrow().getTransactions().size());
+    }
+  }
+
+  private FileAccountRepository open() {
+    return new FileAccountRepository(new WriteAheadLog(directory, SMALL_SEGMENT, 8, 1),
+        new SnapshotStore(directory), 0);
+  }
+
+  private FileAccountRepository open(LedgerArchive archive) {
+    return open(archive, 1024);
+  }
+
+  private FileAccountRepository open(LedgerArchive archive, int snapshotTail) {
+    return new FileAccountRepository(new WriteAheadLog(directory, SMALL_SEGMENT, 8, 1),
+        new SnapshotStore(directory), archive, snapshotTail, 0);
+  }
+}
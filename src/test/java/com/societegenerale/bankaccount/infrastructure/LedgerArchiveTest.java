@@ -0,0 +1,207 @@
+package com.societegenerale.bankaccount.infrastructure;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.ArchivedTransactions;
+import com.societegenerale.bankaccount.domain.Money;
+import com.societegenerale.bankaccount.domain.Transaction;
+import com.societegenerale.bankaccount.domain.TransactionType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LedgerArchiveTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+  private static final int BLOCK = LedgerArchive.BLOCK_SIZE;
+
+  @TempDir
+  private Path directory;
+
+  @Test
+  public void testBlocksAreFoundAtTheirBoundaries() {
+    final Account account = account(3 * BLOCK + 10);
+    try (LedgerArchive archive = new LedgerArchive(directory, 2)) {
+      final ArchivedTransactions archived = archive.archive(List.of(account),
+          date(3 * BLOCK + 10)).get("account");
+
+      assertEquals(3 * BLOCK + 10, archived.size());
+      for (int index : new int[] {0, BLOCK - 1, BLOCK, 2 * BLOCK - 1, 2 * BLOCK,
+          3 * BLOCK, 3 * BLOCK + 9}) {
+        assertEquals(Money.ofCents(index + 1), archived.get(index).getAmount());
+        assertEquals(date(index), archived.get(index).getDate());
+        assertEquals(account.getTransactions().balanceAsOf(date(index)),
+            archived.balanceAt(index));
+      }
+      assertEquals(account.getBalance(), archived.balance());
+      assertEquals(date(3 * BLOCK + 9), archived.lastDate());
+      assertThrows(IndexOutOfBoundsException.class, () -> archived.get(-1));
+      assertThrows(IndexOutOfBoundsException.class, () -> archived.get(3 * BLOCK + 10));
+    }
+  }
+
+  @Test
+  public void testSeveralSegmentsAreReloaded() {
+    final Account account = account(2 * BLOCK);
+    try (LedgerArchive archive = new LedgerArchive(directory, 2)) {
+      assertEquals(BLOCK + 5,
+          archive.archive(List.of(account), date(BLOCK + 5)).get("account").size());
+      assertTrue(archive.archive(List.of(account), date(BLOCK + 5)).isEmpty());
+      assertEquals(2 * BLOCK - 3,
+          archive.archive(List.of(account), date(2 * BLOCK - 3)).get("account").size());
+    }
+
+    try (LedgerArchive archive = new LedgerArchive(directory, 2)) {
+      final ArchivedTransactions archived = archive.archived("account");
+
+      assertEquals(2 * BLOCK - 3, archived.size());
+      assertEquals(Money.ofCents(BLOCK + 5), archived.get(BLOCK + 4).getAmount());
+      assertEquals(Money.ofCents(BLOCK + 6), archived.get(BLOCK + 5).getAmount());
+      assertEquals(account.getTransactions().balanceAsOf(date(2 * BLOCK - 4)),
+          archived.balance());
+      assertEquals(date(2 * BLOCK - 4), archived.lastDate());
+      assertEquals(0, archive.archived("unknown").size());
+    }
+  }
+
+  @Test
+  public void testMissingSegmentIsReportedAsAGap() throws IOException {
+    final Account account = account(20);
+    try (LedgerArchive archive = new LedgerArchive(directory, 2)) {
+      archive.archive(List.of(account), date(10));
+      archive.archive(List.of(account), date(20));
+    }
+    Files.delete(segments().get(0));
+
+    final IllegalStateException exception = assertThrows(IllegalStateException.class,
+        () -> new LedgerArchive(directory, 2));
+    assertEquals("Gap in the archive of account account", exception.getMessage());
+  }
+
+  @Test
+  public void testCorruptIndexIsRejectedOnLoad() throws IOException {
+    try (LedgerArchive archive = new LedgerArchive(directory, 2)) {
+      archive.archive(List.of(account(20)), date(20));
+    }
+    final Path segment = segments().get(0);
+    flipByte(segment, Files.size(segment) - 20);
+
+    final IllegalStateException exception = assertThrows(IllegalStateException.class,
+        () -> new LedgerArchive(directory, 2));
+    assertTrue(exception.getMessage().startsWith("Corrupt index"));
+  }
+
+  @Test
+  public void testCorruptBlockIsRejectedOnRead() throws IOException {
+    try (LedgerArchive archive = new LedgerArchive(directory, 2)) {
+      archive.archive(List.of(account(20)), date(20));
+    }
+    flipByte(segments().get(0), Integer.BYTES + 1);
+
+    try (LedgerArchive archive = new LedgerArchive(directory, 2)) {
+      final ArchivedTransactions archived = archive.archived("account");
+      assertEquals(20, archived.size());
+      final IllegalStateException exception = assertThrows(IllegalStateException.class,
+          () -> archived.get(0));
+      assertTrue(exception.getMessage().startsWith("Corrupt archive block"));
+    }
+  }
+
+  @Test
+  public void testTemporarySegmentsAreDeletedOnStartup() throws IOException {
+    final Path leftOver = directory.resolve("ledger-0000000007.seg.tmp");
+    Files.write(leftOver, new byte[] {1, 2, 3});
+
+    try (LedgerArchive archive = new LedgerArchive(directory, 2)) {
+      assertFalse(Files.exists(leftOver));
+      assertEquals(10, archive.archive(List.of(account(10)), date(10)).get("account").size());
+    }
+    assertEquals(1, segments().size());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedBlockIsEvicted() throws IOException {
+    try (LedgerArchive archive = new LedgerArchive(directory, 2)) {
+      final ArchivedTransactions archived = archive.archive(List.of(account(3 * BLOCK)),
+          date(3 * BLOCK)).get("account");
+      archived.get(0);
+      archived.get(BLOCK);
+      archived.get(1);
+      archived.get(2 * BLOCK);
+      corruptBlocks(segments().get(0));
+
+      assertEquals(Money.ofCents(3), archived.get(2).getAmount());
+      assertEquals(Money.ofCents(2 * BLOCK + 2), archived.get(2 * BLOCK + 1).getAmount());
+      assertThrows(IllegalStateException.class, () -> archived.get(BLOCK + 1));
+    }
+  }
+
+  @Test
+  public void testUnorderedLogIsArchivedUpToItsFirstLaterEntry() {
+    final List<Transaction> transactions = new ArrayList<>(account(10).getTransactions());
+    transactions.add(4, new Transaction(TransactionType.DEPOSIT, date(100), Money.of(1)));
+    final Account account = new Account("account", transactions);
+    try (LedgerArchive archive = new LedgerArchive(directory, 2)) {
+      final ArchivedTransactions archived = archive.archive(List.of(account), date(50))
+          .get("account");
+
+      assertEquals(4, archived.size());
+      assertEquals(4, account.getTransactions().archiveEnd(date(50)));
+      assertEquals(Money.ofCents(1 + 2 + 3 + 4), archived.balance());
+    }
+  }
+
+  // Transaction i is dated START plus i minutes and deposits i + 1 cents.
+  private static Account account(int size) {
+    final List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      transactions.add(new Transaction(TransactionType.DEPOSIT, date(i), Money.ofCents(i + 1)));
+    }
+    return new Account("account", transactions);
+  }
+
+  private static LocalDateTime date(int index) {
+    return START.plusMinutes(index);
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> path.toString().endsWith(".seg")).sorted().toList();
+    }
+  }
+
+  private static void flipByte(Path file, long position) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      final ByteBuffer buffer = ByteBuffer.allocate(1);
+      channel.read(buffer, position);
+      buffer.put(0, (byte) (buffer.get(0) ^ 0xFF));
+      channel.write(buffer.rewind(), position);
+    }
+  }
+
+  // Everything between the magic number and the index, which the trailer points at.
+  private static void corruptBlocks(Path segment) throws IOException {
+    final long size = Files.size(segment);
+    final ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+      channel.read(trailer, size - 2 * Integer.BYTES - Long.BYTES);
+    }
+    for (long position = Integer.BYTES; position < trailer.getLong(0); position++) {
+      flipByte(segment, position);
+    }
+  }
+}
@@ -2,9 +2,9 @@ package com.societegenerale.bankaccount.testUtils;
 
 import com.github.javafaker.Faker;
 import com.societegenerale.bankaccount.domain.Account;
+import com.societegenerale.bankaccount.domain.Money;
 import com.societegenerale.bankaccount.domain.Transaction;
 import com.societegenerale.bankaccount.domain.TransactionType;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.List;
@@ -16,7 +16,7 @@ import java.util.stream.Stream;
 
 public class AccountFixture {
 
-  private static final Faker faker = new Faker(new Locale("fr"));
+  private static final Faker faker = new Faker(Locale.of("fr"));
 
   public static Account createAccountWithTransactions(int numTransactions) {
     final TransactionType[] transactionTypes = TransactionType.values();
@@ -41,7 +41,7 @@ public class AccountFixture {
   private static Transaction generateRandomTransaction(TransactionType transactionType) {
     final LocalDateTime timestamp = faker.date().past(30, TimeUnit.DAYS).toInstant()
         .atZone(ZoneId.systemDefault()).toLocalDateTime();
-    final BigDecimal amount = BigDecimal.valueOf(faker.number().randomDouble(2, 1, 1000));
+    final Money amount = Money.ofCents(faker.number().numberBetween(100, 100000));
     return new Transaction(transactionType, timestamp, amount);
   }
 